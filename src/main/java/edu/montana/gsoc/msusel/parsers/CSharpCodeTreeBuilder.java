@@ -44,12 +44,11 @@ import edu.montana.gsoc.msusel.node.TypeNode;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6BaseListener;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Accessor_declarationsContext;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Add_accessor_declarationContext;
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.BlockContext;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Break_statementContext;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Checked_statementContext;
-import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Class_bodyContext;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Class_definitionContext;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Compilation_unitContext;
-import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Constructor_bodyContext;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Constructor_declaration2Context;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Constructor_declarationContext;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Constructor_declaratorContext;
@@ -58,13 +57,11 @@ import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Declaration_statemen
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Delegate_declarationContext;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Delegate_definitionContext;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Delegate_typeContext;
-import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Destructor_bodyContext;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Destructor_declarationContext;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Do_statementContext;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Embedded_statementContext;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Embedded_statement_unsafeContext;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Empty_statementContext;
-import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Enum_bodyContext;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Enum_definitionContext;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Enum_member_declarationContext;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Event_declaration2Context;
@@ -83,7 +80,6 @@ import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.If_statementContext;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Indexer_declaration2Context;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Indexer_declarationContext;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Indexer_declaratorContext;
-import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Interface_bodyContext;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Interface_definitionContext;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Interface_event_declaration2Context;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Interface_event_declarationContext;
@@ -98,16 +94,13 @@ import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Local_constant_decla
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Lock_statementContext;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Member_declaratorContext;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Member_nameContext;
-import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Method_bodyContext;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Method_declaration2Context;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Method_declarationContext;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Method_headerContext;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Method_member_nameContext;
-import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Namespace_bodyContext;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Namespace_declarationContext;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Namespace_member_declarationContext;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Namespace_nameContext;
-import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Operator_bodyContext;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Operator_declaration2Context;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Operator_declarationContext;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Overloadable_binary_operatorContext;
@@ -119,7 +112,6 @@ import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Property_declaration
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Selection_statementContext;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Simple_embedded_statementContext;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Static_constructor_declarationContext;
-import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Struct_bodyContext;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Struct_definitionContext;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Switch_statementContext;
 import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Throw_statementContext;
@@ -159,29 +151,156 @@ public class CSharpCodeTreeBuilder extends CSharp6BaseListener {
     /**
      * FileNode being built
      */
-    private final FileNode                    file;
+    private FileNode                          file;
     /**
-     * Line of Code Counter
+     * Line of Code Counter, used only when no line index is available
      */
-    private final LoCCounter                  locCounter;
+    private LoCCounter                        locCounter;
+    /**
+     * Per-line classification of the file, null if unavailable
+     */
+    private TokenLineIndex                    lines;
+    /**
+     * Registrar of deferred member bodies, null if bodies are not deferred
+     */
+    private LazyMethodBodies.FileBodies       bodies;
+    /**
+     * Journal recording each node created, null if not recorded
+     */
+    private ParseJournal                      journal;
 
     /**
-     * Construct a new JavaCodeTreeBuilder for the provided FileNode
+     * Construct a new JavaCodeTreeBuilder for the provided FileNode. As the
+     * token stream is unavailable, LOC is counted from the text of each
+     * context. Prefer {@link #CSharpCodeTreeBuilder(FileNode, TokenLineIndex)}.
      * 
      * @param file
      */
     public CSharpCodeTreeBuilder(final FileNode file)
+    {
+        this(file, null);
+    }
+
+    /**
+     * Construct a new CSharpCodeTreeBuilder for the provided FileNode, which
+     * measures LOC and comment lines using the line index of the file's token
+     * stream.
+     * 
+     * @param file
+     *            FileNode to build
+     * @param lines
+     *            Line index of the file, or null to count LOC from the text of
+     *            each context
+     */
+    public CSharpCodeTreeBuilder(final FileNode file, final TokenLineIndex lines)
+    {
+        this(file, lines, null);
+    }
+
+    /**
+     * Construct a new CSharpCodeTreeBuilder for a file parsed in outline mode,
+     * which registers the collapsed body of each method with the given
+     * registrar so that its statements can be produced later.
+     * 
+     * @param file
+     *            FileNode to build
+     * @param lines
+     *            Line index of the file
+     * @param bodies
+     *            Registrar of deferred bodies, or null to ignore collapsed
+     *            bodies
+     */
+    CSharpCodeTreeBuilder(final FileNode file, final TokenLineIndex lines, final LazyMethodBodies.FileBodies bodies)
     {
         types = new Stack<>();
         methods = new Stack<>();
         namespaces = new Stack<>();
+        reset(file, lines, bodies);
+    }
+
+    /**
+     * Construct a new CSharpCodeTreeBuilder which adds the statements of a
+     * separately parsed method body to the given method.
+     * 
+     * @param method
+     *            Method owning the body
+     */
+    CSharpCodeTreeBuilder(final MethodNode method)
+    {
+        this(null, null, null);
+        methods.push(method);
+    }
+
+    /**
+     * Prepares this builder to build another file, counting LOC from the
+     * text of each context.
+     * 
+     * @param file
+     *            FileNode to build
+     */
+    public void reset(final FileNode file)
+    {
+        reset(file, null, null);
+    }
+
+    /**
+     * Prepares this builder to build another file, measuring LOC and comment
+     * lines using the line index of the file's token stream.
+     * 
+     * @param file
+     *            FileNode to build
+     * @param lines
+     *            Line index of the file, or null to count LOC from the text of
+     *            each context
+     */
+    public void reset(final FileNode file, final TokenLineIndex lines)
+    {
+        reset(file, lines, null);
+    }
+
+    /**
+     * Prepares this builder to build another file, discarding any state left
+     * from the previous one, including its journal.
+     * 
+     * @param file
+     *            FileNode to build
+     * @param lines
+     *            Line index of the file
+     * @param bodies
+     *            Registrar of deferred bodies, or null to ignore collapsed
+     *            bodies
+     */
+    void reset(final FileNode file, final TokenLineIndex lines, final LazyMethodBodies.FileBodies bodies)
+    {
+        types.clear();
+        methods.clear();
+        namespaces.clear();
         this.file = file;
-        locCounter = new LoCCounter("//", "/*", "*/", "\r\n");
+        this.lines = lines;
+        this.bodies = bodies;
+        journal = null;
+        if (lines == null && locCounter == null)
+        {
+            locCounter = new LoCCounter("//", "/*", "*/", "\r\n");
+        }
     }
 
     /**
-     * Adds the LOC metric measurement to the given INode based on the text from
-     * the given ParserRuleContext
+     * Records every node subsequently created by this builder in the given
+     * journal, so that the file can later be rebuilt without parsing it.
+     * 
+     * @param journal
+     *            Journal to record into, or null to stop recording
+     */
+    void setJournal(final ParseJournal journal)
+    {
+        this.journal = journal;
+    }
+
+    /**
+     * Adds the LOC metric measurement, and when the line index is available
+     * the CLOC (comment lines) measurement, to the given INode based on the
+     * lines spanned by the given ParserRuleContext
      * 
      * @param ctx
      *            ParserRuleContext
@@ -190,9 +309,21 @@ public class CSharpCodeTreeBuilder extends CSharp6BaseListener {
      */
     private void addLoCMetric(final @NonNull ParserRuleContext ctx, final @NonNull INode ent)
     {
-        locCounter.reset();
-        locCounter.count(ctx.getText());
-        ent.addMetric("LOC", new Double(locCounter.getSloc()));
+        if (lines == null)
+        {
+            locCounter.reset();
+            locCounter.count(ctx.getText());
+            addMetric(ent, "LOC", locCounter.getSloc());
+            return;
+        }
+
+        final int start = ctx.getStart().getLine();
+        int end = start;
+        if (ctx.getStop() != null && ctx.getStop().getLine() > start)
+            end = ctx.getStop().getLine();
+
+        addMetric(ent, "LOC", lines.getCodeLines(start, end));
+        addMetric(ent, "CLOC", lines.getCommentLines(start, end));
     }
 
     /**
@@ -221,6 +352,111 @@ public class CSharpCodeTreeBuilder extends CSharp6BaseListener {
                 sn = StatementNode.builder(type).range(start, end).create();
             }
             mn.addStatement(sn);
+            if (journal != null)
+            {
+                journal.statement(mn, type, start, end);
+            }
+        }
+    }
+
+    /**
+     * Creates a TypeNode and adds it to the file
+     * 
+     * @param qualifiedName
+     *            Qualified name of the type
+     * @param name
+     *            Simple name of the type
+     * @param start
+     *            First line of the type
+     * @param end
+     *            Last line of the type
+     * @param isInterface
+     *            Whether the type is an interface
+     * @return The new TypeNode
+     */
+    private TypeNode addType(final String qualifiedName, final String name, final int start, final int end,
+            final boolean isInterface)
+    {
+        final TypeNode ent = isInterface
+                ? TypeNode.builder(qualifiedName, name).range(start, end).isInterface().create()
+                : TypeNode.builder(qualifiedName, name).range(start, end).create();
+        file.addType(ent);
+        if (journal != null)
+        {
+            journal.type(ent, qualifiedName, name, start, end, isInterface);
+        }
+        return ent;
+    }
+
+    /**
+     * Creates a MethodNode and adds it to the given type
+     * 
+     * @param type
+     *            Type declaring the method
+     * @param qualifiedName
+     *            Qualified name of the method
+     * @param name
+     *            Name of the method
+     * @param start
+     *            First line of the method
+     * @param end
+     *            Last line of the method
+     * @param constructor
+     *            Whether the method is a constructor
+     * @return The new MethodNode
+     */
+    private MethodNode addMethod(final TypeNode type, final String qualifiedName, final String name, final int start,
+            final int end, final boolean constructor)
+    {
+        final MethodNode ent = constructor
+                ? MethodNode.builder(qualifiedName, name).constructor().range(start, end).create()
+                : MethodNode.builder(qualifiedName, name).range(start, end).create();
+        type.addMethod(ent);
+        if (journal != null)
+        {
+            journal.method(type, ent, qualifiedName, name, start, end, constructor);
+        }
+        return ent;
+    }
+
+    /**
+     * Creates a FieldNode and adds it to the given type
+     * 
+     * @param type
+     *            Type declaring the field
+     * @param name
+     *            Name of the field
+     * @param start
+     *            First line of the field
+     * @param end
+     *            Last line of the field
+     */
+    private void addField(final TypeNode type, final String name, final int start, final int end)
+    {
+        final String qualifiedName = type.getQIdentifier() + "#" + name;
+        type.addField(FieldNode.builder(name, qualifiedName).range(start, end).create());
+        if (journal != null)
+        {
+            journal.field(type, name, qualifiedName, start, end);
+        }
+    }
+
+    /**
+     * Adds a metric measurement to the given node
+     * 
+     * @param ent
+     *            Node measured
+     * @param metric
+     *            Name of the metric
+     * @param value
+     *            Measured value
+     */
+    private void addMetric(final INode ent, final String metric, final double value)
+    {
+        ent.addMetric(metric, Double.valueOf(value));
+        if (journal != null)
+        {
+            journal.metric(ent, metric, value);
         }
     }
 
@@ -244,6 +480,19 @@ public class CSharpCodeTreeBuilder extends CSharp6BaseListener {
         super.enterAdd_accessor_declaration(ctx);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void enterBlock(final BlockContext ctx)
+    {
+        super.enterBlock(ctx);
+        if (bodies != null && !methods.isEmpty() && OutlineBodySkipper.isMemberBody(ctx))
+        {
+            bodies.register(methods.peek(), ctx.getStart().getTokenIndex());
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -282,8 +531,7 @@ public class CSharpCodeTreeBuilder extends CSharp6BaseListener {
         if (ctx.getStop() != null)
             end = ctx.getStop().getLine();
 
-        final TypeNode ent = TypeNode.builder(fullName == null ? name : fullName, name).range(start, end).create();
-        file.addType(ent);
+        final TypeNode ent = addType(fullName == null ? name : fullName, name, start, end, false);
         types.push(ent);
 
         addLoCMetric(ctx, ent);
@@ -291,6 +539,17 @@ public class CSharpCodeTreeBuilder extends CSharp6BaseListener {
         super.enterClass_definition(ctx);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void exitClass_definition(final Class_definitionContext ctx)
+    {
+        super.exitClass_definition(ctx);
+        if (!types.isEmpty())
+            types.pop();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -319,8 +578,7 @@ public class CSharpCodeTreeBuilder extends CSharp6BaseListener {
         if (ctx.getStop() != null)
             end = ctx.getStop().getLine();
 
-        final MethodNode ent = MethodNode.builder(fullName, name).constructor().range(start, end).create();
-        types.peek().addMethod(ent);
+        final MethodNode ent = addMethod(types.peek(), fullName, name, start, end, true);
         methods.push(ent);
 
         addLoCMetric(ctx, ent);
@@ -366,8 +624,7 @@ public class CSharpCodeTreeBuilder extends CSharp6BaseListener {
         if (end < start)
             end = start;
 
-        final MethodNode ent = MethodNode.builder(fullName, name).range(start, end).create();
-        types.peek().addMethod(ent);
+        final MethodNode ent = addMethod(types.peek(), fullName, name, start, end, false);
         methods.push(ent);
 
         addLoCMetric(ctx, ent);
@@ -424,8 +681,7 @@ public class CSharpCodeTreeBuilder extends CSharp6BaseListener {
         if (end < start)
             end = start;
 
-        final MethodNode ent = MethodNode.builder(fullName, name).range(start, end).create();
-        types.peek().addMethod(ent);
+        final MethodNode ent = addMethod(types.peek(), fullName, name, start, end, false);
         methods.push(ent);
 
         addLoCMetric(ctx, ent);
@@ -486,9 +742,7 @@ public class CSharpCodeTreeBuilder extends CSharp6BaseListener {
         int end = start;
         if (ctx.getStop() != null)
             end = ctx.getStop().getLine();
-        final TypeNode ent = TypeNode.builder(fullName, name).range(start, end).create();
-
-        file.addType(ent);
+        final TypeNode ent = addType(fullName, name, start, end, false);
         types.push(ent);
 
         addLoCMetric(ctx, ent);
@@ -496,6 +750,17 @@ public class CSharpCodeTreeBuilder extends CSharp6BaseListener {
         super.enterEnum_definition(ctx);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void exitEnum_definition(final Enum_definitionContext ctx)
+    {
+        super.exitEnum_definition(ctx);
+        if (!types.isEmpty())
+            types.pop();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -512,7 +777,7 @@ public class CSharpCodeTreeBuilder extends CSharp6BaseListener {
         TypeNode type = types.peek();
         if (name != null)
         {
-            type.addField(FieldNode.builder(name, type.getQIdentifier() + "#" + name).range(start, end).create());
+            addField(type, name, start, end);
         }
         super.enterEnum_member_declaration(ctx);
     }
@@ -612,10 +877,9 @@ public class CSharpCodeTreeBuilder extends CSharp6BaseListener {
         if (ctx.getStop() != null)
             end = ctx.getStop().getLine();
 
-        final TypeNode ent = TypeNode.builder(fullName, name).range(start, end).isInterface().create();
+        final TypeNode ent = addType(fullName, name, start, end, true);
 
         types.push(ent);
-        file.addType(ent);
 
         addLoCMetric(ctx, ent);
 
@@ -628,8 +892,9 @@ public class CSharpCodeTreeBuilder extends CSharp6BaseListener {
     @Override
     public void exitInterface_definition(final Interface_definitionContext ctx)
     {
-
         super.exitInterface_definition(ctx);
+        if (!types.isEmpty())
+            types.pop();
     }
 
     /**
@@ -647,9 +912,7 @@ public class CSharpCodeTreeBuilder extends CSharp6BaseListener {
         int end = start;
         if (ctx.getStop() != null)
             end = ctx.getStop().getLine();
-        final MethodNode ent = MethodNode.builder(fullName, name).range(start, end).create();
-
-        types.peek().addMethod(ent);
+        final MethodNode ent = addMethod(types.peek(), fullName, name, start, end, false);
 
         super.enterInterface_method_declaration2(ctx);
     }
@@ -702,8 +965,7 @@ public class CSharpCodeTreeBuilder extends CSharp6BaseListener {
         if (end < start)
             end = start;
 
-        final MethodNode ent = MethodNode.builder(fullName, name).range(start, end).create();
-        types.peek().addMethod(ent);
+        final MethodNode ent = addMethod(types.peek(), fullName, name, start, end, false);
         methods.push(ent);
 
         addLoCMetric(ctx, ent);
@@ -740,6 +1002,17 @@ public class CSharpCodeTreeBuilder extends CSharp6BaseListener {
         super.enterNamespace_declaration(ctx);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void exitNamespace_declaration(final Namespace_declarationContext ctx)
+    {
+        super.exitNamespace_declaration(ctx);
+        if (!namespaces.isEmpty())
+            namespaces.pop();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -903,15 +1176,25 @@ public class CSharpCodeTreeBuilder extends CSharp6BaseListener {
         if (ctx.getStop() != null)
             end = ctx.getStop().getLine();
         final String fullName = types.peek().getQIdentifier() + "#" + op;
-        final MethodNode ent = MethodNode.builder(fullName, op).range(start, end).create();
+        final MethodNode ent = addMethod(types.peek(), fullName, op, start, end, false);
 
         methods.push(ent);
-        types.peek().addMethod(ent);
 
         addLoCMetric(ctx, ent);
         super.enterOperator_declaration(ctx);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void exitOperator_declaration(final Operator_declarationContext ctx)
+    {
+        super.exitOperator_declaration(ctx);
+        if (!methods.isEmpty())
+            methods.pop();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -935,16 +1218,26 @@ public class CSharpCodeTreeBuilder extends CSharp6BaseListener {
         if (ctx.getStop() != null)
             end = ctx.getStop().getLine();
         final String fullName = types.peek().getQIdentifier() + "#" + op;
-        final MethodNode ent = MethodNode.builder(fullName, op).range(start, end).create();
+        final MethodNode ent = addMethod(types.peek(), fullName, op, start, end, false);
 
         methods.push(ent);
-        types.peek().addMethod(ent);
 
         addLoCMetric(ctx, ent);
 
         super.enterOperator_declaration2(ctx);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void exitOperator_declaration2(final Operator_declaration2Context ctx)
+    {
+        super.exitOperator_declaration2(ctx);
+        if (!methods.isEmpty())
+            methods.pop();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -991,8 +1284,9 @@ public class CSharpCodeTreeBuilder extends CSharp6BaseListener {
     @Override
     public void exitMethod_declaration(Method_declarationContext ctx)
     {
-        // TODO Auto-generated method stub
         super.exitMethod_declaration(ctx);
+        if (!methods.isEmpty())
+            methods.pop();
     }
 
     /**
@@ -1001,17 +1295,7 @@ public class CSharpCodeTreeBuilder extends CSharp6BaseListener {
     @Override
     public void exitConstructor_declaration(Constructor_declarationContext ctx)
     {
-        // TODO Auto-generated method stub
         super.exitConstructor_declaration(ctx);
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public void exitConstructor_body(Constructor_bodyContext ctx)
-    {
-        super.exitConstructor_body(ctx);
         if (!methods.isEmpty())
             methods.pop();
     }
@@ -1032,16 +1316,7 @@ public class CSharpCodeTreeBuilder extends CSharp6BaseListener {
     @Override
     public void exitDestructor_declaration(Destructor_declarationContext ctx)
     {
-        // TODO Auto-generated method stub
         super.exitDestructor_declaration(ctx);
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    public void exitDestructor_body(Destructor_bodyContext ctx)
-    {
-        super.exitDestructor_body(ctx);
         if (!methods.isEmpty())
             methods.pop();
     }
@@ -1072,7 +1347,7 @@ public class CSharpCodeTreeBuilder extends CSharp6BaseListener {
         TypeNode type = types.peek();
         if (name != null)
         {
-            type.addField(FieldNode.builder(name, type.getQIdentifier() + "#" + name).range(start, end).create());
+            addField(type, name, start, end);
         }
         super.enterInterface_property_declaration(ctx);
     }
@@ -1113,8 +1388,9 @@ public class CSharpCodeTreeBuilder extends CSharp6BaseListener {
     @Override
     public void exitConstructor_declaration2(Constructor_declaration2Context ctx)
     {
-        // TODO Auto-generated method stub
         super.exitConstructor_declaration2(ctx);
+        if (!methods.isEmpty())
+            methods.pop();
     }
 
     /**
@@ -1123,8 +1399,9 @@ public class CSharpCodeTreeBuilder extends CSharp6BaseListener {
     @Override
     public void exitMethod_declaration2(Method_declaration2Context ctx)
     {
-        // TODO Auto-generated method stub
         super.exitMethod_declaration2(ctx);
+        if (!methods.isEmpty())
+            methods.pop();
     }
 
     /**
@@ -1153,7 +1430,7 @@ public class CSharpCodeTreeBuilder extends CSharp6BaseListener {
         TypeNode type = types.peek();
         if (name != null)
         {
-            type.addField(FieldNode.builder(name, type.getQIdentifier() + "#" + name).range(start, end).create());
+            addField(type, name, start, end);
         }
         super.enterInterface_property_declaration2(ctx);
     }
@@ -1184,7 +1461,7 @@ public class CSharpCodeTreeBuilder extends CSharp6BaseListener {
         TypeNode type = types.peek();
         if (name != null)
         {
-            type.addField(FieldNode.builder(name, type.getQIdentifier() + "#" + name).range(start, end).create());
+            addField(type, name, start, end);
         }
 
         super.enterProperty_declaration(ctx);
@@ -1209,8 +1486,7 @@ public class CSharpCodeTreeBuilder extends CSharp6BaseListener {
         if (end < start)
             end = start;
 
-        final MethodNode ent = MethodNode.builder(fullName, name).range(start, end).create();
-        types.peek().addMethod(ent);
+        final MethodNode ent = addMethod(types.peek(), fullName, name, start, end, false);
         methods.push(ent);
 
         addLoCMetric(ctx, ent);
@@ -1256,8 +1532,7 @@ public class CSharpCodeTreeBuilder extends CSharp6BaseListener {
         if (end < start)
             end = start;
 
-        final MethodNode ent = MethodNode.builder(fullName, name).range(start, end).constructor().create();
-        types.peek().addMethod(ent);
+        final MethodNode ent = addMethod(types.peek(), fullName, name, start, end, true);
         methods.push(ent);
 
         addLoCMetric(ctx, ent);
@@ -1282,8 +1557,7 @@ public class CSharpCodeTreeBuilder extends CSharp6BaseListener {
         if (end < start)
             end = start;
 
-        final MethodNode ent = MethodNode.builder(fullName, name).range(start, end).create();
-        types.peek().addMethod(ent);
+        final MethodNode ent = addMethod(types.peek(), fullName, name, start, end, false);
 
         addLoCMetric(ctx, ent);
         super.enterInterface_method_declaration(ctx);
@@ -1309,8 +1583,7 @@ public class CSharpCodeTreeBuilder extends CSharp6BaseListener {
         if (end < start)
             end = start;
 
-        final MethodNode ent = MethodNode.builder(fullName, name).range(start, end).create();
-        types.peek().addMethod(ent);
+        final MethodNode ent = addMethod(types.peek(), fullName, name, start, end, false);
 
         addLoCMetric(ctx, ent);
         super.enterInterface_event_declaration(ctx);
@@ -1379,7 +1652,7 @@ public class CSharpCodeTreeBuilder extends CSharp6BaseListener {
         TypeNode type = types.peek();
         if (name != null)
         {
-            type.addField(FieldNode.builder(name, type.getQIdentifier() + "#" + name).range(start, end).create());
+            addField(type, name, start, end);
         }
 
         super.enterProperty_declaration2(ctx);
@@ -1420,15 +1693,25 @@ public class CSharpCodeTreeBuilder extends CSharp6BaseListener {
             end = ctx.getStop().getLine();
 
         final String fullName = namespaces.isEmpty() ? name : namespaces.peek() + "." + name;
-        final TypeNode ent = TypeNode.builder(fullName, name).range(start, end).create();
+        final TypeNode ent = addType(fullName, name, start, end, false);
         types.push(ent);
-        file.addType(ent);
 
         addLoCMetric(ctx, ent);
 
         super.enterStruct_definition(ctx);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void exitStruct_definition(final Struct_definitionContext ctx)
+    {
+        super.exitStruct_definition(ctx);
+        if (!types.isEmpty())
+            types.pop();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -1519,17 +1802,6 @@ public class CSharpCodeTreeBuilder extends CSharp6BaseListener {
         super.enterYield_statement(ctx);
     }
 
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public void exitClass_body(final Class_bodyContext ctx)
-    {
-        super.exitClass_body(ctx);
-        if (!types.isEmpty())
-            types.pop();
-    }
-
     /**
      * {@inheritDoc}
      */
@@ -1540,72 +1812,6 @@ public class CSharpCodeTreeBuilder extends CSharp6BaseListener {
         super.exitDelegate_type(ctx);
     }
 
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public void exitEnum_body(final Enum_bodyContext ctx)
-    {
-        super.exitEnum_body(ctx);
-        if (!types.isEmpty())
-            types.pop();
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public void exitInterface_body(final Interface_bodyContext ctx)
-    {
-        super.exitInterface_body(ctx);
-        if (!types.isEmpty())
-            types.pop();
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public void exitMethod_body(final Method_bodyContext ctx)
-    {
-        super.exitMethod_body(ctx);
-        if (!methods.isEmpty())
-            methods.pop();
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public void exitNamespace_body(final Namespace_bodyContext ctx)
-    {
-        super.exitNamespace_body(ctx);
-        if (!namespaces.isEmpty())
-            namespaces.pop();
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public void exitOperator_body(final Operator_bodyContext ctx)
-    {
-        super.exitOperator_body(ctx);
-        if (!methods.isEmpty())
-            methods.pop();
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public void exitStruct_body(final Struct_bodyContext ctx)
-    {
-        super.exitStruct_body(ctx);
-        if (!types.isEmpty())
-            types.pop();
-    }
-
     /**
      * Extracts a comma-delimited string of method parameters.
      * 
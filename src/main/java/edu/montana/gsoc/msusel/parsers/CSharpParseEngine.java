@@ -0,0 +1,381 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.util.List;
+import java.util.function.Function;
+
+import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.ANTLRErrorStrategy;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+import com.google.common.collect.Lists;
+
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser;
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Compilation_unitContext;
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Method_bodyContext;
+
+/**
+ * Parses compilation units using the two-stage strategy recommended for ANTLR
+ * 4 grammars. Each file is first parsed using SLL prediction with an error
+ * strategy that bails out on the first syntax error. Only when that fails is
+ * the file re-parsed using full LL prediction and normal error recovery. As
+ * SLL is considerably cheaper and nearly always sufficient for valid input,
+ * most files never pay for full LL prediction. How the second stage handles
+ * syntax errors is set by an {@link ErrorPolicy}.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class CSharpParseEngine {
+
+    /**
+     * How syntax errors are handled in the second stage
+     */
+    private final ErrorPolicy policy;
+
+    /**
+     * Constructs a new CSharpParseEngine which reports and recovers from
+     * every syntax error
+     */
+    public CSharpParseEngine()
+    {
+        this(ErrorPolicy.builder().create());
+    }
+
+    /**
+     * Constructs a new CSharpParseEngine
+     * 
+     * @param policy
+     *            How syntax errors are handled once SLL prediction has failed
+     */
+    public CSharpParseEngine(final ErrorPolicy policy)
+    {
+        this.policy = policy;
+    }
+
+    /**
+     * @return How syntax errors are handled once SLL prediction has failed
+     */
+    public ErrorPolicy getPolicy()
+    {
+        return policy;
+    }
+
+    /**
+     * Parses the compilation unit available from the provided parser's token
+     * stream. The token stream must support seeking back to its start (as all
+     * buffered token streams do) so that it can be re-parsed in the second
+     * stage.
+     * 
+     * @param parser
+     *            Parser attached to the token stream of the file to parse
+     * @return The resulting parse tree along with the stage which produced it
+     */
+    public CSharpParseResult parse(final CSharp6Parser parser)
+    {
+        final Attempt<Compilation_unitContext> attempt = parse(parser, CSharp6Parser::compilation_unit);
+        return new CSharpParseResult(attempt.tree, attempt.stage, attempt.syntaxErrors);
+    }
+
+    /**
+     * Parses a single method body (a block or a semicolon) available from the
+     * provided parser's token stream, using the same two stages as
+     * {@link #parse(CSharp6Parser)}.
+     * 
+     * @param parser
+     *            Parser attached to the token stream of the body
+     * @return The resulting parse tree
+     */
+    public Method_bodyContext parseMethodBody(final CSharp6Parser parser)
+    {
+        return parse(parser, CSharp6Parser::method_body).tree;
+    }
+
+    /**
+     * Parses the given rule first using SLL prediction, then using LL
+     * prediction if SLL fails. A {@link ParseCancellationException} is thrown
+     * if the policy gives up on the input.
+     * 
+     * @param parser
+     *            Parser to use
+     * @param rule
+     *            Rule to invoke on the parser
+     * @return The tree along with the stage which produced it
+     */
+    private <T extends ParserRuleContext> Attempt<T> parse(final CSharp6Parser parser,
+            final Function<CSharp6Parser, T> rule)
+    {
+        final ANTLRErrorStrategy handler = parser.getErrorHandler();
+        final List<ANTLRErrorListener> listeners = Lists.newArrayList(parser.getErrorListeners());
+
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+        parser.setErrorHandler(new BailErrorStrategy());
+        parser.removeErrorListeners();
+        try
+        {
+            return new Attempt<>(rule.apply(parser), ParseStage.SLL, 0);
+        }
+        catch (final ParseCancellationException ex)
+        {
+            parser.reset();
+            parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+            if (policy.isReportErrors())
+            {
+                restoreListeners(parser, listeners);
+            }
+            if (policy.isBailOut())
+            {
+                parser.setErrorHandler(new BailErrorStrategy());
+                try
+                {
+                    return new Attempt<>(rule.apply(parser), ParseStage.LL, 0);
+                }
+                catch (final ParseCancellationException e)
+                {
+                    throw new ParseCancellationException(CSharpParseEngine.describe(e), e.getCause());
+                }
+            }
+
+            final ANTLRErrorStrategy recovery;
+            if (policy.isResyncAtMembers())
+            {
+                recovery = new MemberResyncErrorStrategy();
+            }
+            else
+            {
+                recovery = handler instanceof BailErrorStrategy ? new DefaultErrorStrategy() : handler;
+            }
+            parser.setErrorHandler(
+                    policy.getMaxErrors() > 0 ? new ErrorLimit(recovery, policy.getMaxErrors()) : recovery);
+
+            final T tree = rule.apply(parser);
+            return new Attempt<>(tree, ParseStage.LL, parser.getNumberOfSyntaxErrors());
+        }
+        finally
+        {
+            restoreListeners(parser, listeners);
+            parser.setErrorHandler(handler);
+        }
+    }
+
+    /**
+     * @param e
+     *            Exception thrown by a {@link BailErrorStrategy}
+     * @return Description of the syntax error which caused it
+     */
+    private static String describe(final ParseCancellationException e)
+    {
+        if (e.getCause() instanceof RecognitionException)
+        {
+            final Token token = ((RecognitionException) e.getCause()).getOffendingToken();
+            if (token != null)
+            {
+                return "Syntax error at " + token.getLine() + ":" + token.getCharPositionInLine();
+            }
+        }
+        return "Syntax error";
+    }
+
+    /**
+     * Replaces the error listeners currently attached to the parser with the
+     * provided listeners.
+     * 
+     * @param parser
+     *            Parser whose listeners are to be restored
+     * @param listeners
+     *            Listeners to attach
+     */
+    private void restoreListeners(final CSharp6Parser parser, final List<ANTLRErrorListener> listeners)
+    {
+        parser.removeErrorListeners();
+        for (final ANTLRErrorListener listener : listeners)
+        {
+            parser.addErrorListener(listener);
+        }
+    }
+
+    /**
+     * Error strategy which recovers as another strategy does, but gives up on
+     * the input once a number of syntax errors have been reported
+     *
+     * @author Isaac Griffith
+     */
+    private static class ErrorLimit implements ANTLRErrorStrategy {
+
+        /**
+         * Strategy performing the recovery
+         */
+        private final ANTLRErrorStrategy recovery;
+        /**
+         * Number of syntax errors at which to give up
+         */
+        private final int                maxErrors;
+
+        /**
+         * Constructs a new ErrorLimit
+         * 
+         * @param recovery
+         *            Strategy performing the recovery
+         * @param maxErrors
+         *            Number of syntax errors at which to give up
+         */
+        private ErrorLimit(final ANTLRErrorStrategy recovery, final int maxErrors)
+        {
+            this.recovery = recovery;
+            this.maxErrors = maxErrors;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void reset(final Parser recognizer)
+        {
+            recovery.reset(recognizer);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Token recoverInline(final Parser recognizer)
+        {
+            final Token token = recovery.recoverInline(recognizer);
+            check(recognizer);
+            return token;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void recover(final Parser recognizer, final RecognitionException e)
+        {
+            recovery.recover(recognizer, e);
+            check(recognizer);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void sync(final Parser recognizer)
+        {
+            recovery.sync(recognizer);
+            check(recognizer);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean inErrorRecoveryMode(final Parser recognizer)
+        {
+            return recovery.inErrorRecoveryMode(recognizer);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void reportMatch(final Parser recognizer)
+        {
+            recovery.reportMatch(recognizer);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void reportError(final Parser recognizer, final RecognitionException e)
+        {
+            recovery.reportError(recognizer, e);
+            check(recognizer);
+        }
+
+        /**
+         * Gives up on the input if the limit has been reached.
+         * 
+         * @param recognizer
+         *            Parser reporting the errors
+         */
+        private void check(final Parser recognizer)
+        {
+            if (recognizer.getNumberOfSyntaxErrors() >= maxErrors)
+            {
+                throw new ParseCancellationException("Gave up after " + maxErrors + " syntax errors");
+            }
+        }
+    }
+
+    /**
+     * The tree produced by one invocation of the two stage parse
+     *
+     * @author Isaac Griffith
+     * @param <T>
+     *            Type of the tree
+     */
+    private static class Attempt<T extends ParserRuleContext> {
+
+        /**
+         * Root of the parse tree
+         */
+        private final T          tree;
+        /**
+         * Stage which produced the tree
+         */
+        private final ParseStage stage;
+        /**
+         * Number of syntax errors reported by the final stage
+         */
+        private final int        syntaxErrors;
+
+        /**
+         * Constructs a new Attempt
+         * 
+         * @param tree
+         *            Root of the parse tree
+         * @param stage
+         *            Stage which produced the tree
+         * @param syntaxErrors
+         *            Number of syntax errors reported by the final stage
+         */
+        private Attempt(final T tree, final ParseStage stage, final int syntaxErrors)
+        {
+            this.tree = tree;
+            this.stage = stage;
+            this.syntaxErrors = syntaxErrors;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Compilation_unitContext;
+
+/**
+ * The outcome of parsing a single file with the {@link CSharpParseEngine}.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class CSharpParseResult {
+
+    /**
+     * Root of the parse tree
+     */
+    private final Compilation_unitContext tree;
+    /**
+     * Stage which produced the parse tree
+     */
+    private final ParseStage              stage;
+    /**
+     * Number of syntax errors reported while producing the tree
+     */
+    private final int                     syntaxErrors;
+
+    /**
+     * Constructs a new CSharpParseResult
+     * 
+     * @param tree
+     *            Root of the parse tree
+     * @param stage
+     *            Stage which produced the tree
+     * @param syntaxErrors
+     *            Number of syntax errors reported by the final stage
+     */
+    public CSharpParseResult(final Compilation_unitContext tree, final ParseStage stage, final int syntaxErrors)
+    {
+        this.tree = tree;
+        this.stage = stage;
+        this.syntaxErrors = syntaxErrors;
+    }
+
+    /**
+     * @return The root of the parse tree
+     */
+    public Compilation_unitContext getTree()
+    {
+        return tree;
+    }
+
+    /**
+     * @return The stage which produced the parse tree
+     */
+    public ParseStage getStage()
+    {
+        return stage;
+    }
+
+    /**
+     * @return The number of syntax errors reported while producing the tree
+     */
+    public int getSyntaxErrors()
+    {
+        return syntaxErrors;
+    }
+}
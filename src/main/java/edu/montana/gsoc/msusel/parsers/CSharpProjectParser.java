@@ -0,0 +1,1865 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import edu.montana.gsoc.msusel.CodeTree;
+import edu.montana.gsoc.msusel.node.FileNode;
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser;
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6PreProcessor;
+
+/**
+ * Parses a collection of C# source files in parallel and assembles the results
+ * into a single CodeTree. Instances are immutable and may be shared, each call
+ * to parse uses its own worker pool.
+ * 
+ * <pre>
+ * final ProjectParseResult result = CSharpProjectParser.builder().parallelism(8).create().parse(root);
+ * final CodeTree tree = result.getTree();
+ * </pre>
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class CSharpProjectParser {
+
+    /**
+     * Logger to log the process of the parser
+     */
+    private static final Logger                LOG = LoggerFactory.getLogger(CSharpProjectParser.class);
+    /**
+     * Number of worker threads used to parse files
+     */
+    private final int                          parallelism;
+    /**
+     * Loader used to read and tokenize each file
+     */
+    private final CSharpSourceLoader           loader;
+    /**
+     * Whether member bodies are skipped
+     */
+    private final boolean                      outline;
+    /**
+     * Whether the statements of method bodies are produced on demand
+     */
+    private final boolean                      lazyBodies;
+    /**
+     * Whether the CodeTree is built while parsing
+     */
+    private final boolean                      streaming;
+    /**
+     * Whether tokens are stored in primitive arrays
+     */
+    private final boolean                      compactTokens;
+    /**
+     * Cache of previously parsed files, null if disabled
+     */
+    private final ParseCache                   cache;
+    /**
+     * File holding the DFA snapshot, null if disabled
+     */
+    private final Path                         snapshotFile;
+    /**
+     * Whether the DFA snapshot has been replayed
+     */
+    private final AtomicBoolean                warmed = new AtomicBoolean();
+    /**
+     * Prediction cache used by the parsers, null to use the parser's static
+     * cache
+     */
+    private final ParserDfaCache               dfaCache;
+    /**
+     * Prediction caches each confined to a subset of the worker threads,
+     * null if not sharded
+     */
+    private final ParserDfaCache[]             dfaShards;
+    /**
+     * Number of worker threads assigned to a shard so far
+     */
+    private final AtomicInteger                nextShard = new AtomicInteger();
+    /**
+     * Shard of the current worker thread
+     */
+    private final ThreadLocal<ParserDfaCache>  shard;
+    /**
+     * Lexer, parser and builder of the current worker thread
+     */
+    private final ThreadLocal<ParserWorkspace> workspace = ThreadLocal.withInitial(ParserWorkspace::new);
+    /**
+     * Two stage parse strategy, shared by all workers
+     */
+    private final CSharpParseEngine            engine;
+    /**
+     * Parse strategy which bails out at the first error, used for
+     * quarantined files
+     */
+    private final CSharpParseEngine            bailEngine;
+    /**
+     * Record of the files which failed in earlier runs, null if disabled
+     */
+    private final ParseQuarantine              quarantine;
+    /**
+     * Time in nanoseconds each file may take to lex and parse, zero for no
+     * limit
+     */
+    private final long                         fileTimeout;
+    /**
+     * Estimator of the cost of each file, used to schedule the largest files
+     * first
+     */
+    private final ParseCostEstimator           estimator;
+    /**
+     * Whether reading, parsing and building run as separate stages
+     */
+    private final boolean                      pipelined;
+    /**
+     * Number of threads reading files when pipelined
+     */
+    private final int                          ioThreads;
+    /**
+     * Whether files are read on virtual threads when available
+     */
+    private final boolean                      virtualThreads;
+    /**
+     * Crawler finding the files of a project
+     */
+    private final SourceCrawler                crawler;
+    /**
+     * Conditional compilation symbols defined in each file, null if
+     * directives are not evaluated
+     */
+    private final Set<String>                  symbols;
+
+    /**
+     * Constructs a new CSharpProjectParser from the provided builder
+     * 
+     * @param builder
+     *            Builder holding the configuration
+     */
+    private CSharpProjectParser(final Builder builder)
+    {
+        parallelism = builder.parallelism;
+        loader = new CSharpSourceLoader(builder.charset, builder.mapThreshold);
+        outline = builder.outline || builder.lazyBodies;
+        lazyBodies = builder.lazyBodies;
+        streaming = builder.streaming;
+        compactTokens = builder.compactTokens;
+        snapshotFile = builder.snapshotFile;
+        dfaCache = builder.dfaCache;
+        pipelined = builder.pipelined || builder.virtualThreads;
+        virtualThreads = builder.virtualThreads;
+        crawler = builder.crawler == null ? SourceCrawler.builder().create() : builder.crawler;
+        symbols = builder.symbols == null ? null : ImmutableSortedSet.copyOf(builder.symbols);
+        engine = new CSharpParseEngine(builder.errorPolicy);
+        bailEngine = new CSharpParseEngine(ErrorPolicy.builder().bailOut(true).reportErrors(false).create());
+        quarantine = builder.quarantineFile == null ? null : new ParseQuarantine(builder.quarantineFile);
+        fileTimeout = builder.fileTimeout;
+        if (builder.ioThreads > 0)
+        {
+            ioThreads = builder.ioThreads;
+        }
+        else
+        {
+            ioThreads = virtualThreads ? 256 : 4;
+        }
+        cache = builder.cacheDirectory == null || lazyBodies ? null
+                : new ParseCache(builder.cacheDirectory, cacheMode());
+        estimator = builder.estimator == null ? new ParseCostEstimator() : builder.estimator;
+        if (builder.dfaShards > 0)
+        {
+            dfaShards = new ParserDfaCache[builder.dfaShards];
+            for (int i = 0; i < dfaShards.length; i++)
+            {
+                dfaShards[i] = new ParserDfaCache();
+            }
+            shard = ThreadLocal.withInitial(
+                    () -> dfaShards[Math.floorMod(nextShard.getAndIncrement(), dfaShards.length)]);
+        }
+        else
+        {
+            dfaShards = null;
+            shard = null;
+        }
+    }
+
+    /**
+     * @return Name of the parse mode whose results are cached, distinguishing
+     *         outlines, the recovery from errors, and each set of defined
+     *         symbols
+     */
+    private String cacheMode()
+    {
+        final String mode = (outline ? "outline" : "full")
+                + (engine.getPolicy().isResyncAtMembers() ? "" : "-defaultrecovery");
+        if (symbols == null)
+        {
+            return mode;
+        }
+        return mode + "-" + (symbols.isEmpty() ? "none" : String.join("+", symbols));
+    }
+
+    /**
+     * @return A new builder used to configure a CSharpProjectParser
+     */
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    /**
+     * @return The number of worker threads used to parse files
+     */
+    public int getParallelism()
+    {
+        return parallelism;
+    }
+
+    /**
+     * @return The prediction cache shards, in the order in which worker
+     *         threads are assigned to them, or an empty list if prediction is
+     *         not sharded
+     */
+    public List<ParserDfaCache> getDfaShards()
+    {
+        return dfaShards == null ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(dfaShards));
+    }
+
+    /**
+     * Parses all C# source files found under the given root directory by the
+     * configured {@link SourceCrawler}. The grammar is loaded in the
+     * background while the files are found. When pipelined, each file enters
+     * the pipeline as soon as it is found; otherwise all files are found
+     * first so that they can be scheduled largest first.
+     * 
+     * @param root
+     *            Root directory of the project
+     * @return The CodeTree along with the outcome of each file
+     * @throws InterruptedException
+     *             If the calling thread is interrupted while waiting for the
+     *             workers
+     */
+    public ProjectParseResult parse(final Path root) throws InterruptedException
+    {
+        return parseCancellable(root, null);
+    }
+
+    /**
+     * Parses all C# source files found under the given root directory, as
+     * {@link #parse(Path)} does, stopping early if the given token is
+     * cancelled.
+     * 
+     * @param root
+     *            Root directory of the project
+     * @param cancellation
+     *            Token stopping the parse, may be null
+     * @return The CodeTree of the files completed along with the outcome of
+     *         each file found
+     * @throws InterruptedException
+     *             If the calling thread is interrupted while waiting for the
+     *             workers
+     */
+    public ProjectParseResult parseCancellable(final Path root, final CancellationToken cancellation)
+            throws InterruptedException
+    {
+        GrammarWarmup.start();
+        if (!pipelined)
+        {
+            return parseCancellable(crawler.list(root, cancellation), cancellation);
+        }
+        return run(null, root, cancellation);
+    }
+
+    /**
+     * Parses each of the given files and assembles the results into a single
+     * CodeTree. Failures are confined to the file in which they occur and are
+     * reported through the outcomes of the result.
+     * 
+     * @param files
+     *            Files to parse
+     * @return The CodeTree along with the outcome of each file
+     * @throws InterruptedException
+     *             If the calling thread is interrupted while waiting for the
+     *             workers
+     */
+    public ProjectParseResult parse(final List<Path> files) throws InterruptedException
+    {
+        return run(files, null, null);
+    }
+
+    /**
+     * Parses each of the given files, as {@link #parse(List)} does, stopping
+     * early if the given token is cancelled. Files not yet started are then
+     * skipped, files being parsed stop promptly, and both are reported as
+     * {@link FileParseStatus#CANCELLED}.
+     * 
+     * @param files
+     *            Files to parse
+     * @param cancellation
+     *            Token stopping the parse, may be null
+     * @return The CodeTree of the files completed along with the outcome of
+     *         each file
+     * @throws InterruptedException
+     *             If the calling thread is interrupted while waiting for the
+     *             workers
+     */
+    public ProjectParseResult parseCancellable(final List<Path> files, final CancellationToken cancellation)
+            throws InterruptedException
+    {
+        return run(files, null, cancellation);
+    }
+
+    /**
+     * Parses all C# source files found under the given root directory once
+     * for each of several build configurations.
+     * 
+     * @param root
+     *            Root directory of the project
+     * @param configurations
+     *            Conditional compilation symbols of each configuration, by
+     *            name of the configuration
+     * @return The CodeTree and outcomes of each configuration, by name of the
+     *         configuration
+     * @throws InterruptedException
+     *             If the calling thread is interrupted while waiting for the
+     *             workers
+     * @see #parse(List, Map)
+     */
+    public Map<String, ProjectParseResult> parse(final Path root, final Map<String, Set<String>> configurations)
+            throws InterruptedException
+    {
+        GrammarWarmup.start();
+        return parse(crawler.list(root), configurations);
+    }
+
+    /**
+     * Parses each of the given files once for each of several build
+     * configurations, which differ only in their conditional compilation
+     * symbols, producing a CodeTree per configuration. Each file is read once.
+     * A file without #if directives is parsed once and its nodes are rebuilt
+     * for the other configurations from the journal of that parse. A file
+     * with #if directives is lexed in each configuration, and configurations
+     * which select the same sections of the file share a single parse of the
+     * tokens of the first of them. The symbols given to the builder, the parse
+     * cache, the quarantine and the DFA snapshot are not used, and with lazy
+     * bodies every configuration is parsed on its own so that each has its
+     * own deferred bodies.
+     * 
+     * @param files
+     *            Files to parse
+     * @param configurations
+     *            Conditional compilation symbols of each configuration, by
+     *            name of the configuration
+     * @return The CodeTree and outcomes of each configuration, by name of the
+     *         configuration, in the order of the given configurations
+     * @throws InterruptedException
+     *             If the calling thread is interrupted while waiting for the
+     *             workers
+     */
+    public Map<String, ProjectParseResult> parse(final List<Path> files,
+            final Map<String, Set<String>> configurations) throws InterruptedException
+    {
+        final long start = System.nanoTime();
+        final List<String> names = Lists.newArrayList(configurations.keySet());
+        final List<Set<String>> symbolSets = Lists.newArrayList();
+        final FileNodeSink[] sinks = new FileNodeSink[names.size()];
+        for (int i = 0; i < sinks.length; i++)
+        {
+            symbolSets.add(ImmutableSortedSet.copyOf(configurations.get(names.get(i))));
+            sinks[i] = new FileNodeSink(false);
+        }
+        final LazyMethodBodies bodies = lazyBodies ? new LazyMethodBodies(dfaCache, engine, fileTimeout, null) : null;
+        warm();
+
+        runTasks(files, index -> {
+            final ParsedFile[] parsed = parseConfigurations(files.get(index), symbolSets, bodies);
+            for (int i = 0; i < sinks.length; i++)
+            {
+                sinks[i].add(index, parsed[i].node, parsed[i].outcome);
+            }
+        }, sinks);
+
+        final long wall = System.nanoTime() - start;
+        final long[] costs = new long[files.size()];
+        final boolean[] measured = new boolean[files.size()];
+        final Map<String, ProjectParseResult> results = Maps.newLinkedHashMap();
+        for (int i = 0; i < sinks.length; i++)
+        {
+            final CodeTree tree = new CodeTree();
+            final List<FileParseOutcome> outcomes = Lists.newArrayList();
+            final PhaseTimings timings = new PhaseTimings();
+            sinks[i].mergeInto(tree, outcomes);
+            for (int j = 0; j < outcomes.size(); j++)
+            {
+                timings.add(outcomes.get(j).getTimings());
+                if (outcomes.get(j).getStatus() == FileParseStatus.PARSED)
+                {
+                    costs[j] += outcomes.get(j).getTimings().getTotalNanos();
+                    measured[j] = true;
+                }
+            }
+            results.put(names.get(i), new ProjectParseResult(tree, outcomes, timings, wall, bodies));
+        }
+        for (int j = 0; j < costs.length; j++)
+        {
+            if (measured[j])
+            {
+                estimator.record(files.get(j), costs[j]);
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Parses either the given files or the files found under the given root,
+     * and assembles the results into a single CodeTree.
+     * 
+     * @param files
+     *            Files to parse, null to parse the files found under the root
+     * @param root
+     *            Root directory to search, used only when files is null
+     * @param cancellation
+     *            Token stopping the parse, may be null
+     * @return The CodeTree along with the outcome of each file
+     * @throws InterruptedException
+     *             If the calling thread is interrupted while waiting for the
+     *             workers
+     */
+    private ProjectParseResult run(final List<Path> files, final Path root, final CancellationToken cancellation)
+            throws InterruptedException
+    {
+        final long start = System.nanoTime();
+        final CodeTree tree = new CodeTree();
+        final List<FileParseOutcome> outcomes = Lists.newArrayList();
+        final PhaseTimings timings = new PhaseTimings();
+        final LazyMethodBodies bodies = lazyBodies
+                ? new LazyMethodBodies(dfaCache, engine, fileTimeout, cancellation) : null;
+        final DfaSnapshot snapshot = snapshotFile == null || outline ? null : new DfaSnapshot();
+        warm();
+
+        final FileNodeSink sink = new FileNodeSink(files == null);
+        if (files == null)
+        {
+            final AtomicInteger found = new AtomicInteger();
+            runPipeline(submit -> crawler.crawl(root, file -> submit.submit(found.getAndIncrement(), file),
+                    cancellation), bodies, snapshot, cancellation, sink);
+        }
+        else if (pipelined)
+        {
+            runPipeline(submit -> {
+                for (final int[] task : estimator.schedule(files, parallelism))
+                {
+                    for (final int index : task)
+                    {
+                        submit.submit(index, files.get(index));
+                    }
+                }
+            }, bodies, snapshot, cancellation, sink);
+        }
+        else
+        {
+            runTasks(files, index -> {
+                final ParsedFile parsed = parseFile(files.get(index), bodies, snapshot, cancellation);
+                sink.add(index, parsed.node, parsed.outcome);
+            }, sink);
+        }
+
+        sink.mergeInto(tree, outcomes);
+        for (final FileParseOutcome outcome : outcomes)
+        {
+            timings.add(outcome.getTimings());
+            // files served from the cache, or cut short, say nothing of what
+            // a parse of them costs
+            if (outcome.getStatus() == FileParseStatus.PARSED)
+            {
+                estimator.record(outcome.getFile(), outcome.getTimings().getTotalNanos());
+            }
+        }
+
+        if (quarantine != null)
+        {
+            quarantine.save();
+        }
+        if (snapshot != null && snapshot.getSampleCount() > 0)
+        {
+            try
+            {
+                snapshot.save(snapshotFile);
+            }
+            catch (final IOException e)
+            {
+                CSharpProjectParser.LOG.warn("Unable to save DFA snapshot " + snapshotFile + ": " + e.getMessage(), e);
+            }
+        }
+
+        return new ProjectParseResult(tree, outcomes, timings, System.nanoTime() - start, bodies,
+                cancellation != null && cancellation.isCancelled());
+    }
+
+    /**
+     * Replays the DFA snapshot, if one is configured and exists, the first
+     * time this parser is used.
+     */
+    private void warm()
+    {
+        if (snapshotFile == null || !warmed.compareAndSet(false, true))
+        {
+            return;
+        }
+
+        try
+        {
+            final long start = System.nanoTime();
+            final DfaSnapshot snapshot = DfaSnapshot.load(snapshotFile);
+            if (snapshot != null)
+            {
+                final ParserDfaCache[] targets = dfaShards == null ? new ParserDfaCache[] { dfaCache } : dfaShards;
+                int replayed = 0;
+                for (final ParserDfaCache target : targets)
+                {
+                    replayed += snapshot.replay(target);
+                }
+                CSharpProjectParser.LOG.info("Replayed " + replayed + " files from DFA snapshot into " + targets.length
+                        + (targets.length == 1 ? " prediction cache in " : " prediction caches in ")
+                        + (System.nanoTime() - start) / 1_000_000 + " ms");
+            }
+        }
+        catch (final IOException e)
+        {
+            CSharpProjectParser.LOG.warn("Unable to load DFA snapshot " + snapshotFile + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Parses the given files on a single pool in which each task reads,
+     * parses and builds its files, largest first.
+     * 
+     * @param files
+     *            Files to parse
+     * @param work
+     *            Work parsing the file at an index and adding it to the sinks
+     * @param sinks
+     *            Sinks receiving each file, used to record the failure of a
+     *            task
+     * @throws InterruptedException
+     *             If the calling thread is interrupted while waiting for the
+     *             workers
+     */
+    private void runTasks(final List<Path> files, final FileWork work, final FileNodeSink... sinks)
+            throws InterruptedException
+    {
+        final ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try
+        {
+            final List<int[]> tasks = estimator.schedule(files, parallelism);
+            final List<Future<?>> futures = Lists.newArrayList();
+            for (final int[] task : tasks)
+            {
+                futures.add(executor.submit(() -> {
+                    for (final int index : task)
+                    {
+                        work.parse(index);
+                    }
+                }));
+            }
+
+            for (int i = 0; i < futures.size(); i++)
+            {
+                try
+                {
+                    futures.get(i).get();
+                }
+                catch (final ExecutionException e)
+                {
+                    for (final int index : tasks.get(i))
+                    {
+                        for (final FileNodeSink sink : sinks)
+                        {
+                            sink.addFallback(index,
+                                    FileParseOutcome.failed(files.get(index), e.getCause(), new PhaseTimings()));
+                        }
+                    }
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Parses files in a pipeline of three stages connected by bounded queues:
+     * reading on its own threads, lexing and parsing on one thread per core,
+     * and building the FileNodes from the parse trees. Each stage works on
+     * later files while the next stage works on earlier ones, so waiting on
+     * storage overlaps with parsing. Files enter the pipeline as the feed
+     * submits them, and submitting blocks while the reading stage is full.
+     * 
+     * @param feed
+     *            Feed submitting the files to parse
+     * @param bodies
+     *            Registry of deferred method bodies, null if not deferred
+     * @param snapshot
+     *            Sample for the DFA snapshot, null if disabled
+     * @param cancellation
+     *            Token stopping the parse, may be null
+     * @param sink
+     *            Sink receiving each file
+     * @throws InterruptedException
+     *             If the calling thread is interrupted while waiting for the
+     *             stages
+     */
+    private void runPipeline(final Feed feed, final LazyMethodBodies bodies, final DfaSnapshot snapshot,
+            final CancellationToken cancellation, final FileNodeSink sink) throws InterruptedException
+    {
+        final int capacity = parallelism * 2;
+        final ThreadFactory virtual = virtualThreads ? VirtualThreads.factory("csharp-read") : null;
+        final PipelineStage reading = virtual == null ? new PipelineStage("read", ioThreads, capacity)
+                : new PipelineStage(ioThreads, capacity, virtual);
+        final PipelineStage parsing = new PipelineStage("parse", parallelism, capacity);
+        final PipelineStage building = new PipelineStage("build", Math.max(1, parallelism / 2), capacity);
+        final Phaser remaining = new Phaser(1);
+        try
+        {
+            feed.feed((index, file) -> {
+                final FileJob job = new FileJob(file, bodies, snapshot, symbols, cancellation);
+                final Runnable build = () -> advance(job, index, sink, remaining, () -> {
+                    build(job);
+                    return true;
+                });
+                final Runnable parse = () -> advance(job, index, sink, remaining, () -> {
+                    parse(job);
+                    building.execute(build);
+                    return false;
+                });
+
+                remaining.register();
+                try
+                {
+                    reading.execute(() -> advance(job, index, sink, remaining, () -> {
+                        if (!read(job))
+                        {
+                            return true;
+                        }
+                        parsing.execute(parse);
+                        return false;
+                    }));
+                }
+                catch (final RejectedExecutionException e)
+                {
+                    remaining.arriveAndDeregister();
+                    throw e;
+                }
+            });
+            remaining.awaitAdvanceInterruptibly(remaining.arrive());
+        }
+        catch (final RejectedExecutionException e)
+        {
+            throw new InterruptedException("Interrupted while submitting files");
+        }
+        finally
+        {
+            reading.shutdown();
+            parsing.shutdown();
+            building.shutdown();
+        }
+    }
+
+    /**
+     * Runs one step of a job in the pipeline. If the step completes the job,
+     * or fails, the file is added to the sink. Otherwise the step has handed
+     * the job on to the next stage, which may already be running it.
+     * 
+     * @param job
+     *            Job being advanced
+     * @param index
+     *            Position of the job's file among the files submitted
+     * @param sink
+     *            Sink receiving the file
+     * @param remaining
+     *            Phaser with a party for each file not yet complete
+     * @param step
+     *            Step to run
+     */
+    private void advance(final FileJob job, final int index, final FileNodeSink sink, final Phaser remaining,
+            final Step step)
+    {
+        boolean complete;
+        try
+        {
+            complete = step.run();
+        }
+        catch (final Throwable e)
+        {
+            fail(job, e);
+            complete = true;
+        }
+
+        if (complete)
+        {
+            sink.add(index, job.parsed.node, job.parsed.outcome);
+            remaining.arriveAndDeregister();
+        }
+    }
+
+    /**
+     * Reads, lexes, parses and walks a single file, recording the time spent
+     * in each phase.
+     * 
+     * @param file
+     *            File to parse
+     * @param bodies
+     *            Registry of deferred method bodies, null if bodies are parsed
+     *            or skipped
+     * @param snapshot
+     *            Sample of token sequences for the DFA snapshot, null if
+     *            disabled
+     * @param cancellation
+     *            Token stopping the parse, may be null
+     * @return The FileNode built from the file (null on failure) along with the
+     *         outcome
+     */
+    private ParsedFile parseFile(final Path file, final LazyMethodBodies bodies, final DfaSnapshot snapshot,
+            final CancellationToken cancellation)
+    {
+        final FileJob job = new FileJob(file, bodies, snapshot, symbols, cancellation);
+        try
+        {
+            if (read(job))
+            {
+                parse(job);
+                build(job);
+            }
+            return job.parsed;
+        }
+        catch (final IOException | RuntimeException e)
+        {
+            return fail(job, e);
+        }
+    }
+
+    /**
+     * Reads a single file and parses it for each configuration, sharing a
+     * parse between the configurations which select the same sections of the
+     * file.
+     * 
+     * @param file
+     *            File to parse
+     * @param configurations
+     *            Conditional compilation symbols of each configuration
+     * @param bodies
+     *            Registry of deferred method bodies, null if bodies are parsed
+     *            or skipped
+     * @return The FileNode (null on failure) and outcome of the file in each
+     *         configuration
+     */
+    private ParsedFile[] parseConfigurations(final Path file, final List<Set<String>> configurations,
+            final LazyMethodBodies bodies)
+    {
+        final ParsedFile[] parsed = new ParsedFile[configurations.size()];
+        FileJob job = new FileJob(file, bodies, null, configurations.get(0), null);
+        try
+        {
+            long mark = System.nanoTime();
+            final CharStream input = loader.read(file);
+            final long reading = System.nanoTime() - mark;
+            mark = System.nanoTime();
+            final List<TokenStream> lexed = Lists.newArrayList();
+            final List<List<Integer>> groups = group(input, configurations, lexed);
+            final long grouping = System.nanoTime() - mark;
+
+            for (int g = 0; g < groups.size(); g++)
+            {
+                final List<Integer> group = groups.get(g);
+                job = new FileJob(file, bodies, null, configurations.get(group.get(0)), null);
+                if (g == 0)
+                {
+                    job.timings.record(ParsePhase.READ, reading);
+                    job.timings.record(ParsePhase.LEX, grouping);
+                }
+                job.shared = group.size() > 1;
+                job.tokens = lexed.get(g);
+                lexed.set(g, null);
+                if (job.tokens == null)
+                {
+                    input.seek(0);
+                    job.input = input;
+                }
+                parse(job);
+                build(job);
+                parsed[group.get(0)] = job.parsed;
+
+                for (int i = 1; i < group.size(); i++)
+                {
+                    final PhaseTimings timings = new PhaseTimings();
+                    final long replay = System.nanoTime();
+                    final FileNode node = FileNode.builder(file.toString()).create();
+                    job.journal.replay(node);
+                    lap(timings, ParsePhase.WALK, replay);
+                    parsed[group.get(i)] = new ParsedFile(node, FileParseOutcome.parsed(file, job.result, timings));
+                }
+            }
+        }
+        catch (final IOException | RuntimeException e)
+        {
+            final ParsedFile failed = fail(job, e);
+            for (int i = 0; i < parsed.length; i++)
+            {
+                if (parsed[i] == null)
+                {
+                    parsed[i] = failed;
+                }
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * Groups the configurations which produce the same tokens from the given
+     * input. An input without conditional sections produces the same tokens
+     * in every configuration; otherwise the input is lexed in each
+     * configuration and grouped by the values of its conditions, and the
+     * tokens of the first configuration of each group are kept so that the
+     * group is parsed without lexing the input again.
+     * 
+     * @param input
+     *            Decoded contents of a file
+     * @param configurations
+     *            Conditional compilation symbols of each configuration
+     * @param tokens
+     *            List receiving the filled token stream of each group, or
+     *            null for a group whose input is yet to be lexed
+     * @return The indices of the configurations in each group
+     */
+    private List<List<Integer>> group(final CharStream input, final List<Set<String>> configurations,
+            final List<TokenStream> tokens)
+    {
+        final List<List<Integer>> groups = Lists.newArrayList();
+        if (lazyBodies)
+        {
+            for (int i = 0; i < configurations.size(); i++)
+            {
+                groups.add(Lists.newArrayList(i));
+                tokens.add(null);
+            }
+            return groups;
+        }
+        if (!ConditionalPreProcessor.hasConditionals(input))
+        {
+            final List<Integer> all = Lists.newArrayList();
+            for (int i = 0; i < configurations.size(); i++)
+            {
+                all.add(i);
+            }
+            groups.add(all);
+            tokens.add(null);
+            return groups;
+        }
+
+        final Map<String, List<Integer>> byDecisions = Maps.newLinkedHashMap();
+        final Map<String, TokenStream> tokensByDecisions = Maps.newHashMap();
+        final ParserWorkspace reused = workspace.get();
+        for (int i = 0; i < configurations.size(); i++)
+        {
+            input.seek(0);
+            final ConditionalPreProcessor lexer = reused.conditionalLexer(input, configurations.get(i));
+            GuardedPreProcessor.guard(lexer, System.nanoTime(), fileTimeout, null);
+            final TokenStream lexedTokens = tokenize(lexer);
+            final List<Integer> group = byDecisions.computeIfAbsent(lexer.getDecisions(),
+                    decisions -> Lists.newArrayList());
+            if (group.isEmpty())
+            {
+                tokensByDecisions.put(lexer.getDecisions(), lexedTokens);
+            }
+            group.add(i);
+        }
+        for (final Map.Entry<String, List<Integer>> entry : byDecisions.entrySet())
+        {
+            groups.add(entry.getValue());
+            tokens.add(tokensByDecisions.get(entry.getKey()));
+        }
+        return groups;
+    }
+
+    /**
+     * Reads the file of the given job, or rebuilds it from the cache if
+     * possible, completing the job. The file is hashed from its raw bytes, and
+     * is only decoded if it is to be parsed.
+     * 
+     * @param job
+     *            Job to advance
+     * @return true if the file must still be parsed
+     * @throws IOException
+     *             If the file cannot be read
+     */
+    private boolean read(final FileJob job) throws IOException
+    {
+        CSharpProjectParser.checkCancelled(job);
+        final long mark = System.nanoTime();
+        final MessageDigest digest = cache == null && quarantine == null ? null : ParseCache.newDigest();
+        final ByteBuffer bytes = loader.readBytes(job.file, digest);
+        job.hash = digest == null ? null : ParseCache.key(digest);
+        job.key = cache == null ? null : job.hash;
+        final ParseJournal cached = job.key == null ? null : cache.get(job.key);
+        if (cached != null)
+        {
+            final FileNode node = FileNode.builder(job.file.toString()).create();
+            try
+            {
+                cached.replay(node);
+                lap(job.timings, ParsePhase.READ, mark);
+                job.parsed = new ParsedFile(node, FileParseOutcome.cached(job.file, job.timings));
+                return false;
+            }
+            catch (final IOException | RuntimeException e)
+            {
+                // a corrupt entry is a miss, and is replaced once the file is
+                // parsed
+                CSharpProjectParser.LOG.warn("Discarding corrupt cache entry of " + job.file + ": " + e.getMessage());
+                cache.remove(job.key);
+            }
+        }
+
+        if (quarantine != null && quarantine.contains(job.hash))
+        {
+            if (engine.getPolicy().getQuarantineAction() == QuarantineAction.SKIP)
+            {
+                lap(job.timings, ParsePhase.READ, mark);
+                job.parsed = new ParsedFile(null, FileParseOutcome.quarantined(job.file, job.timings));
+                return false;
+            }
+            job.quarantined = true;
+        }
+
+        // only files which are parsed are decoded
+        job.input = loader.decode(bytes, job.file.toString());
+        lap(job.timings, ParsePhase.READ, mark);
+        return true;
+    }
+
+    /**
+     * Lexes and parses the file of the given job, using the lexer and parser
+     * of the current thread. Tokens already lexed for the job are parsed
+     * as they are.
+     * 
+     * @param job
+     *            Job to advance, which must have been read
+     */
+    private void parse(final FileJob job)
+    {
+        CSharpProjectParser.checkCancelled(job);
+        final long started = System.nanoTime();
+        long mark = started;
+        final ParserWorkspace reused = workspace.get();
+        final TokenStream tokens;
+        if (job.tokens != null)
+        {
+            tokens = job.tokens;
+            job.tokens = null;
+        }
+        else
+        {
+            final CSharp6PreProcessor lexer = reused.lexer(job.input, job.symbols);
+            GuardedPreProcessor.guard(lexer, started, fileTimeout, job.cancellation);
+            tokens = tokenize(lexer);
+            job.input = null;
+        }
+        mark = lap(job.timings, ParsePhase.LEX, mark);
+        if (job.snapshot != null)
+        {
+            job.snapshot.sample(tokens);
+        }
+
+        final CSharp6Parser parser = reused.parser(tokens);
+        final ParserDfaCache predictions = shard == null ? dfaCache : shard.get();
+        if (predictions != null)
+        {
+            predictions.install(parser);
+        }
+        if (outline)
+        {
+            OutlineBodySkipper.attach(parser);
+        }
+        job.lines = TokenLineIndex.build(tokens);
+        job.fileBodies = job.bodies == null ? null
+                : job.bodies.forFile((OutlineTokenStream) tokens);
+        job.journal = job.key == null && !job.shared ? null : new ParseJournal();
+        job.listener = streaming
+                ? StreamingCodeTreeBuilder.attach(parser, job.file.toString(), job.lines, job.fileBodies, job.journal)
+                : null;
+        GuardedSimulator.guard(parser, started, fileTimeout, job.cancellation);
+        job.result = (job.quarantined ? bailEngine : engine).parse(parser);
+        lap(job.timings, ParsePhase.PARSE, mark);
+    }
+
+    /**
+     * Builds the FileNode of the given job from its parse tree, using the
+     * tree builder of the current thread, completing the job.
+     * 
+     * @param job
+     *            Job to advance, which must have been parsed
+     */
+    private void build(final FileJob job)
+    {
+        final long mark = System.nanoTime();
+        final FileNode node;
+        if (job.listener != null)
+        {
+            node = job.listener.getFile();
+        }
+        else
+        {
+            node = FileNode.builder(job.file.toString()).create();
+            final CSharpCodeTreeBuilder builder = workspace.get().builder(node, job.lines, job.fileBodies);
+            builder.setJournal(job.journal);
+            ParseTreeWalker.DEFAULT.walk(builder, job.result.getTree());
+        }
+        lap(job.timings, ParsePhase.WALK, mark);
+
+        if (job.key != null)
+        {
+            cache.put(job.key, job.journal);
+        }
+        if (job.quarantined)
+        {
+            quarantine.remove(job.hash);
+        }
+
+        job.parsed = new ParsedFile(node, FileParseOutcome.parsed(job.file, job.result, job.timings));
+    }
+
+    /**
+     * Completes the given job as failed.
+     * 
+     * @param job
+     *            Job which failed
+     * @param error
+     *            Cause of the failure
+     * @return The failed file
+     */
+    private ParsedFile fail(final FileJob job, final Throwable error)
+    {
+        if (error instanceof CancellationException && !(error instanceof ParseCancellationException))
+        {
+            job.parsed = new ParsedFile(null, FileParseOutcome.cancelled(job.file, job.timings));
+            return job.parsed;
+        }
+
+        if (error instanceof ParseCancellationException || error instanceof ParseTimeoutException)
+        {
+            CSharpProjectParser.LOG.warn("Gave up on " + job.file + ": " + error.getMessage());
+        }
+        else
+        {
+            CSharpProjectParser.LOG.warn("Unable to parse " + job.file + ": " + error.getMessage(), error);
+        }
+        if (job.hash != null && quarantine != null && !(error instanceof IOException))
+        {
+            quarantine.add(job.hash, job.file, error.getMessage());
+        }
+        job.parsed = new ParsedFile(null, error instanceof ParseTimeoutException
+                ? FileParseOutcome.timedOut(job.file, error, job.timings)
+                : FileParseOutcome.failed(job.file, error, job.timings));
+        return job.parsed;
+    }
+
+    /**
+     * Stops the given job if its parse has been cancelled.
+     * 
+     * @param job
+     *            Job about to be advanced
+     */
+    private static void checkCancelled(final FileJob job)
+    {
+        if (job.cancellation != null && job.cancellation.isCancelled())
+        {
+            throw new CancellationException("Parse cancelled");
+        }
+    }
+
+    /**
+     * Creates the token stream appropriate to the configured mode and fills
+     * it.
+     * 
+     * @param lexer
+     *            Lexer positioned at the start of a file
+     * @return The filled token stream
+     */
+    private TokenStream tokenize(final CSharp6PreProcessor lexer)
+    {
+        if (outline)
+        {
+            final OutlineTokenStream tokens = new OutlineTokenStream(lexer);
+            tokens.fill();
+            return tokens;
+        }
+        if (compactTokens)
+        {
+            final CompactTokenStream tokens = new CompactTokenStream(lexer);
+            tokens.fill();
+            return tokens;
+        }
+
+        final CommonTokenStream tokens = new CommonTokenStream(lexer);
+        tokens.fill();
+        return tokens;
+    }
+
+    /**
+     * Records the time elapsed since mark against the given phase.
+     * 
+     * @param timings
+     *            Timings to record into
+     * @param phase
+     *            Phase which just completed
+     * @param mark
+     *            Time at which the phase began
+     * @return The current time, marking the start of the next phase
+     */
+    private static long lap(final PhaseTimings timings, final ParsePhase phase, final long mark)
+    {
+        final long now = System.nanoTime();
+        timings.record(phase, now - mark);
+        return now;
+    }
+
+    /**
+     * Source of the files entering the pipeline
+     *
+     * @author Isaac Griffith
+     */
+    @FunctionalInterface
+    private interface Feed {
+
+        /**
+         * Submits each file to the pipeline
+         * 
+         * @param submit
+         *            Submits a single file
+         */
+        void feed(Submit submit);
+    }
+
+    /**
+     * Submits a file to the pipeline
+     *
+     * @author Isaac Griffith
+     */
+    @FunctionalInterface
+    private interface Submit {
+
+        /**
+         * Submits a file, blocking while the first stage is full
+         * 
+         * @param index
+         *            Position of the file among the files submitted
+         * @param file
+         *            File to parse
+         */
+        void submit(int index, Path file);
+    }
+
+    /**
+     * One step of the pipeline
+     *
+     * @author Isaac Griffith
+     */
+    @FunctionalInterface
+    private interface Step {
+
+        /**
+         * Runs the step
+         * 
+         * @return true if the job is complete, false if it was handed on to
+         *         the next stage
+         * @throws IOException
+         *             If the file cannot be read
+         */
+        boolean run() throws IOException;
+    }
+
+    /**
+     * Work done for a single file by a task of the pool
+     *
+     * @author Isaac Griffith
+     */
+    @FunctionalInterface
+    private interface FileWork {
+
+        /**
+         * Parses a file, adding it to the sinks
+         * 
+         * @param index
+         *            Position of the file among the files to parse
+         */
+        void parse(int index);
+    }
+
+    /**
+     * A file on its way through the read, parse and build steps
+     *
+     * @author Isaac Griffith
+     */
+    private static class FileJob {
+
+        /**
+         * File to parse
+         */
+        private final Path                       file;
+        /**
+         * Registry of deferred method bodies, null if not deferred
+         */
+        private final LazyMethodBodies           bodies;
+        /**
+         * Sample for the DFA snapshot, null if disabled
+         */
+        private final DfaSnapshot                snapshot;
+        /**
+         * Conditional compilation symbols, null if directives are not
+         * evaluated
+         */
+        private final Set<String>                symbols;
+        /**
+         * Token stopping the parse, null if not cancellable
+         */
+        private final CancellationToken          cancellation;
+        /**
+         * Time spent in each phase so far
+         */
+        private final PhaseTimings               timings = new PhaseTimings();
+        /**
+         * Hash of the file's content, null if neither cached nor quarantined
+         */
+        private String                           hash;
+        /**
+         * Cache key of the file, null if not cached
+         */
+        private String                           key;
+        /**
+         * Whether the file is quarantined and parsed by bailing out
+         */
+        private boolean                          quarantined;
+        /**
+         * Whether a journal is recorded so that the file can be shared with
+         * other configurations
+         */
+        private boolean                          shared;
+        /**
+         * Decoded contents, held between reading and lexing
+         */
+        private CharStream                       input;
+        /**
+         * Tokens already lexed from the input, null if the input is yet to
+         * be lexed
+         */
+        private TokenStream                      tokens;
+        /**
+         * Line index of the file
+         */
+        private TokenLineIndex                   lines;
+        /**
+         * Registrar of the file's deferred bodies, null if not deferred
+         */
+        private LazyMethodBodies.FileBodies      fileBodies;
+        /**
+         * Journal recorded for the cache or for sharing, null if neither
+         */
+        private ParseJournal                     journal;
+        /**
+         * Listener building the file while parsing, null if not streaming
+         */
+        private StreamingCodeTreeBuilder         listener;
+        /**
+         * Result of the parse
+         */
+        private CSharpParseResult                result;
+        /**
+         * The completed file, null until complete
+         */
+        private ParsedFile                       parsed;
+
+        /**
+         * Constructs a new FileJob
+         * 
+         * @param file
+         *            File to parse
+         * @param bodies
+         *            Registry of deferred method bodies, may be null
+         * @param snapshot
+         *            Sample for the DFA snapshot, may be null
+         * @param symbols
+         *            Conditional compilation symbols, may be null
+         * @param cancellation
+         *            Token stopping the parse, may be null
+         */
+        private FileJob(final Path file, final LazyMethodBodies bodies, final DfaSnapshot snapshot,
+                final Set<String> symbols, final CancellationToken cancellation)
+        {
+            this.file = file;
+            this.bodies = bodies;
+            this.snapshot = snapshot;
+            this.symbols = symbols;
+            this.cancellation = cancellation;
+        }
+    }
+
+    /**
+     * Pairing of the FileNode produced by a worker with the outcome of the file
+     *
+     * @author Isaac Griffith
+     */
+    private static class ParsedFile {
+
+        /**
+         * The FileNode, null if the file failed
+         */
+        private final FileNode         node;
+        /**
+         * Outcome of the file
+         */
+        private final FileParseOutcome outcome;
+
+        /**
+         * Constructs a new ParsedFile
+         * 
+         * @param node
+         *            The FileNode, may be null
+         * @param outcome
+         *            Outcome of the file
+         */
+        private ParsedFile(final FileNode node, final FileParseOutcome outcome)
+        {
+            this.node = node;
+            this.outcome = outcome;
+        }
+    }
+
+    /**
+     * Builder used to configure a CSharpProjectParser
+     *
+     * @author Isaac Griffith
+     */
+    public static class Builder {
+
+        /**
+         * Number of worker threads
+         */
+        private int                parallelism  = Runtime.getRuntime().availableProcessors();
+        /**
+         * Character set of the source files
+         */
+        private Charset            charset      = StandardCharsets.UTF_8;
+        /**
+         * Size in bytes at or above which files are memory mapped
+         */
+        private long               mapThreshold = 256 * 1024;
+        /**
+         * Whether member bodies are skipped
+         */
+        private boolean            outline;
+        /**
+         * Whether the statements of method bodies are produced on demand
+         */
+        private boolean            lazyBodies;
+        /**
+         * Whether the CodeTree is built while parsing
+         */
+        private boolean            streaming;
+        /**
+         * Whether tokens are stored in primitive arrays
+         */
+        private boolean            compactTokens;
+        /**
+         * Root directory of the parse cache, null if disabled
+         */
+        private Path               cacheDirectory;
+        /**
+         * File holding the DFA snapshot, null if disabled
+         */
+        private Path               snapshotFile;
+        /**
+         * Prediction cache used by the parsers, null to use the static cache
+         */
+        private ParserDfaCache     dfaCache;
+        /**
+         * Number of prediction cache shards, zero if not sharded
+         */
+        private int                dfaShards;
+        /**
+         * Estimator of the cost of each file, null for a new estimator
+         */
+        private ParseCostEstimator estimator;
+        /**
+         * Whether reading, parsing and building run as separate stages
+         */
+        private boolean            pipelined;
+        /**
+         * Number of threads reading files when pipelined, zero for the
+         * default
+         */
+        private int                ioThreads;
+        /**
+         * Whether files are read on virtual threads when available
+         */
+        private boolean            virtualThreads;
+        /**
+         * Crawler finding the files of a project, null for the default
+         */
+        private SourceCrawler      crawler;
+        /**
+         * Conditional compilation symbols, null if directives are not
+         * evaluated
+         */
+        private Set<String>        symbols;
+        /**
+         * How syntax errors are handled
+         */
+        private ErrorPolicy        errorPolicy  = ErrorPolicy.builder().create();
+        /**
+         * File holding the quarantine, null if disabled
+         */
+        private Path               quarantineFile;
+        /**
+         * Time in nanoseconds each file may take, zero for no limit
+         */
+        private long               fileTimeout;
+
+        /**
+         * Private constructor, use {@link CSharpProjectParser#builder()}
+         */
+        private Builder()
+        {
+        }
+
+        /**
+         * Sets the number of worker threads used to parse files. Defaults to
+         * the number of available processors.
+         * 
+         * @param parallelism
+         *            Number of worker threads, must be at least one
+         * @return This builder
+         */
+        public Builder parallelism(final int parallelism)
+        {
+            if (parallelism < 1)
+            {
+                throw new IllegalArgumentException("parallelism must be at least 1");
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Sets the character set used to decode source files. Defaults to
+         * UTF-8.
+         * 
+         * @param charset
+         *            Character set of the source files
+         * @return This builder
+         */
+        public Builder charset(final Charset charset)
+        {
+            this.charset = charset;
+            return this;
+        }
+
+        /**
+         * Sets the size at or above which files are memory mapped rather than
+         * read onto the heap. Large ASCII files are then lexed directly from
+         * the mapping. Defaults to 256 KiB.
+         * 
+         * @param bytes
+         *            Size in bytes, or a negative value to disable mapping
+         * @return This builder
+         */
+        public Builder memoryMapThreshold(final long bytes)
+        {
+            mapThreshold = bytes;
+            return this;
+        }
+
+        /**
+         * Enables or disables outline mode. In outline mode the bodies of
+         * methods, constructors, destructors, operators and accessors are
+         * skipped at the token level, producing the types and members of each
+         * file with their ranges and LOC but without statements. Disabled by
+         * default.
+         * 
+         * @param outline
+         *            true to skip member bodies
+         * @return This builder
+         */
+        public Builder outline(final boolean outline)
+        {
+            this.outline = outline;
+            return this;
+        }
+
+        /**
+         * Enables or disables lazy method bodies, which implies outline mode.
+         * The token range of each skipped method body is retained, and the
+         * body is parsed only when its statements are requested through the
+         * {@link LazyMethodBodies} of the result. Disabled by default.
+         * 
+         * @param lazyBodies
+         *            true to produce statements on demand
+         * @return This builder
+         */
+        public Builder lazyBodies(final boolean lazyBodies)
+        {
+            this.lazyBodies = lazyBodies;
+            return this;
+        }
+
+        /**
+         * Enables or disables streaming. When streaming, the nodes of each
+         * file are built by a {@link StreamingCodeTreeBuilder} while the file
+         * is parsed, and each part of the parse tree is discarded once it has
+         * been consumed, rather than walking the complete parse tree
+         * afterwards. Disabled by default.
+         * 
+         * @param streaming
+         *            true to build the CodeTree while parsing
+         * @return This builder
+         */
+        public Builder streaming(final boolean streaming)
+        {
+            this.streaming = streaming;
+            return this;
+        }
+
+        /**
+         * Enables or disables compact token storage, in which the tokens of
+         * each file are held in a {@link CompactTokenStream} rather than as
+         * one object per token. This greatly reduces allocation on large
+         * files. Outline mode uses its own token stream, so this has no
+         * effect when outline mode or lazy bodies are enabled. Disabled by
+         * default.
+         * 
+         * @param compactTokens
+         *            true to store tokens in primitive arrays
+         * @return This builder
+         */
+        public Builder compactTokens(final boolean compactTokens)
+        {
+            this.compactTokens = compactTokens;
+            return this;
+        }
+
+        /**
+         * Enables the persistent parse cache. The nodes built for each file
+         * are stored under the given directory, keyed by the hash of the
+         * file's content, and files which are unchanged on a later parse are
+         * rebuilt from the cache without being parsed. Files parsed with lazy
+         * bodies are never cached. Disabled by default.
+         * 
+         * @param directory
+         *            Root directory of the cache, or null to disable it
+         * @return This builder
+         */
+        public Builder cache(final Path directory)
+        {
+            cacheDirectory = directory;
+            return this;
+        }
+
+        /**
+         * Enables the DFA snapshot. ANTLR builds its prediction DFA while
+         * parsing, so the first files of every run are parsed considerably
+         * slower than the rest. With a snapshot, the token sequences of a
+         * sample of the files parsed are written to the given file at the
+         * end of each run, and replayed at the start of the next to rebuild
+         * the DFA before any file is parsed. Snapshots taken with a different
+         * version of the grammar are ignored. Not taken in outline mode.
+         * Disabled by default.
+         * 
+         * @param file
+         *            File holding the snapshot, or null to disable it
+         * @return This builder
+         */
+        public Builder dfaSnapshot(final Path file)
+        {
+            snapshotFile = file;
+            return this;
+        }
+
+        /**
+         * Sets the prediction cache used by the parsers. By default parsers
+         * share the static cache of the generated parser, which lives as
+         * long as the process and only ever grows. A {@link ParserDfaCache}
+         * can instead be measured, bounded, cleared between batches, and
+         * shared between several CSharpProjectParsers.
+         * 
+         * @param dfaCache
+         *            Prediction cache, or null to use the static cache
+         * @return This builder
+         */
+        public Builder dfaCache(final ParserDfaCache dfaCache)
+        {
+            this.dfaCache = dfaCache;
+            return this;
+        }
+
+        /**
+         * Splits prediction between the given number of private caches, each
+         * used by an equal share of the worker threads, rather than a single
+         * cache shared by all of them. With as many shards as worker threads,
+         * no two threads ever contend for the same DFA or prediction context
+         * cache, at the cost of each shard having to warm up separately and
+         * holding its own copy of the states. Overrides
+         * {@link #dfaCache(ParserDfaCache)}, except for lazy method bodies,
+         * which are parsed outside the workers. Not sharded by default.
+         * 
+         * @param shards
+         *            Number of shards, or zero to share a single cache
+         * @return This builder
+         */
+        public Builder dfaShards(final int shards)
+        {
+            if (shards < 0)
+            {
+                throw new IllegalArgumentException("shards must not be negative");
+            }
+            dfaShards = shards;
+            return this;
+        }
+
+        /**
+         * Sets the estimator used to schedule files. Files are parsed
+         * largest first, with small files batched together, using estimates
+         * based on file size and on the time the estimator has seen each file
+         * take before. By default each CSharpProjectParser has its own
+         * estimator, which learns across the runs of that parser only.
+         * 
+         * @param estimator
+         *            Estimator to use, or null for a new one
+         * @return This builder
+         */
+        public Builder costEstimator(final ParseCostEstimator estimator)
+        {
+            this.estimator = estimator;
+            return this;
+        }
+
+        /**
+         * Enables or disables pipelining. When pipelined, files are read on
+         * dedicated I/O threads, lexed and parsed on the worker threads, and
+         * turned into FileNodes on a stage of their own, with bounded queues
+         * between the stages. Reading then overlaps with parsing, which helps
+         * most on slow or high latency storage. Disabled by default, in which
+         * case each worker reads, parses and builds its own files.
+         * 
+         * @param pipelined
+         *            true to run the steps as separate stages
+         * @return This builder
+         */
+        public Builder pipelined(final boolean pipelined)
+        {
+            this.pipelined = pipelined;
+            return this;
+        }
+
+        /**
+         * Sets the number of threads reading files when pipelined. Defaults
+         * to 4 platform threads, or 256 virtual threads.
+         * 
+         * @param ioThreads
+         *            Number of reading threads, must be at least one
+         * @return This builder
+         */
+        public Builder ioThreads(final int ioThreads)
+        {
+            if (ioThreads < 1)
+            {
+                throw new IllegalArgumentException("ioThreads must be at least 1");
+            }
+            this.ioThreads = ioThreads;
+            return this;
+        }
+
+        /**
+         * Enables or disables reading files on virtual threads, which implies
+         * pipelining. Many reads can then wait on high latency storage at
+         * once without a platform thread each, while lexing and parsing stay
+         * on one platform thread per core. Virtual threads require Java 21 or
+         * later; on older runtimes files are read on platform threads as if
+         * only pipelining were enabled. Disabled by default.
+         * 
+         * @param virtualThreads
+         *            true to read files on virtual threads
+         * @return This builder
+         */
+        public Builder virtualThreads(final boolean virtualThreads)
+        {
+            this.virtualThreads = virtualThreads;
+            return this;
+        }
+
+        /**
+         * Sets the crawler used to find the files of a project parsed with
+         * {@link CSharpProjectParser#parse(Path)}. Defaults to a crawler
+         * finding *.cs files outside bin, obj, .git and *.UnitTests
+         * directories.
+         * 
+         * @param crawler
+         *            Crawler to use, or null for the default
+         * @return This builder
+         */
+        public Builder crawler(final SourceCrawler crawler)
+        {
+            this.crawler = crawler;
+            return this;
+        }
+
+        /**
+         * Evaluates conditional compilation directives with the given symbols
+         * defined at the start of each file, so that only the active section
+         * of each #if is parsed. By default directives are not evaluated and
+         * are passed to the parser as they appear.
+         * 
+         * @param symbols
+         *            Defined symbols, such as DEBUG or NET45, or null to leave
+         *            directives unevaluated
+         * @return This builder
+         */
+        public Builder symbols(final Set<String> symbols)
+        {
+            this.symbols = symbols;
+            return this;
+        }
+
+        /**
+         * Evaluates conditional compilation directives with the given symbols
+         * defined at the start of each file.
+         * 
+         * @param symbols
+         *            Defined symbols
+         * @return This builder
+         * @see #symbols(Set)
+         */
+        public Builder symbols(final String... symbols)
+        {
+            return symbols(Sets.newHashSet(symbols));
+        }
+
+        /**
+         * Sets how files with syntax errors are handled once SLL prediction
+         * has failed. Defaults to reporting and recovering from every error.
+         * 
+         * @param errorPolicy
+         *            Policy to apply
+         * @return This builder
+         */
+        public Builder errorPolicy(final ErrorPolicy errorPolicy)
+        {
+            this.errorPolicy = errorPolicy;
+            return this;
+        }
+
+        /**
+         * Records the files which fail to parse in the given file, keyed by
+         * the hash of their content, so that later runs skip them or bail out
+         * of them as set by the error policy. A quarantined file which parses
+         * is released. Disabled by default.
+         * 
+         * @param quarantineFile
+         *            File holding the quarantine, or null to disable
+         * @return This builder
+         */
+        public Builder quarantine(final Path quarantineFile)
+        {
+            this.quarantineFile = quarantineFile;
+            return this;
+        }
+
+        /**
+         * Limits the time each file may take to lex and parse. A file still
+         * being lexed or parsed when its time runs out stops within a few
+         * hundred tokens or at its next prediction, and is reported as
+         * {@link FileParseStatus#TIMED_OUT}, and is quarantined if a
+         * quarantine is configured. Defaults to no limit.
+         * 
+         * @param timeout
+         *            Time each file may take, zero for no limit
+         * @param unit
+         *            Unit of the timeout
+         * @return This builder
+         */
+        public Builder fileTimeout(final long timeout, final TimeUnit unit)
+        {
+            if (timeout < 0)
+            {
+                throw new IllegalArgumentException("timeout must not be negative");
+            }
+            this.fileTimeout = unit.toNanos(timeout);
+            return this;
+        }
+
+        /**
+         * @return The configured CSharpProjectParser
+         */
+        public CSharpProjectParser create()
+        {
+            return new CSharpProjectParser(this);
+        }
+    }
+}
@@ -0,0 +1,314 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser;
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6PreProcessor;
+
+/**
+ * The single loading path for C# source files. Each file is read from disk
+ * once, decoded once directly into the character buffer handed to ANTLR, and
+ * tokenized by exactly one token source (the {@link CSharp6PreProcessor}).
+ * <p>
+ * Files at or above the memory mapping threshold are mapped rather than read.
+ * Mapped files which are pure ASCII are served directly from the mapping by a
+ * {@link MappedCharStream}, all others are decoded in a single bulk pass over
+ * the mapping.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class CSharpSourceLoader {
+
+    /**
+     * Unicode byte order mark, as it appears after decoding
+     */
+    private static final char BOM = '\uFEFF';
+    /**
+     * Character set used to decode source files
+     */
+    private final Charset     charset;
+    /**
+     * Size in bytes at or above which files are memory mapped, negative to
+     * disable mapping
+     */
+    private final long        mapThreshold;
+
+    /**
+     * Constructs a new CSharpSourceLoader which decodes files as UTF-8
+     */
+    public CSharpSourceLoader()
+    {
+        this(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Constructs a new CSharpSourceLoader which decodes files using the given
+     * character set
+     * 
+     * @param charset
+     *            Character set of the source files
+     */
+    public CSharpSourceLoader(final Charset charset)
+    {
+        this(charset, -1);
+    }
+
+    /**
+     * Constructs a new CSharpSourceLoader which decodes files using the given
+     * character set and memory maps files of at least the given size. Mapping
+     * only applies to UTF-8 and ASCII files, as only those can be served
+     * directly from the mapped bytes.
+     * 
+     * @param charset
+     *            Character set of the source files
+     * @param mapThreshold
+     *            Size in bytes at or above which files are memory mapped,
+     *            negative to disable mapping
+     */
+    public CSharpSourceLoader(final Charset charset, final long mapThreshold)
+    {
+        this.charset = charset;
+        this.mapThreshold = charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII)
+                ? mapThreshold : -1;
+    }
+
+    /**
+     * Reads and decodes the given file.
+     * 
+     * @param file
+     *            File to read
+     * @return Character stream over the decoded contents of the file
+     * @throws IOException
+     *             If the file cannot be read
+     */
+    public CharStream read(final Path file) throws IOException
+    {
+        return read(file, null);
+    }
+
+    /**
+     * Reads and decodes the given file, passing its bytes, as read, to the
+     * given digest.
+     * 
+     * @param file
+     *            File to read
+     * @param digest
+     *            Digest updated with the entire content of the file, may be
+     *            null
+     * @return Character stream over the decoded contents of the file
+     * @throws IOException
+     *             If the file cannot be read
+     */
+    public CharStream read(final Path file, final MessageDigest digest) throws IOException
+    {
+        return decode(readBytes(file, digest), file.toString());
+    }
+
+    /**
+     * Reads the given file without decoding it, passing its bytes to the given
+     * digest. Files at or above the mapping threshold are memory mapped. This
+     * allows a caller to look the file up by its hash before paying for
+     * {@link #decode(ByteBuffer, String)}.
+     * 
+     * @param file
+     *            File to read
+     * @param digest
+     *            Digest updated with the entire content of the file, may be
+     *            null
+     * @return The content of the file
+     * @throws IOException
+     *             If the file cannot be read
+     */
+    public ByteBuffer readBytes(final Path file, final MessageDigest digest) throws IOException
+    {
+        final ByteBuffer bytes;
+        if (mapThreshold >= 0 && Files.size(file) >= mapThreshold)
+        {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+            {
+                bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+        else
+        {
+            bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+        }
+        if (digest != null)
+        {
+            digest.update(bytes.duplicate());
+        }
+        return bytes;
+    }
+
+    /**
+     * Decodes the content of a file read by
+     * {@link #readBytes(Path, MessageDigest)}. Mapped content, which is direct,
+     * is served directly from the mapping if it is pure ASCII, anything else is
+     * decoded in a single pass.
+     * 
+     * @param bytes
+     *            Content of the file, which is left unchanged
+     * @param name
+     *            Name of the source
+     * @return Character stream over the contents of the file
+     * @throws IOException
+     *             If the contents cannot be decoded
+     */
+    public CharStream decode(final ByteBuffer bytes, final String name) throws IOException
+    {
+        final ByteBuffer content = bytes.duplicate();
+        if (!content.isDirect())
+        {
+            return decodeChars(content, name);
+        }
+
+        if (content.remaining() >= 3 && content.get(0) == (byte) 0xEF && content.get(1) == (byte) 0xBB
+                && content.get(2) == (byte) 0xBF)
+        {
+            content.position(3);
+        }
+
+        if (MappedCharStream.isAscii(content))
+        {
+            return new MappedCharStream(content, name);
+        }
+        return decodeChars(content, name);
+    }
+
+    /**
+     * Decodes the given bytes directly into the buffer used by the returned
+     * stream. Malformed input is replaced rather than rejected, matching the
+     * behavior of a Reader, and a leading byte order mark is dropped.
+     * 
+     * @param bytes
+     *            Encoded contents of a file
+     * @param name
+     *            Name of the source
+     * @return Character stream over the decoded contents
+     * @throws IOException
+     *             If the contents cannot be decoded
+     */
+    private CharStream decodeChars(final ByteBuffer bytes, final String name) throws IOException
+    {
+        final CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        final CharBuffer chars = decoder.decode(bytes);
+
+        int offset = 0;
+        if (chars.hasRemaining() && chars.get(0) == CSharpSourceLoader.BOM)
+        {
+            offset = 1;
+        }
+
+        final ANTLRInputStream input;
+        if (offset == 0 && chars.hasArray() && chars.arrayOffset() == 0)
+        {
+            input = new ANTLRInputStream(chars.array(), chars.limit());
+        }
+        else
+        {
+            final char[] data = new char[chars.limit() - offset];
+            chars.position(offset);
+            chars.get(data);
+            input = new ANTLRInputStream(data, data.length);
+        }
+        input.name = name;
+        return input;
+    }
+
+    /**
+     * Creates a token stream over the given input using a single token source.
+     * 
+     * @param input
+     *            Decoded contents of a file
+     * @return Token stream over the input
+     */
+    public CommonTokenStream tokenize(final CharStream input)
+    {
+        return new CommonTokenStream(new CSharp6PreProcessor(input));
+    }
+
+    /**
+     * Creates a token stream over the given input which is able to collapse
+     * member bodies for outline parsing.
+     * 
+     * @param input
+     *            Decoded contents of a file
+     * @return Token stream over the input
+     * @see OutlineBodySkipper
+     */
+    public OutlineTokenStream tokenizeOutline(final CharStream input)
+    {
+        return new OutlineTokenStream(new CSharp6PreProcessor(input));
+    }
+
+    /**
+     * Creates a token stream over the given input which stores its tokens in
+     * primitive arrays rather than as token objects.
+     * 
+     * @param input
+     *            Decoded contents of a file
+     * @return Token stream over the input
+     */
+    public CompactTokenStream tokenizeCompact(final CharStream input)
+    {
+        return new CompactTokenStream(new CSharp6PreProcessor(input));
+    }
+
+    /**
+     * Reads, decodes and tokenizes the given file, returning a parser ready to
+     * parse it.
+     * 
+     * @param file
+     *            File to load
+     * @return Parser attached to the token stream of the file
+     * @throws IOException
+     *             If the file cannot be read
+     */
+    public CSharp6Parser load(final Path file) throws IOException
+    {
+        return new CSharp6Parser(tokenize(read(file)));
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+/**
+ * Requests that a project parse stop early. Files not yet started are not
+ * parsed, files being parsed stop at their next prediction, and the parse
+ * returns the files completed so far, with the remaining files reported as
+ * {@link FileParseStatus#CANCELLED}. A token may be cancelled from any thread
+ * and cannot be reset.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class CancellationToken {
+
+    /**
+     * Whether cancellation has been requested
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * Constructs a new CancellationToken which is not cancelled
+     */
+    public CancellationToken()
+    {
+    }
+
+    /**
+     * Requests cancellation of the parses using this token
+     */
+    public void cancel()
+    {
+        cancelled = true;
+    }
+
+    /**
+     * @return true if cancellation has been requested
+     */
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+}
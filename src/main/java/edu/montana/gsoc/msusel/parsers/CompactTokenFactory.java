@@ -0,0 +1,122 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.TokenFactory;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.misc.Pair;
+
+/**
+ * Token factory used while a {@link CompactTokenStream} is being filled. Each
+ * token produced by the lexer is copied into the arrays of the stream as soon
+ * as it is emitted, so rather than allocating a new token for every lexeme
+ * this factory hands out the same scratch token each time.
+ * <p>
+ * Once the stream has been filled the factory is switched to
+ * {@link #release() released} mode, in which it creates new tokens as usual,
+ * as tokens created later (such as those conjured up by error recovery) are
+ * retained by the parse tree.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class CompactTokenFactory implements TokenFactory<CommonToken> {
+
+    /**
+     * Token reused for every lexeme, null until the first is created
+     */
+    private CommonToken scratch;
+    /**
+     * Whether new tokens are created for each call
+     */
+    private boolean     released;
+    /**
+     * Text explicitly given to the most recently created token, null if its
+     * text is that of its character range
+     */
+    private String      text;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CommonToken create(final Pair<TokenSource, CharStream> source, final int type, final String text,
+            final int channel, final int start, final int stop, final int line, final int charPositionInLine)
+    {
+        this.text = text;
+        if (released || scratch == null)
+        {
+            final CommonToken token = new CommonToken(source, type, channel, start, stop);
+            token.setLine(line);
+            token.setCharPositionInLine(charPositionInLine);
+            token.setText(text);
+            if (!released)
+            {
+                scratch = token;
+            }
+            return token;
+        }
+
+        scratch.setType(type);
+        scratch.setChannel(channel);
+        scratch.setStartIndex(start);
+        scratch.setStopIndex(stop);
+        scratch.setLine(line);
+        scratch.setCharPositionInLine(charPositionInLine);
+        scratch.setText(text);
+        return scratch;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CommonToken create(final int type, final String text)
+    {
+        return new CommonToken(type, text);
+    }
+
+    /**
+     * @return Text explicitly given to the most recently created token, null
+     *         if its text is that of its character range
+     */
+    String getText()
+    {
+        return text;
+    }
+
+    /**
+     * Stops reusing the scratch token, every subsequent call creates a new
+     * token.
+     */
+    public void release()
+    {
+        released = true;
+        scratch = null;
+    }
+}
@@ -0,0 +1,675 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.RuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Token stream which stores the type, channel, start, stop, line and column
+ * of each token in parallel int arrays rather than as token objects. Only
+ * tokens on the default channel are ever handed to the parser, each as a
+ * small view over the arrays, and the text of a token is sliced from the
+ * character stream only when requested.
+ * <p>
+ * Behaves as a {@link org.antlr.v4.runtime.CommonTokenStream} on the default
+ * channel, and may be used with {@code CSharp6Parser} wherever one is.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class CompactTokenStream implements TokenStream {
+
+    /**
+     * Number of recently created views kept, so that repeated lookahead at the
+     * same position does not allocate. Must be a power of two.
+     */
+    private static final int           VIEWS = 64;
+    /**
+     * Source of the tokens
+     */
+    private final TokenSource          source;
+    /**
+     * Characters of the tokens, captured on construction as a lexer may be
+     * given other input once this stream has been filled
+     */
+    private final CharStream           input;
+    /**
+     * Factory reusing a scratch token while filling, null if the source is
+     * not a lexer
+     */
+    private final CompactTokenFactory  factory;
+    /**
+     * Type of each token
+     */
+    private int[]                      types;
+    /**
+     * Channel of each token
+     */
+    private int[]                      channels;
+    /**
+     * Index of the first character of each token
+     */
+    private int[]                      starts;
+    /**
+     * Index of the last character of each token
+     */
+    private int[]                      stops;
+    /**
+     * Line of each token
+     */
+    private int[]                      lines;
+    /**
+     * Position in line of each token
+     */
+    private int[]                      columns;
+    /**
+     * Text of those tokens whose text was set explicitly by the lexer
+     */
+    private final Map<Integer, String> texts;
+    /**
+     * Recently created views, indexed by token index modulo VIEWS
+     */
+    private final Token[]              views;
+    /**
+     * Number of tokens fetched
+     */
+    private int                        size;
+    /**
+     * Index of the current token, -1 until the stream is first used
+     */
+    private int                        p = -1;
+    /**
+     * Whether the EOF token has been fetched
+     */
+    private boolean                    fetchedEOF;
+
+    /**
+     * Constructs a new CompactTokenStream
+     * 
+     * @param source
+     *            Source of the tokens
+     */
+    public CompactTokenStream(final TokenSource source)
+    {
+        this.source = source;
+        input = source.getInputStream();
+        if (source instanceof Lexer)
+        {
+            factory = new CompactTokenFactory();
+            ((Lexer) source).setTokenFactory(factory);
+        }
+        else
+        {
+            factory = null;
+        }
+
+        final int capacity = 1024;
+        types = new int[capacity];
+        channels = new int[capacity];
+        starts = new int[capacity];
+        stops = new int[capacity];
+        lines = new int[capacity];
+        columns = new int[capacity];
+        texts = Maps.newHashMap();
+        views = new Token[CompactTokenStream.VIEWS];
+    }
+
+    /**
+     * Fetches every remaining token from the source
+     */
+    public void fill()
+    {
+        while (!fetchedEOF)
+        {
+            fetch();
+        }
+    }
+
+    /**
+     * Ensures the token at the given index has been fetched
+     * 
+     * @param i
+     *            Token index
+     * @return true if the token is available
+     */
+    private boolean sync(final int i)
+    {
+        while (i >= size && !fetchedEOF)
+        {
+            fetch();
+        }
+        return i < size;
+    }
+
+    /**
+     * Fetches the next token from the source, copying it into the arrays
+     */
+    private void fetch()
+    {
+        final Token token = source.nextToken();
+        if (size == types.length)
+        {
+            final int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            channels = Arrays.copyOf(channels, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            stops = Arrays.copyOf(stops, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            columns = Arrays.copyOf(columns, capacity);
+        }
+
+        types[size] = token.getType();
+        channels[size] = token.getChannel();
+        starts[size] = token.getStartIndex();
+        stops[size] = token.getStopIndex();
+        lines[size] = token.getLine();
+        columns[size] = token.getCharPositionInLine();
+        final String text = factory != null ? factory.getText() : token.getText();
+        if (token.getType() != Token.EOF && text != null)
+        {
+            texts.put(size, text);
+        }
+        size++;
+
+        if (token.getType() == Token.EOF)
+        {
+            fetchedEOF = true;
+            if (factory != null)
+            {
+                factory.release();
+            }
+        }
+    }
+
+    /**
+     * Positions the stream on the first token, if this has not yet been done
+     */
+    private void setup()
+    {
+        if (p == -1)
+        {
+            sync(0);
+            p = nextOnChannel(0);
+        }
+    }
+
+    /**
+     * @param i
+     *            Token index
+     * @return Index of the first token at or after i on the default channel,
+     *         or of EOF
+     */
+    private int nextOnChannel(int i)
+    {
+        sync(i);
+        if (i >= size)
+        {
+            return size - 1;
+        }
+
+        while (channels[i] != Token.DEFAULT_CHANNEL)
+        {
+            if (types[i] == Token.EOF)
+            {
+                return i;
+            }
+            i++;
+            sync(i);
+        }
+        return i;
+    }
+
+    /**
+     * @param i
+     *            Token index
+     * @return Index of the last token at or before i on the default channel,
+     *         or -1 if there is none
+     */
+    private int previousOnChannel(int i)
+    {
+        sync(i);
+        if (i >= size)
+        {
+            return size - 1;
+        }
+
+        while (i >= 0)
+        {
+            if (channels[i] == Token.DEFAULT_CHANNEL || types[i] == Token.EOF)
+            {
+                return i;
+            }
+            i--;
+        }
+        return i;
+    }
+
+    /**
+     * @param k
+     *            Lookahead depth, positive
+     * @return Index of the k-th token on the default channel from the current
+     *         position
+     */
+    private int ahead(final int k)
+    {
+        setup();
+        int i = p;
+        for (int n = 1; n < k; n++)
+        {
+            if (sync(i + 1))
+            {
+                i = nextOnChannel(i + 1);
+            }
+        }
+        return i;
+    }
+
+    /**
+     * @param k
+     *            Lookbehind depth, positive
+     * @return Index of the k-th token on the default channel before the
+     *         current position, or -1 if there is none
+     */
+    private int behind(final int k)
+    {
+        setup();
+        if (p - k < 0)
+        {
+            return -1;
+        }
+
+        int i = p;
+        for (int n = 1; n <= k && i > 0; n++)
+        {
+            i = previousOnChannel(i - 1);
+        }
+        return i;
+    }
+
+    /**
+     * @param i
+     *            Token index, must have been fetched
+     * @return View of the token
+     */
+    private Token view(final int i)
+    {
+        final int slot = i & CompactTokenStream.VIEWS - 1;
+        Token token = views[slot];
+        if (token == null || token.getTokenIndex() != i)
+        {
+            token = new View(this, i);
+            views[slot] = token;
+        }
+        return token;
+    }
+
+    /**
+     * @param i
+     *            Token index
+     * @return Text of the token, sliced from the character stream
+     */
+    private String text(final int i)
+    {
+        if (types[i] == Token.EOF)
+        {
+            return "<EOF>";
+        }
+
+        final String text = texts.get(i);
+        if (text != null)
+        {
+            return text;
+        }
+        return input.getText(Interval.of(starts[i], stops[i]));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void consume()
+    {
+        if (LA(1) == Token.EOF)
+        {
+            throw new IllegalStateException("cannot consume EOF");
+        }
+        if (sync(p + 1))
+        {
+            p = nextOnChannel(p + 1);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int LA(final int i)
+    {
+        if (i == 0)
+        {
+            return 0;
+        }
+        final int index = i < 0 ? behind(-i) : ahead(i);
+        return index < 0 ? 0 : types[index];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Token LT(final int k)
+    {
+        if (k == 0)
+        {
+            return null;
+        }
+        final int index = k < 0 ? behind(-k) : ahead(k);
+        return index < 0 ? null : view(index);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Token get(final int index)
+    {
+        if (index < 0 || index >= size)
+        {
+            throw new IndexOutOfBoundsException("token index " + index + " out of range 0.." + (size - 1));
+        }
+        return view(index);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TokenSource getTokenSource()
+    {
+        return source;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getText(final Interval interval)
+    {
+        final int start = interval.a;
+        int stop = interval.b;
+        if (start < 0 || stop < 0)
+        {
+            return "";
+        }
+        sync(stop);
+        if (stop >= size)
+        {
+            stop = size - 1;
+        }
+
+        final StringBuilder builder = new StringBuilder();
+        for (int i = start; i <= stop; i++)
+        {
+            if (types[i] == Token.EOF)
+            {
+                break;
+            }
+            builder.append(text(i));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getText()
+    {
+        fill();
+        return getText(Interval.of(0, size - 1));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getText(final RuleContext ctx)
+    {
+        return getText(ctx.getSourceInterval());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getText(final Token start, final Token stop)
+    {
+        if (start != null && stop != null)
+        {
+            return getText(Interval.of(start.getTokenIndex(), stop.getTokenIndex()));
+        }
+        return "";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int mark()
+    {
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void release(final int marker)
+    {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int index()
+    {
+        setup();
+        return p;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void seek(final int index)
+    {
+        setup();
+        p = nextOnChannel(index);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getSourceName()
+    {
+        return input == null ? source.getSourceName() : input.getSourceName();
+    }
+
+    /**
+     * A token backed by the arrays of a CompactTokenStream
+     *
+     * @author Isaac Griffith
+     */
+    private static class View implements Token {
+
+        /**
+         * Stream holding the token
+         */
+        private final CompactTokenStream stream;
+        /**
+         * Index of the token within the stream
+         */
+        private final int                index;
+
+        /**
+         * Constructs a new View
+         * 
+         * @param stream
+         *            Stream holding the token
+         * @param index
+         *            Index of the token within the stream
+         */
+        private View(final CompactTokenStream stream, final int index)
+        {
+            this.stream = stream;
+            this.index = index;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String getText()
+        {
+            return stream.text(index);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int getType()
+        {
+            return stream.types[index];
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int getLine()
+        {
+            return stream.lines[index];
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int getCharPositionInLine()
+        {
+            return stream.columns[index];
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int getChannel()
+        {
+            return stream.channels[index];
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int getTokenIndex()
+        {
+            return index;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int getStartIndex()
+        {
+            return stream.starts[index];
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int getStopIndex()
+        {
+            return stream.stops[index];
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public TokenSource getTokenSource()
+        {
+            return stream.source;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public CharStream getInputStream()
+        {
+            return stream.input;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString()
+        {
+            final String text = getText().replace("\n", "\\n").replace("\r", "\\r").replace("\t", "\\t");
+            return "[@" + index + "," + getStartIndex() + ":" + getStopIndex() + "='" + text + "',<" + getType()
+                    + ">" + (getChannel() > 0 ? ",channel=" + getChannel() : "") + "," + getLine() + ":"
+                    + getCharPositionInLine() + "]";
+        }
+    }
+}
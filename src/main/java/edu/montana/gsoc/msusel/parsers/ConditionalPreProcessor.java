@@ -0,0 +1,561 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Set;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.WritableToken;
+
+import com.google.common.collect.Sets;
+
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6PreProcessor;
+
+/**
+ * A {@link CSharp6PreProcessor} which evaluates conditional compilation
+ * directives against a set of defined symbols, as the C# compiler does.
+ * Directives are moved to the hidden channel, #define and #undef update the
+ * symbols for the rest of the file, and the sections of #if, #elif and #else
+ * whose conditions do not hold are skipped at the character level, without
+ * being tokenized. The parser therefore sees exactly one branch of each
+ * conditional.
+ * <p>
+ * Skipped sections produce no tokens, so their lines count neither as code
+ * nor as comments.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class ConditionalPreProcessor extends GuardedPreProcessor {
+
+    /**
+     * Symbols defined at the start of each file
+     */
+    private Set<String>          symbols;
+    /**
+     * Symbols defined at the current point of the file
+     */
+    private final Set<String>    defined   = Sets.newHashSet();
+    /**
+     * For each enclosing #if, whether one of its sections has been taken
+     */
+    private final Deque<Boolean> sections  = new ArrayDeque<>();
+    /**
+     * Value of each condition evaluated so far, in order
+     */
+    private final StringBuilder  decisions = new StringBuilder();
+    /**
+     * Expression of the directive being evaluated
+     */
+    private String               expression;
+    /**
+     * Position in the expression being evaluated
+     */
+    private int                  position;
+
+    /**
+     * Constructs a new ConditionalPreProcessor
+     * 
+     * @param input
+     *            Input to lex
+     * @param symbols
+     *            Symbols defined at the start of the file
+     */
+    public ConditionalPreProcessor(final CharStream input, final Set<String> symbols)
+    {
+        super(input);
+        setSymbols(symbols);
+    }
+
+    /**
+     * Sets the symbols defined at the start of each file, taking effect when
+     * the lexer is next reset.
+     * 
+     * @param symbols
+     *            Defined symbols
+     */
+    public void setSymbols(final Set<String> symbols)
+    {
+        this.symbols = Collections.unmodifiableSet(Sets.newHashSet(symbols));
+        defined.clear();
+        defined.addAll(this.symbols);
+    }
+
+    /**
+     * @return The symbols defined at the start of each file
+     */
+    public Set<String> getSymbols()
+    {
+        return symbols;
+    }
+
+    /**
+     * Two inputs lexed with different symbols produce the same tokens when
+     * their decisions are the same, since the decisions select the sections
+     * which are tokenized.
+     * 
+     * @return The value of each #if and #elif condition evaluated so far in
+     *         the current input, in order, as 1 for true and 0 for false
+     */
+    public String getDecisions()
+    {
+        return decisions.toString();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reset()
+    {
+        super.reset();
+        sections.clear();
+        decisions.setLength(0);
+        defined.clear();
+        if (symbols != null)
+        {
+            defined.addAll(symbols);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Token nextToken()
+    {
+        final Token token = super.nextToken();
+        if (token.getType() == CSharp6PreProcessor.Pp_directive)
+        {
+            ((WritableToken) token).setChannel(Token.HIDDEN_CHANNEL);
+            directive(token.getText());
+        }
+        return token;
+    }
+
+    /**
+     * Applies a directive, skipping the section which follows it if the
+     * section is inactive.
+     * 
+     * @param text
+     *            Text of the directive
+     */
+    private void directive(final String text)
+    {
+        int start = text.indexOf('#') + 1;
+        while (start < text.length() && Character.isWhitespace(text.charAt(start)))
+        {
+            start++;
+        }
+        int end = start;
+        while (end < text.length() && Character.isLetter(text.charAt(end)))
+        {
+            end++;
+        }
+        final String name = text.substring(start, end);
+        final String argument = ConditionalPreProcessor.stripComment(text.substring(end)).trim();
+
+        switch (name)
+        {
+        case "define":
+            defined.add(argument);
+            break;
+        case "undef":
+            defined.remove(argument);
+            break;
+        case "if":
+        {
+            final boolean taken = decide(argument);
+            sections.push(taken);
+            if (!taken)
+            {
+                skipSection();
+            }
+            break;
+        }
+        case "elif":
+            if (sections.isEmpty())
+            {
+                break;
+            }
+            if (sections.peek() || !decide(argument))
+            {
+                skipSection();
+            }
+            else
+            {
+                sections.pop();
+                sections.push(true);
+            }
+            break;
+        case "else":
+            if (sections.isEmpty())
+            {
+                break;
+            }
+            if (sections.peek())
+            {
+                skipSection();
+            }
+            else
+            {
+                sections.pop();
+                sections.push(true);
+            }
+            break;
+        case "endif":
+            if (!sections.isEmpty())
+            {
+                sections.pop();
+            }
+            break;
+        default:
+            break;
+        }
+    }
+
+    /**
+     * Skips the input up to the start of the #elif, #else or #endif line
+     * ending the current section, or to the end of the input, leaving the
+     * lexer positioned at the start of that line.
+     */
+    private void skipSection()
+    {
+        final CharStream input = getInputStream();
+        int line = getLine();
+        int depth = 0;
+        while (input.LA(1) != IntStream.EOF)
+        {
+            final int lineStart = input.index();
+            final String directive = ConditionalPreProcessor.directiveName(input);
+            if ("if".equals(directive))
+            {
+                depth++;
+            }
+            else if (depth > 0 && "endif".equals(directive))
+            {
+                depth--;
+            }
+            else if (depth == 0 && ("elif".equals(directive) || "else".equals(directive) || "endif".equals(directive)))
+            {
+                input.seek(lineStart);
+                break;
+            }
+
+            ConditionalPreProcessor.skipLine(input);
+            line++;
+        }
+
+        getInterpreter().setLine(line);
+        getInterpreter().setCharPositionInLine(0);
+    }
+
+    /**
+     * Determines whether the given input contains an #if or #elif directive,
+     * and therefore whether its tokens may depend on the defined symbols.
+     * Lines are scanned without being tokenized, so a line inside a comment or
+     * verbatim string which looks like a directive is also reported. The
+     * input is left at its start.
+     * 
+     * @param input
+     *            Input to scan
+     * @return true if the input may contain conditional sections
+     */
+    public static boolean hasConditionals(final CharStream input)
+    {
+        input.seek(0);
+        try
+        {
+            while (input.LA(1) != IntStream.EOF)
+            {
+                final String directive = ConditionalPreProcessor.directiveName(input);
+                if ("if".equals(directive) || "elif".equals(directive))
+                {
+                    return true;
+                }
+                ConditionalPreProcessor.skipLine(input);
+            }
+            return false;
+        }
+        finally
+        {
+            input.seek(0);
+        }
+    }
+
+    /**
+     * Reads the name of the directive on the line starting at the current
+     * position of the input, leaving the input on the same line.
+     * 
+     * @param input
+     *            Input positioned at the start of a line
+     * @return Name of the directive, or null if the line is not a directive
+     */
+    private static String directiveName(final CharStream input)
+    {
+        while (input.LA(1) == ' ' || input.LA(1) == '\t')
+        {
+            input.consume();
+        }
+        if (input.LA(1) != '#')
+        {
+            return null;
+        }
+
+        input.consume();
+        while (input.LA(1) == ' ' || input.LA(1) == '\t')
+        {
+            input.consume();
+        }
+        final StringBuilder name = new StringBuilder();
+        while (input.LA(1) != IntStream.EOF && Character.isLetter(input.LA(1)))
+        {
+            name.append((char) input.LA(1));
+            input.consume();
+        }
+        return name.toString();
+    }
+
+    /**
+     * Moves the input to the start of the next line.
+     * 
+     * @param input
+     *            Input to move
+     */
+    private static void skipLine(final CharStream input)
+    {
+        while (input.LA(1) != IntStream.EOF && !ConditionalPreProcessor.isLineBreak(input.LA(1)))
+        {
+            input.consume();
+        }
+        if (input.LA(1) == '\r')
+        {
+            input.consume();
+            if (input.LA(1) == '\n')
+            {
+                input.consume();
+            }
+        }
+        else if (input.LA(1) != IntStream.EOF)
+        {
+            input.consume();
+        }
+    }
+
+    /**
+     * Evaluates the condition of an #if or #elif, recording its value.
+     * 
+     * @param text
+     *            Condition to evaluate
+     * @return Value of the condition
+     */
+    private boolean decide(final String text)
+    {
+        final boolean value = evaluate(text);
+        decisions.append(value ? '1' : '0');
+        return value;
+    }
+
+    /**
+     * Evaluates a conditional expression against the defined symbols.
+     * Malformed expressions are false.
+     * 
+     * @param text
+     *            Expression to evaluate
+     * @return Value of the expression
+     */
+    private boolean evaluate(final String text)
+    {
+        expression = text;
+        position = 0;
+        try
+        {
+            final boolean value = or();
+            return atEnd() && value;
+        }
+        catch (final IllegalArgumentException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * @return Value of an or expression at the current position
+     */
+    private boolean or()
+    {
+        boolean value = and();
+        while (accept("||"))
+        {
+            value |= and();
+        }
+        return value;
+    }
+
+    /**
+     * @return Value of an and expression at the current position
+     */
+    private boolean and()
+    {
+        boolean value = equality();
+        while (accept("&&"))
+        {
+            value &= equality();
+        }
+        return value;
+    }
+
+    /**
+     * @return Value of an equality expression at the current position
+     */
+    private boolean equality()
+    {
+        boolean value = unary();
+        while (true)
+        {
+            if (accept("=="))
+            {
+                value = value == unary();
+            }
+            else if (accept("!="))
+            {
+                value = value != unary();
+            }
+            else
+            {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * @return Value of a unary expression at the current position
+     */
+    private boolean unary()
+    {
+        if (accept("!"))
+        {
+            return !unary();
+        }
+        if (accept("("))
+        {
+            final boolean value = or();
+            if (!accept(")"))
+            {
+                throw new IllegalArgumentException("Expected ) in " + expression);
+            }
+            return value;
+        }
+
+        whitespace();
+        final int start = position;
+        while (position < expression.length() && (Character.isLetterOrDigit(expression.charAt(position))
+                || expression.charAt(position) == '_'))
+        {
+            position++;
+        }
+        if (start == position)
+        {
+            throw new IllegalArgumentException("Expected a symbol in " + expression);
+        }
+
+        final String symbol = expression.substring(start, position);
+        if ("true".equals(symbol))
+        {
+            return true;
+        }
+        if ("false".equals(symbol))
+        {
+            return false;
+        }
+        return defined.contains(symbol);
+    }
+
+    /**
+     * Consumes the given operator if it is next in the expression.
+     * 
+     * @param operator
+     *            Operator to accept
+     * @return true if the operator was consumed
+     */
+    private boolean accept(final String operator)
+    {
+        whitespace();
+        if (expression.startsWith(operator, position)
+                && !("!".equals(operator) && expression.startsWith("!=", position)))
+        {
+            position += operator.length();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if only whitespace remains in the expression
+     */
+    private boolean atEnd()
+    {
+        whitespace();
+        return position == expression.length();
+    }
+
+    /**
+     * Skips whitespace in the expression.
+     */
+    private void whitespace()
+    {
+        while (position < expression.length() && Character.isWhitespace(expression.charAt(position)))
+        {
+            position++;
+        }
+    }
+
+    /**
+     * @param text
+     *            Argument of a directive
+     * @return The argument without any trailing single line comment
+     */
+    private static String stripComment(final String text)
+    {
+        final int comment = text.indexOf("//");
+        return comment < 0 ? text : text.substring(0, comment);
+    }
+
+    /**
+     * @param c
+     *            Character
+     * @return true if the character ends a line
+     */
+    private static boolean isLineBreak(final int c)
+    {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+}
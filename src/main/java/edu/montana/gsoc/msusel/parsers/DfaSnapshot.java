@@ -0,0 +1,345 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser;
+
+/**
+ * Persists what is needed to warm the prediction DFA of the parser at the
+ * start of a run. ANTLR's DFA states refer to ATN configurations and
+ * prediction contexts which cannot be serialized independently of the
+ * runtime, so rather than the states themselves the snapshot holds a sample
+ * of the token type sequences which produced them. Replaying the sample
+ * through the parser with SLL prediction rebuilds the same states in a
+ * fraction of the time needed to parse the original files.
+ * <p>
+ * A snapshot records the version of the grammar it was taken with (a hash of
+ * the serialized ATNs) and is ignored when loaded by a different version.
+ * Sampling is thread safe.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class DfaSnapshot {
+
+    /**
+     * Logger to log the process of the snapshot
+     */
+    private static final Logger LOG            = LoggerFactory.getLogger(DfaSnapshot.class);
+    /**
+     * Marks the start of a snapshot file
+     */
+    private static final int    MAGIC          = 0x43534446;
+    /**
+     * Version of the snapshot format
+     */
+    private static final int    FORMAT         = 1;
+    /**
+     * Recorded in place of one or more consecutive hidden tokens, so that the
+     * token indices checked by the parser's predicates are preserved
+     */
+    private static final int    GAP            = 0;
+    /**
+     * Default number of tokens sampled
+     */
+    public static final int     DEFAULT_BUDGET = 1_000_000;
+    /**
+     * Sampled token type sequences
+     */
+    private final List<byte[]>  samples;
+    /**
+     * Maximum number of tokens sampled
+     */
+    private final int           budget;
+    /**
+     * Number of tokens sampled so far
+     */
+    private int                 sampled;
+
+    /**
+     * Constructs a new, empty, DfaSnapshot with the default budget
+     */
+    public DfaSnapshot()
+    {
+        this(DfaSnapshot.DEFAULT_BUDGET);
+    }
+
+    /**
+     * Constructs a new, empty, DfaSnapshot
+     * 
+     * @param budget
+     *            Maximum number of tokens sampled
+     */
+    public DfaSnapshot(final int budget)
+    {
+        this.budget = budget;
+        samples = Lists.newArrayList();
+    }
+
+    /**
+     * Adds the token types of a file to the sample, unless this would exceed
+     * the budget.
+     * 
+     * @param tokens
+     *            Filled token stream of the file
+     * @return true if the file was added
+     */
+    public boolean sample(final TokenStream tokens)
+    {
+        final int size = tokens.size();
+        synchronized (this)
+        {
+            if (sampled + size > budget)
+            {
+                return false;
+            }
+            sampled += size;
+        }
+
+        final byte[] types = new byte[size];
+        int n = 0;
+        for (int i = 0; i < size; i++)
+        {
+            final Token token = tokens.get(i);
+            if (token.getType() == Token.EOF)
+            {
+                break;
+            }
+            if (token.getChannel() != Token.DEFAULT_CHANNEL)
+            {
+                if (n > 0 && types[n - 1] != DfaSnapshot.GAP)
+                {
+                    types[n++] = DfaSnapshot.GAP;
+                }
+            }
+            else if (token.getType() > 0xFF)
+            {
+                return false;
+            }
+            else
+            {
+                types[n++] = (byte) token.getType();
+            }
+        }
+
+        final byte[] sample = new byte[n];
+        System.arraycopy(types, 0, sample, 0, n);
+        synchronized (this)
+        {
+            samples.add(sample);
+        }
+        return true;
+    }
+
+    /**
+     * @return Number of files sampled
+     */
+    public synchronized int getSampleCount()
+    {
+        return samples.size();
+    }
+
+    /**
+     * Writes the sample to the given file, replacing it atomically.
+     * 
+     * @param file
+     *            File to write
+     * @throws IOException
+     *             If the file cannot be written
+     */
+    public void save(final Path file) throws IOException
+    {
+        final List<byte[]> copy;
+        synchronized (this)
+        {
+            copy = Lists.newArrayList(samples);
+        }
+
+        final Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        final Path temp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try
+        {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp))))
+            {
+                out.writeInt(DfaSnapshot.MAGIC);
+                out.writeInt(DfaSnapshot.FORMAT);
+                out.writeUTF(ParseCache.grammarVersion());
+                out.writeInt(copy.size());
+                for (final byte[] sample : copy)
+                {
+                    out.writeInt(sample.length);
+                    out.write(sample);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        finally
+        {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Reads a snapshot written by {@link #save(Path)}.
+     * 
+     * @param file
+     *            File to read
+     * @return The snapshot, or null if the file does not exist or was written
+     *         by a different version of the grammar
+     * @throws IOException
+     *             If the file cannot be read or is malformed
+     */
+    public static DfaSnapshot load(final Path file) throws IOException
+    {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file))))
+        {
+            if (in.readInt() != DfaSnapshot.MAGIC)
+            {
+                throw new IOException(file + " is not a DFA snapshot");
+            }
+            if (in.readInt() != DfaSnapshot.FORMAT || !ParseCache.grammarVersion().equals(in.readUTF()))
+            {
+                DfaSnapshot.LOG.info("Ignoring DFA snapshot " + file + " taken with a different grammar version");
+                return null;
+            }
+
+            final int count = in.readInt();
+            final DfaSnapshot snapshot = new DfaSnapshot(Integer.MAX_VALUE);
+            for (int i = 0; i < count; i++)
+            {
+                final byte[] sample = new byte[in.readInt()];
+                in.readFully(sample);
+                snapshot.samples.add(sample);
+                snapshot.sampled += sample.length;
+            }
+            return snapshot;
+        }
+        catch (final NoSuchFileException e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Warms the parser's DFA by parsing every sampled sequence with SLL
+     * prediction. Sequences which fail to parse are abandoned at the point
+     * of failure, having still contributed the states leading up to it.
+     * 
+     * @return Number of sequences replayed
+     */
+    public int replay()
+    {
+        return replay(null);
+    }
+
+    /**
+     * Warms the given prediction cache by parsing every sampled sequence with
+     * SLL prediction.
+     * 
+     * @param dfaCache
+     *            Prediction cache to warm, or null to warm the parser's static
+     *            cache
+     * @return Number of sequences replayed
+     */
+    public int replay(final ParserDfaCache dfaCache)
+    {
+        final List<byte[]> copy;
+        synchronized (this)
+        {
+            copy = Lists.newArrayList(samples);
+        }
+
+        for (final byte[] sample : copy)
+        {
+            final CSharp6Parser parser = new CSharp6Parser(
+                    new CommonTokenStream(new ListTokenSource(DfaSnapshot.tokens(sample))));
+            if (dfaCache != null)
+            {
+                dfaCache.install(parser);
+            }
+            parser.setBuildParseTree(false);
+            parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+            parser.setErrorHandler(new BailErrorStrategy());
+            parser.removeErrorListeners();
+            try
+            {
+                parser.compilation_unit();
+            }
+            catch (final ParseCancellationException e)
+            {
+                // the states built up to the failure are kept
+            }
+        }
+        return copy.size();
+    }
+
+    /**
+     * @param sample
+     *            Sampled token types
+     * @return Tokens of the given types, with a hidden token for each gap
+     */
+    private static List<Token> tokens(final byte[] sample)
+    {
+        final List<Token> tokens = Lists.newArrayListWithCapacity(sample.length);
+        for (final byte b : sample)
+        {
+            final int type = b & 0xFF;
+            final CommonToken token = type == DfaSnapshot.GAP
+                    ? new CommonToken(CSharp6Parser.WHITESPACE, " ") : new CommonToken(type, "");
+            if (type == DfaSnapshot.GAP)
+            {
+                token.setChannel(Token.HIDDEN_CHANNEL);
+            }
+            tokens.add(token);
+        }
+        return tokens;
+    }
+}
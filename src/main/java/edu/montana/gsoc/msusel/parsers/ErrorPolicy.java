@@ -0,0 +1,250 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+/**
+ * How the {@link CSharpParseEngine} handles files with syntax errors once SLL
+ * prediction has failed. By default errors are reported to the parser's error
+ * listeners and recovered from without limit, which keeps as much of each
+ * file as possible but can be very slow for files using syntax the grammar
+ * does not know. Bailing out, or capping the number of errors, instead fails
+ * such files quickly. Errors within the members of types are recovered from
+ * by skipping the rest of the member (see {@link MemberResyncErrorStrategy}).
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class ErrorPolicy {
+
+    /**
+     * Whether the first syntax error fails the file
+     */
+    private final boolean          bailOut;
+    /**
+     * Number of syntax errors at which the file fails, zero for no limit
+     */
+    private final int              maxErrors;
+    /**
+     * Whether syntax errors are reported to the parser's error listeners
+     */
+    private final boolean          reportErrors;
+    /**
+     * What is done with quarantined files
+     */
+    private final QuarantineAction quarantineAction;
+    /**
+     * Whether errors within members are recovered from by skipping the member
+     */
+    private final boolean          resyncAtMembers;
+
+    /**
+     * Constructs a new ErrorPolicy from the provided builder
+     * 
+     * @param builder
+     *            Builder holding the configuration
+     */
+    private ErrorPolicy(final Builder builder)
+    {
+        bailOut = builder.bailOut;
+        maxErrors = builder.maxErrors;
+        reportErrors = builder.reportErrors;
+        quarantineAction = builder.quarantineAction;
+        resyncAtMembers = builder.resyncAtMembers;
+    }
+
+    /**
+     * @return A new builder used to configure an ErrorPolicy
+     */
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    /**
+     * @return true if the first syntax error fails the file
+     */
+    public boolean isBailOut()
+    {
+        return bailOut;
+    }
+
+    /**
+     * @return The number of syntax errors at which a file fails, zero if
+     *         unlimited
+     */
+    public int getMaxErrors()
+    {
+        return maxErrors;
+    }
+
+    /**
+     * @return true if syntax errors are reported to the parser's error
+     *         listeners
+     */
+    public boolean isReportErrors()
+    {
+        return reportErrors;
+    }
+
+    /**
+     * @return What is done with quarantined files
+     */
+    public QuarantineAction getQuarantineAction()
+    {
+        return quarantineAction;
+    }
+
+    /**
+     * @return true if errors within members are recovered from by skipping
+     *         the rest of the member
+     */
+    public boolean isResyncAtMembers()
+    {
+        return resyncAtMembers;
+    }
+
+    /**
+     * Builder used to configure an ErrorPolicy
+     *
+     * @author Isaac Griffith
+     */
+    public static class Builder {
+
+        /**
+         * Whether the first syntax error fails the file
+         */
+        private boolean          bailOut;
+        /**
+         * Number of syntax errors at which the file fails, zero for no limit
+         */
+        private int              maxErrors;
+        /**
+         * Whether syntax errors are reported to the parser's error listeners
+         */
+        private boolean          reportErrors     = true;
+        /**
+         * What is done with quarantined files
+         */
+        private QuarantineAction quarantineAction = QuarantineAction.SKIP;
+        /**
+         * Whether errors within members are recovered from by skipping the
+         * member
+         */
+        private boolean          resyncAtMembers  = true;
+
+        /**
+         * Private constructor, use {@link ErrorPolicy#builder()}
+         */
+        private Builder()
+        {
+        }
+
+        /**
+         * Fails a file at its first syntax error, without attempting to
+         * recover. Defaults to false.
+         * 
+         * @param bailOut
+         *            true to fail at the first error
+         * @return This builder
+         */
+        public Builder bailOut(final boolean bailOut)
+        {
+            this.bailOut = bailOut;
+            return this;
+        }
+
+        /**
+         * Fails a file once the given number of syntax errors have been
+         * reported. Defaults to no limit.
+         * 
+         * @param maxErrors
+         *            Maximum number of errors, zero for no limit
+         * @return This builder
+         */
+        public Builder maxErrors(final int maxErrors)
+        {
+            if (maxErrors < 0)
+            {
+                throw new IllegalArgumentException("maxErrors must not be negative");
+            }
+            this.maxErrors = maxErrors;
+            return this;
+        }
+
+        /**
+         * Sets whether syntax errors are reported to the parser's error
+         * listeners, which by default print them to the console. Defaults to
+         * true.
+         * 
+         * @param reportErrors
+         *            false to suppress reporting
+         * @return This builder
+         */
+        public Builder reportErrors(final boolean reportErrors)
+        {
+            this.reportErrors = reportErrors;
+            return this;
+        }
+
+        /**
+         * Sets what is done with files recorded in the quarantine. Defaults
+         * to {@link QuarantineAction#SKIP}.
+         * 
+         * @param quarantineAction
+         *            Action for quarantined files
+         * @return This builder
+         */
+        public Builder quarantineAction(final QuarantineAction quarantineAction)
+        {
+            this.quarantineAction = quarantineAction;
+            return this;
+        }
+
+        /**
+         * Sets whether a syntax error within the member of a type is
+         * recovered from by skipping the rest of the member and resuming with
+         * the next, rather than by ANTLR's default recovery, which may
+         * consume the members following it. Defaults to true.
+         * 
+         * @param resyncAtMembers
+         *            false to use ANTLR's default recovery throughout
+         * @return This builder
+         */
+        public Builder resyncAtMembers(final boolean resyncAtMembers)
+        {
+            this.resyncAtMembers = resyncAtMembers;
+            return this;
+        }
+
+        /**
+         * @return The configured ErrorPolicy
+         */
+        public ErrorPolicy create()
+        {
+            return new ErrorPolicy(this);
+        }
+    }
+}
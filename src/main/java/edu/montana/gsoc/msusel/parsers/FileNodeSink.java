@@ -0,0 +1,216 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.google.common.collect.Lists;
+
+import edu.montana.gsoc.msusel.CodeTree;
+import edu.montana.gsoc.msusel.node.FileNode;
+
+/**
+ * Collects the FileNodes produced by the workers of a project parse and
+ * merges them into the CodeTree once the workers have finished. Each worker
+ * thread appends to a buffer of its own, so workers never contend with each
+ * other or with the CodeTree, and the tree is only ever modified by the
+ * thread which merges. Files are merged in the order in which they were
+ * submitted, or by path, regardless of the order in which they finished.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+class FileNodeSink {
+
+    /**
+     * Buffers of every thread which has added a file
+     */
+    private final Queue<List<Entry>>       buffers = new ConcurrentLinkedQueue<>();
+    /**
+     * Entries used only for files with no other entry
+     */
+    private final Queue<Entry>             fallbacks = new ConcurrentLinkedQueue<>();
+    /**
+     * Buffer of the current thread
+     */
+    private final ThreadLocal<List<Entry>> buffer;
+    /**
+     * Whether files are merged in order of their paths rather than the order
+     * of their submission
+     */
+    private final boolean                  byPath;
+
+    /**
+     * Constructs a new, empty, FileNodeSink
+     * 
+     * @param byPath
+     *            true to merge files in order of their paths, false to merge
+     *            them in the order they were submitted
+     */
+    FileNodeSink(final boolean byPath)
+    {
+        this.byPath = byPath;
+        buffer = ThreadLocal.withInitial(() -> {
+            final List<Entry> created = Lists.newArrayList();
+            buffers.add(created);
+            return created;
+        });
+    }
+
+    /**
+     * Adds a file to the buffer of the current thread.
+     * 
+     * @param index
+     *            Position of the file among the files submitted
+     * @param node
+     *            FileNode of the file, null if it failed
+     * @param outcome
+     *            Outcome of the file
+     */
+    void add(final int index, final FileNode node, final FileParseOutcome outcome)
+    {
+        buffer.get().add(new Entry(index, node, outcome));
+    }
+
+    /**
+     * Adds the outcome of a file which may not have been added, used only
+     * when no other entry has been added for the file.
+     * 
+     * @param index
+     *            Position of the file among the files submitted
+     * @param outcome
+     *            Outcome of the file
+     */
+    void addFallback(final int index, final FileParseOutcome outcome)
+    {
+        fallbacks.add(new Entry(index, null, outcome));
+    }
+
+    /**
+     * Merges the buffers of all threads into the given tree. Must only be
+     * called once every file has been added and the adding threads have
+     * been joined.
+     * 
+     * @param tree
+     *            CodeTree receiving the FileNodes
+     * @param outcomes
+     *            List receiving the outcome of each file, in merge order
+     */
+    void mergeInto(final CodeTree tree, final List<FileParseOutcome> outcomes)
+    {
+        int size = 0;
+        for (final List<Entry> entries : buffers)
+        {
+            for (final Entry entry : entries)
+            {
+                size = Math.max(size, entry.index + 1);
+            }
+        }
+        for (final Entry entry : fallbacks)
+        {
+            size = Math.max(size, entry.index + 1);
+        }
+
+        Entry[] ordered = new Entry[size];
+        for (final List<Entry> entries : buffers)
+        {
+            for (final Entry entry : entries)
+            {
+                ordered[entry.index] = entry;
+            }
+        }
+        for (final Entry entry : fallbacks)
+        {
+            if (ordered[entry.index] == null)
+            {
+                ordered[entry.index] = entry;
+            }
+        }
+
+        if (byPath)
+        {
+            ordered = Arrays.stream(ordered).filter(Objects::nonNull)
+                    .sorted(Comparator.comparing((final Entry entry) -> entry.outcome.getFile()))
+                    .toArray(Entry[]::new);
+        }
+
+        for (final Entry entry : ordered)
+        {
+            if (entry == null)
+            {
+                continue;
+            }
+            if (entry.node != null)
+            {
+                tree.getProject().addFile(entry.node);
+            }
+            outcomes.add(entry.outcome);
+        }
+    }
+
+    /**
+     * A file added to a buffer
+     *
+     * @author Isaac Griffith
+     */
+    private static class Entry {
+
+        /**
+         * Position of the file among the files submitted
+         */
+        private final int              index;
+        /**
+         * FileNode of the file, null if it failed
+         */
+        private final FileNode         node;
+        /**
+         * Outcome of the file
+         */
+        private final FileParseOutcome outcome;
+
+        /**
+         * Constructs a new Entry
+         * 
+         * @param index
+         *            Position of the file among the files submitted
+         * @param node
+         *            FileNode of the file, may be null
+         * @param outcome
+         *            Outcome of the file
+         */
+        private Entry(final int index, final FileNode node, final FileParseOutcome outcome)
+        {
+            this.index = index;
+            this.node = node;
+            this.outcome = outcome;
+        }
+    }
+}
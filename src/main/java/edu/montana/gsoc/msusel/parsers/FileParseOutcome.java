@@ -0,0 +1,240 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.nio.file.Path;
+
+/**
+ * Records what happened to a single file during a project parse.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class FileParseOutcome {
+
+    /**
+     * The file
+     */
+    private final Path            file;
+    /**
+     * Final status of the file
+     */
+    private final FileParseStatus status;
+    /**
+     * Stage which produced the parse tree, null if the file was never parsed
+     */
+    private final ParseStage      stage;
+    /**
+     * Number of syntax errors reported
+     */
+    private final int             syntaxErrors;
+    /**
+     * Time spent in each phase for this file
+     */
+    private final PhaseTimings    timings;
+    /**
+     * Cause of failure, null unless the status is FAILED or TIMED_OUT
+     */
+    private final Throwable       error;
+
+    /**
+     * Constructs a new FileParseOutcome
+     * 
+     * @param file
+     *            The file
+     * @param status
+     *            Final status
+     * @param stage
+     *            Stage which produced the parse tree, may be null
+     * @param syntaxErrors
+     *            Number of syntax errors reported
+     * @param timings
+     *            Time spent in each phase
+     * @param error
+     *            Cause of failure, may be null
+     */
+    public FileParseOutcome(final Path file, final FileParseStatus status, final ParseStage stage,
+            final int syntaxErrors, final PhaseTimings timings, final Throwable error)
+    {
+        this.file = file;
+        this.status = status;
+        this.stage = stage;
+        this.syntaxErrors = syntaxErrors;
+        this.timings = timings;
+        this.error = error;
+    }
+
+    /**
+     * Creates an outcome for a file which was successfully parsed
+     * 
+     * @param file
+     *            The file
+     * @param result
+     *            Result of parsing the file
+     * @param timings
+     *            Time spent in each phase
+     * @return The outcome
+     */
+    public static FileParseOutcome parsed(final Path file, final CSharpParseResult result, final PhaseTimings timings)
+    {
+        return new FileParseOutcome(file, FileParseStatus.PARSED, result.getStage(), result.getSyntaxErrors(),
+                timings, null);
+    }
+
+    /**
+     * Creates an outcome for a file whose nodes were rebuilt from the cache
+     * 
+     * @param file
+     *            The file
+     * @param timings
+     *            Time spent in each phase
+     * @return The outcome
+     */
+    public static FileParseOutcome cached(final Path file, final PhaseTimings timings)
+    {
+        return new FileParseOutcome(file, FileParseStatus.CACHED, null, 0, timings, null);
+    }
+
+    /**
+     * Creates an outcome for a file which was skipped as it is quarantined
+     * 
+     * @param file
+     *            The file
+     * @param timings
+     *            Time spent in each phase
+     * @return The outcome
+     */
+    public static FileParseOutcome quarantined(final Path file, final PhaseTimings timings)
+    {
+        return new FileParseOutcome(file, FileParseStatus.QUARANTINED, null, 0, timings, null);
+    }
+
+    /**
+     * Creates an outcome for a file whose time budget ran out
+     * 
+     * @param file
+     *            The file
+     * @param error
+     *            Exception reporting the timeout
+     * @param timings
+     *            Time spent in each phase before the timeout
+     * @return The outcome
+     */
+    public static FileParseOutcome timedOut(final Path file, final Throwable error, final PhaseTimings timings)
+    {
+        return new FileParseOutcome(file, FileParseStatus.TIMED_OUT, null, 0, timings, error);
+    }
+
+    /**
+     * Creates an outcome for a file which was not complete when the parse was
+     * cancelled
+     * 
+     * @param file
+     *            The file
+     * @param timings
+     *            Time spent in each phase before the cancellation
+     * @return The outcome
+     */
+    public static FileParseOutcome cancelled(final Path file, final PhaseTimings timings)
+    {
+        return new FileParseOutcome(file, FileParseStatus.CANCELLED, null, 0, timings, null);
+    }
+
+    /**
+     * Creates an outcome for a file which could not be processed
+     * 
+     * @param file
+     *            The file
+     * @param error
+     *            Cause of the failure
+     * @param timings
+     *            Time spent in each phase before the failure
+     * @return The outcome
+     */
+    public static FileParseOutcome failed(final Path file, final Throwable error, final PhaseTimings timings)
+    {
+        return new FileParseOutcome(file, FileParseStatus.FAILED, null, 0, timings, error);
+    }
+
+    /**
+     * @return The file
+     */
+    public Path getFile()
+    {
+        return file;
+    }
+
+    /**
+     * @return Final status of the file
+     */
+    public FileParseStatus getStatus()
+    {
+        return status;
+    }
+
+    /**
+     * @return Stage which produced the parse tree, or null if the file was
+     *         never parsed
+     */
+    public ParseStage getStage()
+    {
+        return stage;
+    }
+
+    /**
+     * @return Number of syntax errors reported
+     */
+    public int getSyntaxErrors()
+    {
+        return syntaxErrors;
+    }
+
+    /**
+     * @return Time spent in each phase for this file
+     */
+    public PhaseTimings getTimings()
+    {
+        return timings;
+    }
+
+    /**
+     * @return Cause of failure, or null if the file did not fail
+     */
+    public Throwable getError()
+    {
+        return error;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return file + ": " + status + (stage == null ? "" : " (" + stage + ")")
+                + (error == null ? "" : " " + error.getMessage());
+    }
+}
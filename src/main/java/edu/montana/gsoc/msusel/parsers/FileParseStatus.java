@@ -0,0 +1,63 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+/**
+ * Final status of a single file processed by the {@link CSharpProjectParser}.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public enum FileParseStatus {
+    /**
+     * The file was parsed and its nodes were added to the CodeTree
+     */
+    PARSED,
+    /**
+     * The file was unchanged since it was last parsed, and its nodes were
+     * rebuilt from the {@link ParseCache}
+     */
+    CACHED,
+    /**
+     * The file could not be processed and contributed nothing to the CodeTree
+     */
+    FAILED,
+    /**
+     * The file failed in an earlier run, is unchanged since, and was skipped
+     * as recorded in the {@link ParseQuarantine}
+     */
+    QUARANTINED,
+    /**
+     * The file was still being parsed when its time budget ran out, and
+     * contributed nothing to the CodeTree
+     */
+    TIMED_OUT,
+    /**
+     * The parse was cancelled before the file was complete, and the file
+     * contributed nothing to the CodeTree
+     */
+    CANCELLED;
+}
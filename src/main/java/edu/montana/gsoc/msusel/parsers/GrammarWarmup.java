@@ -0,0 +1,131 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.Token;
+
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser;
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6PreProcessor;
+
+/**
+ * Loads the generated grammar classes ahead of the first parse. The static
+ * initializers of {@link CSharp6PreProcessor} and {@link CSharp6Parser}
+ * deserialize their ATNs, which dominates the time to the first parse.
+ * Warming up starts both on background threads, in parallel with each other
+ * and with whatever the caller does next (such as listing the files to
+ * parse), so that the classes are ready by the time they are needed. Only
+ * the C# 6 grammar used by this parser is loaded.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public final class GrammarWarmup {
+
+    /**
+     * Source lexed to initialize the lexer's simulator and DFA
+     */
+    private static final String            SOURCE   = "using System; namespace N { class C { void M() { } } }";
+    /**
+     * Runs each task on its own daemon thread
+     */
+    private static final Executor          THREADS  = task -> {
+        final Thread thread = new Thread(task, "csharp-grammar-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    };
+    /**
+     * The warm-up, null if not yet started
+     */
+    private static CompletableFuture<Void> warmup;
+
+    /**
+     * Private constructor, this class only has static methods
+     */
+    private GrammarWarmup()
+    {
+    }
+
+    /**
+     * Starts loading the grammar in the background, if it has not already
+     * been started. Returns immediately.
+     * 
+     * @return Future completing once the grammar is loaded
+     */
+    public static synchronized CompletableFuture<Void> start()
+    {
+        if (GrammarWarmup.warmup == null)
+        {
+            GrammarWarmup.warmup = CompletableFuture.allOf(
+                    CompletableFuture.runAsync(GrammarWarmup::lexer, GrammarWarmup.THREADS),
+                    CompletableFuture.runAsync(GrammarWarmup::parser, GrammarWarmup.THREADS));
+        }
+        return GrammarWarmup.warmup;
+    }
+
+    /**
+     * Loads the grammar, starting the warm-up if necessary, and waits for it
+     * to finish.
+     * 
+     * @throws InterruptedException
+     *             If the calling thread is interrupted while waiting
+     */
+    public static void await() throws InterruptedException
+    {
+        try
+        {
+            GrammarWarmup.start().get();
+        }
+        catch (final ExecutionException e)
+        {
+            throw new IllegalStateException("Unable to load the C# grammar", e.getCause());
+        }
+    }
+
+    /**
+     * Initializes the lexer by lexing a small source
+     */
+    private static void lexer()
+    {
+        final CSharp6PreProcessor lexer = new CSharp6PreProcessor(new ANTLRInputStream(GrammarWarmup.SOURCE));
+        while (lexer.nextToken().getType() != Token.EOF)
+        {
+            // lex to the end
+        }
+    }
+
+    /**
+     * Initializes the parser class, deserializing its ATN
+     */
+    private static void parser()
+    {
+        CSharp6Parser._ATN.getNumberOfDecisions();
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.util.concurrent.CancellationException;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.Token;
+
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6PreProcessor;
+
+/**
+ * Lexer which stops once a deadline has passed or a {@link CancellationToken}
+ * has been cancelled, so that the time budget of a file covers lexing as well
+ * as prediction, as {@link GuardedSimulator} does for the parser. The checks
+ * are made on every {@value #INTERVAL}th token, and the lexer is disarmed
+ * whenever it is reset for a new input.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+class GuardedPreProcessor extends CSharp6PreProcessor {
+
+    /**
+     * Number of tokens between checks, a power of two
+     */
+    private static final int  INTERVAL = 256;
+    /**
+     * Time, as of {@link System#nanoTime()}, after which lexing stops
+     */
+    private long              deadline = Long.MAX_VALUE;
+    /**
+     * Length of the budget, used to describe the timeout
+     */
+    private long              budget;
+    /**
+     * Token stopping the lexer when cancelled, null if not cancellable
+     */
+    private CancellationToken cancellation;
+    /**
+     * Whether either check is active
+     */
+    private boolean           armed;
+    /**
+     * Number of tokens produced since the lexer was armed
+     */
+    private int               tokens;
+
+    /**
+     * Constructs a new GuardedPreProcessor, unarmed
+     * 
+     * @param input
+     *            Input to lex
+     */
+    GuardedPreProcessor(final CharStream input)
+    {
+        super(input);
+    }
+
+    /**
+     * Arms the given lexer if it is a GuardedPreProcessor. Other lexers are
+     * left unbounded.
+     * 
+     * @param lexer
+     *            Lexer positioned at the start of a file
+     * @param start
+     *            Time, as of {@link System#nanoTime()}, from which the budget
+     *            is measured
+     * @param budget
+     *            Time in nanoseconds the file may take from the start, zero
+     *            for no limit
+     * @param cancellation
+     *            Token stopping the lexer, may be null
+     */
+    static void guard(final CSharp6PreProcessor lexer, final long start, final long budget,
+            final CancellationToken cancellation)
+    {
+        if (lexer instanceof GuardedPreProcessor)
+        {
+            ((GuardedPreProcessor) lexer).arm(start, budget, cancellation);
+        }
+    }
+
+    /**
+     * Arms the lexer
+     * 
+     * @param start
+     *            Time, as of {@link System#nanoTime()}, from which the budget
+     *            is measured
+     * @param budget
+     *            Time in nanoseconds the file may take from the start, zero
+     *            for no limit
+     * @param cancellation
+     *            Token stopping the lexer, may be null
+     */
+    void arm(final long start, final long budget, final CancellationToken cancellation)
+    {
+        this.budget = budget;
+        this.cancellation = cancellation;
+        deadline = budget > 0 ? start + budget : Long.MAX_VALUE;
+        armed = budget > 0 || cancellation != null;
+        tokens = 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reset()
+    {
+        super.reset();
+        arm(0, 0, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Token nextToken()
+    {
+        if (armed && (++tokens & (GuardedPreProcessor.INTERVAL - 1)) == 0)
+        {
+            check();
+        }
+        return super.nextToken();
+    }
+
+    /**
+     * Stops lexing if it has been cancelled or its deadline has passed.
+     */
+    private void check()
+    {
+        if (cancellation != null && cancellation.isCancelled())
+        {
+            throw new CancellationException("Parse cancelled");
+        }
+        if (System.nanoTime() > deadline)
+        {
+            throw new ParseTimeoutException("Exceeded the time budget of " + budget / 1_000_000 + " ms");
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.util.concurrent.CancellationException;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.atn.ATNConfigSet;
+import org.antlr.v4.runtime.atn.ParserATNSimulator;
+import org.antlr.v4.runtime.atn.PredictionContextCache;
+import org.antlr.v4.runtime.dfa.DFA;
+
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser;
+
+/**
+ * Prediction simulator which stops the parse once a deadline has passed or a
+ * {@link CancellationToken} has been cancelled. Prediction is where a parser
+ * spends its time, and where pathological input makes it spend too much, so
+ * checking there stops a parse promptly without slowing ordinary files: the
+ * deadline is checked on every step of ATN simulation, and otherwise only on
+ * every {@value #INTERVAL}th prediction.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+class GuardedSimulator extends ParserATNSimulator {
+
+    /**
+     * Number of predictions between checks, a power of two
+     */
+    private static final int  INTERVAL = 64;
+    /**
+     * Time, as of {@link System#nanoTime()}, after which the parse stops
+     */
+    private long              deadline = Long.MAX_VALUE;
+    /**
+     * Length of the budget, used to describe the timeout
+     */
+    private long              budget;
+    /**
+     * Token stopping the parse when cancelled, null if not cancellable
+     */
+    private CancellationToken cancellation;
+    /**
+     * Whether either check is active
+     */
+    private boolean           armed;
+    /**
+     * Number of predictions made
+     */
+    private int               predictions;
+
+    /**
+     * Constructs a new GuardedSimulator, unarmed
+     * 
+     * @param parser
+     *            Parser which uses the simulator
+     * @param decisionToDFA
+     *            DFA of each decision
+     * @param contexts
+     *            Cache of prediction contexts
+     */
+    GuardedSimulator(final CSharp6Parser parser, final DFA[] decisionToDFA, final PredictionContextCache contexts)
+    {
+        super(parser, CSharp6Parser._ATN, decisionToDFA, contexts);
+    }
+
+    /**
+     * Arms the simulator of the given parser, first replacing it with a
+     * GuardedSimulator sharing the same prediction tables if necessary. When
+     * there is neither a budget nor a token, an existing GuardedSimulator is
+     * disarmed and the parser is otherwise left as it is.
+     * 
+     * @param parser
+     *            Parser to guard
+     * @param start
+     *            Time, as of {@link System#nanoTime()}, from which the budget
+     *            is measured
+     * @param budget
+     *            Time in nanoseconds the parse may take from the start, zero
+     *            for no limit
+     * @param cancellation
+     *            Token stopping the parse, may be null
+     */
+    static void guard(final CSharp6Parser parser, final long start, final long budget,
+            final CancellationToken cancellation)
+    {
+        ParserATNSimulator simulator = parser.getInterpreter();
+        if (!(simulator instanceof GuardedSimulator))
+        {
+            if (budget <= 0 && cancellation == null)
+            {
+                return;
+            }
+            simulator = new GuardedSimulator(parser, simulator.decisionToDFA, simulator.getSharedContextCache());
+            parser.setInterpreter(simulator);
+        }
+        ((GuardedSimulator) simulator).arm(start, budget, cancellation);
+    }
+
+    /**
+     * Arms the simulator
+     * 
+     * @param start
+     *            Time, as of {@link System#nanoTime()}, from which the budget
+     *            is measured
+     * @param budget
+     *            Time in nanoseconds the parse may take from the start, zero
+     *            for no limit
+     * @param cancellation
+     *            Token stopping the parse, may be null
+     */
+    void arm(final long start, final long budget, final CancellationToken cancellation)
+    {
+        this.budget = budget;
+        this.cancellation = cancellation;
+        deadline = budget > 0 ? start + budget : Long.MAX_VALUE;
+        armed = budget > 0 || cancellation != null;
+        predictions = 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int adaptivePredict(final TokenStream input, final int decision, final ParserRuleContext outerContext)
+    {
+        if (armed && (++predictions & (GuardedSimulator.INTERVAL - 1)) == 0)
+        {
+            check();
+        }
+        return super.adaptivePredict(input, decision, outerContext);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected ATNConfigSet computeReachSet(final ATNConfigSet closure, final int t, final boolean fullCtx)
+    {
+        if (armed)
+        {
+            check();
+        }
+        return super.computeReachSet(closure, t, fullCtx);
+    }
+
+    /**
+     * Stops the parse if it has been cancelled or its deadline has passed.
+     */
+    private void check()
+    {
+        if (cancellation != null && cancellation.isCancelled())
+        {
+            throw new CancellationException("Parse cancelled");
+        }
+        if (System.nanoTime() > deadline)
+        {
+            throw new ParseTimeoutException("Exceeded the time budget of " + budget / 1_000_000 + " ms");
+        }
+    }
+}
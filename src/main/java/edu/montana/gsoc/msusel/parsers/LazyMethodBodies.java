@@ -0,0 +1,439 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+
+import edu.montana.gsoc.msusel.node.MethodNode;
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser;
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Method_bodyContext;
+
+/**
+ * Registry of the method bodies which were skipped while parsing in outline
+ * mode. Each body retains only its token range, and is parsed with the
+ * method_body rule the first time its statements are requested. As the
+ * statements of a MethodNode are not available until then, consumers of
+ * statements or statement derived metrics must call
+ * {@link #ensureParsed(MethodNode)} (or {@link #parseAll()}) first.
+ * <p>
+ * Bodies are parsed by the same {@link CSharpParseEngine}, and so under the
+ * same {@link ErrorPolicy}, as the files containing them, and each body is
+ * given the same time budget as a file. As the outcome of a file is reported
+ * before its bodies are parsed, syntax errors found in the bodies, and bodies
+ * which could not be parsed, are counted here instead.
+ * <p>
+ * Instances are safe to use from multiple threads.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class LazyMethodBodies {
+
+    /**
+     * Logger to log the process of parsing the bodies
+     */
+    private static final Logger                LOG = LoggerFactory.getLogger(LazyMethodBodies.class);
+    /**
+     * Bodies which have not yet been parsed, keyed by the method owning them
+     */
+    private final Map<MethodNode, PendingBody> pending;
+    /**
+     * Prediction cache used to parse the bodies, null to use the parser's
+     * static cache
+     */
+    private final ParserDfaCache               dfaCache;
+    /**
+     * Parse strategy used to parse the bodies
+     */
+    private final CSharpParseEngine            engine;
+    /**
+     * Time in nanoseconds each body may take to parse, zero for no limit
+     */
+    private final long                         timeout;
+    /**
+     * Token stopping the parse of bodies, null if not cancellable
+     */
+    private final CancellationToken            cancellation;
+    /**
+     * Number of syntax errors reported in the bodies parsed so far
+     */
+    private final AtomicInteger                syntaxErrors = new AtomicInteger();
+    /**
+     * Number of bodies which could not be parsed
+     */
+    private final AtomicInteger                failed       = new AtomicInteger();
+
+    /**
+     * Constructs a new, empty, LazyMethodBodies
+     */
+    public LazyMethodBodies()
+    {
+        this(null);
+    }
+
+    /**
+     * Constructs a new, empty, LazyMethodBodies which parses bodies using the
+     * given prediction cache
+     * 
+     * @param dfaCache
+     *            Prediction cache, or null to use the parser's static cache
+     */
+    public LazyMethodBodies(final ParserDfaCache dfaCache)
+    {
+        this(dfaCache, new CSharpParseEngine(), 0, null);
+    }
+
+    /**
+     * Constructs a new, empty, LazyMethodBodies which parses bodies as the
+     * files containing them were parsed
+     * 
+     * @param dfaCache
+     *            Prediction cache, or null to use the parser's static cache
+     * @param engine
+     *            Parse strategy, applying the error policy of the files
+     * @param timeout
+     *            Time in nanoseconds each body may take to parse, zero for no
+     *            limit
+     * @param cancellation
+     *            Token stopping the parse of bodies, may be null
+     */
+    public LazyMethodBodies(final ParserDfaCache dfaCache, final CSharpParseEngine engine, final long timeout,
+            final CancellationToken cancellation)
+    {
+        pending = Collections.synchronizedMap(new IdentityHashMap<>());
+        this.dfaCache = dfaCache;
+        this.engine = engine;
+        this.timeout = timeout;
+        this.cancellation = cancellation;
+    }
+
+    /**
+     * Creates the registrar used while walking a single file
+     * 
+     * @param tokens
+     *            Token stream of the file, in which its bodies are collapsed
+     * @return Registrar adding the bodies of the file to this registry
+     */
+    FileBodies forFile(final OutlineTokenStream tokens)
+    {
+        return new FileBodies(tokens);
+    }
+
+    /**
+     * @param method
+     *            A method
+     * @return true if the parse of the body of the method has not yet been
+     *         completed
+     */
+    public boolean isPending(final MethodNode method)
+    {
+        return pending.containsKey(method);
+    }
+
+    /**
+     * @return Number of bodies which have not yet been parsed
+     */
+    public int getPendingCount()
+    {
+        return pending.size();
+    }
+
+    /**
+     * @return Number of syntax errors reported in the bodies parsed so far
+     */
+    public int getSyntaxErrors()
+    {
+        return syntaxErrors.get();
+    }
+
+    /**
+     * @return Number of bodies which could not be parsed, as their parse was
+     *         given up on by the error policy, ran out of time, or was
+     *         cancelled
+     */
+    public int getFailedCount()
+    {
+        return failed.get();
+    }
+
+    /**
+     * Parses the body of the given method, adding its statements to the
+     * method, if this has not already been done.
+     * 
+     * @param method
+     *            The method whose statements are required
+     * @return true if the body was parsed by this call, false if it had
+     *         already been parsed, was parsed by another thread meanwhile, or
+     *         was never deferred
+     */
+    public boolean ensureParsed(final MethodNode method)
+    {
+        final PendingBody body = pending.get(method);
+        if (body == null)
+        {
+            return false;
+        }
+
+        // the body stays pending until parsed, so that concurrent callers
+        // wait for its statements rather than find the method without them
+        final boolean parsed = body.parseOnce(method);
+        pending.remove(method, body);
+        return parsed;
+    }
+
+    /**
+     * Parses every pending body.
+     * 
+     * @return Number of bodies parsed
+     */
+    public int parseAll()
+    {
+        final List<MethodNode> methods;
+        synchronized (pending)
+        {
+            methods = Lists.newArrayList(pending.keySet());
+        }
+
+        int count = 0;
+        for (final MethodNode method : methods)
+        {
+            if (ensureParsed(method))
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Collects the bodies of a single file. The token stream of the file is
+     * shared by all of its bodies and released once the last of them has
+     * been parsed.
+     *
+     * @author Isaac Griffith
+     */
+    class FileBodies {
+
+        /**
+         * Tokens of the file, null once all bodies have been parsed
+         */
+        private OutlineTokenStream     tokens;
+        /**
+         * Methods whose bodies were registered by this file
+         */
+        private final List<MethodNode> methods;
+        /**
+         * Number of bodies of the file yet to be parsed
+         */
+        private int                    remaining;
+
+        /**
+         * Constructs a new FileBodies
+         * 
+         * @param tokens
+         *            Token stream of the file
+         */
+        private FileBodies(final OutlineTokenStream tokens)
+        {
+            this.tokens = tokens;
+            methods = Lists.newArrayList();
+        }
+
+        /**
+         * Defers the parsing of a body of the given method, provided the
+         * parser skipped it. A body which could not be collapsed, such as one
+         * which is never closed, was parsed along with the file and is left
+         * alone.
+         * 
+         * @param method
+         *            Method owning the body
+         * @param open
+         *            Index of the opening brace of the body
+         * @return true if the body was deferred
+         */
+        synchronized boolean register(final MethodNode method, final int open)
+        {
+            final int close = tokens == null ? -1 : tokens.getCollapsedClose(open);
+            if (close < 0)
+            {
+                return false;
+            }
+            remaining++;
+            methods.add(method);
+            pending.put(method, new PendingBody(this, open, close));
+            return true;
+        }
+
+        /**
+         * Withdraws every body registered so far, used when the file is
+         * parsed again from the start
+         */
+        synchronized void discard()
+        {
+            for (final MethodNode method : methods)
+            {
+                pending.remove(method);
+            }
+            methods.clear();
+            remaining = 0;
+        }
+
+        /**
+         * Copies the tokens of a body, so that the indices of the tokens of
+         * the file are left untouched by the parse of the body.
+         * 
+         * @param open
+         *            Index of the opening brace of the body
+         * @param close
+         *            Index of the closing brace of the body
+         * @return Copy of the tokens of the body
+         */
+        private synchronized List<Token> take(final int open, final int close)
+        {
+            final List<Token> body = Lists.newArrayListWithCapacity(close - open + 1);
+            for (int i = open; i <= close; i++)
+            {
+                body.add(new CommonToken(tokens.get(i)));
+            }
+
+            if (--remaining == 0)
+            {
+                tokens = null;
+            }
+            return body;
+        }
+    }
+
+    /**
+     * The token range of a body which has not yet been parsed
+     *
+     * @author Isaac Griffith
+     */
+    private class PendingBody {
+
+        /**
+         * File containing the body
+         */
+        private final FileBodies file;
+        /**
+         * Index of the opening brace
+         */
+        private final int        open;
+        /**
+         * Index of the closing brace
+         */
+        private final int        close;
+        /**
+         * Whether the body has been parsed, guarded by this body
+         */
+        private boolean          parsed;
+
+        /**
+         * Constructs a new PendingBody
+         * 
+         * @param file
+         *            File containing the body
+         * @param open
+         *            Index of the opening brace
+         * @param close
+         *            Index of the closing brace
+         */
+        private PendingBody(final FileBodies file, final int open, final int close)
+        {
+            this.file = file;
+            this.open = open;
+            this.close = close;
+        }
+
+        /**
+         * Parses the body and adds its statements to the given method, unless
+         * this has already been done. Callers arriving while the body is
+         * being parsed wait until it is complete.
+         * 
+         * @param method
+         *            Method owning the body
+         * @return true if the body was parsed by this call
+         */
+        private synchronized boolean parseOnce(final MethodNode method)
+        {
+            if (parsed)
+            {
+                return false;
+            }
+            parsed = true;
+            parse(method);
+            return true;
+        }
+
+        /**
+         * Parses the body and adds its statements to the given method
+         * 
+         * @param method
+         *            Method owning the body
+         */
+        private void parse(final MethodNode method)
+        {
+            final CSharp6Parser parser = new CSharp6Parser(
+                    new CommonTokenStream(new ListTokenSource(file.take(open, close))));
+            if (dfaCache != null)
+            {
+                dfaCache.install(parser);
+            }
+            GuardedSimulator.guard(parser, System.nanoTime(), timeout, cancellation);
+            try
+            {
+                final Method_bodyContext tree = engine.parseMethodBody(parser);
+                syntaxErrors.addAndGet(parser.getNumberOfSyntaxErrors());
+                new ParseTreeWalker().walk(new CSharpCodeTreeBuilder(method), tree);
+            }
+            catch (final CancellationException | ParseTimeoutException e)
+            {
+                failed.incrementAndGet();
+                LazyMethodBodies.LOG.warn("Gave up on the body of " + method + ": " + e.getMessage());
+            }
+            catch (final RuntimeException e)
+            {
+                failed.incrementAndGet();
+                LazyMethodBodies.LOG.warn("Unable to parse the body of " + method + ": " + e.getMessage(), e);
+            }
+        }
+    }
+}
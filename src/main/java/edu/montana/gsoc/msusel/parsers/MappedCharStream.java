@@ -0,0 +1,227 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+/**
+ * A CharStream over ASCII content held in a (typically memory-mapped)
+ * ByteBuffer. Characters are served directly from the buffer, so the contents
+ * of the file are never copied onto the heap; only the text of tokens which
+ * are actually requested is materialized. Use
+ * {@link CSharpSourceLoader#read(java.nio.file.Path)} to obtain an instance,
+ * it verifies that the content is ASCII before choosing this stream.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class MappedCharStream implements CharStream {
+
+    /**
+     * ASCII content of the file
+     */
+    private final ByteBuffer buffer;
+    /**
+     * Offset of the first character within the buffer
+     */
+    private final int        offset;
+    /**
+     * Number of characters in the stream
+     */
+    private final int        size;
+    /**
+     * Name of the source, usually the file path
+     */
+    private final String     name;
+    /**
+     * Index of the current character
+     */
+    private int              p;
+
+    /**
+     * Constructs a new MappedCharStream over the remaining bytes of the given
+     * buffer, all of which must be ASCII.
+     * 
+     * @param buffer
+     *            Buffer holding ASCII content
+     * @param name
+     *            Name of the source
+     */
+    public MappedCharStream(final ByteBuffer buffer, final String name)
+    {
+        this.buffer = buffer;
+        this.name = name;
+        offset = buffer.position();
+        size = buffer.remaining();
+    }
+
+    /**
+     * Checks whether all of the remaining bytes of the provided buffer are
+     * ASCII, and thus can be served directly as characters.
+     * 
+     * @param buffer
+     *            Buffer to check, its position is not modified
+     * @return true if every remaining byte is in the range 0-127
+     */
+    public static boolean isAscii(final ByteBuffer buffer)
+    {
+        final int limit = buffer.limit();
+        for (int i = buffer.position(); i < limit; i++)
+        {
+            if (buffer.get(i) < 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void consume()
+    {
+        if (p >= size)
+        {
+            throw new IllegalStateException("cannot consume EOF");
+        }
+        p++;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int LA(int i)
+    {
+        if (i == 0)
+        {
+            return 0;
+        }
+        if (i < 0)
+        {
+            i++;
+            if (p + i - 1 < 0)
+            {
+                return IntStream.EOF;
+            }
+        }
+        final int index = p + i - 1;
+        if (index >= size)
+        {
+            return IntStream.EOF;
+        }
+        return buffer.get(offset + index);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int mark()
+    {
+        return -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void release(final int marker)
+    {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int index()
+    {
+        return p;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void seek(final int index)
+    {
+        p = Math.max(0, Math.min(index, size));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getSourceName()
+    {
+        return name == null || name.isEmpty() ? IntStream.UNKNOWN_SOURCE_NAME : name;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getText(final Interval interval)
+    {
+        final int start = interval.a;
+        final int stop = Math.min(interval.b, size - 1);
+        if (start >= size || stop < start)
+        {
+            return "";
+        }
+
+        final byte[] bytes = new byte[stop - start + 1];
+        final ByteBuffer view = buffer.duplicate();
+        view.position(offset + start);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return getText(Interval.of(0, size - 1));
+    }
+}
@@ -0,0 +1,290 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.InputMismatchException;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.atn.ATNState;
+import org.antlr.v4.runtime.misc.IntervalSet;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser;
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Class_member_declarationContext;
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Interface_member_declarationContext;
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Method_bodyContext;
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Struct_member_declarationContext;
+
+/**
+ * Error strategy which confines a syntax error to the member of a type in
+ * which it occurs. Outside of members errors are recovered from as by the
+ * {@link DefaultErrorStrategy}. Inside a member no repair is attempted, as
+ * inserting or deleting a single token to continue can just as well close the
+ * member early and derail the rest of the type. Instead, the rest of the
+ * member is skipped, up to the brace closing its body, the semicolon ending
+ * it, or the modifier starting the next member. The parser then unwinds to
+ * the member declaration and resumes in the body of the type, so the members
+ * following a broken one are parsed as they would be without the error.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class MemberResyncErrorStrategy extends DefaultErrorStrategy {
+
+    /**
+     * Error passed on by the rules enclosing the one in which it occurred,
+     * until it reaches the member declaration
+     */
+    private RecognitionException unwinding;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reset(final Parser recognizer)
+    {
+        unwinding = null;
+        super.reset(recognizer);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void recover(final Parser recognizer, final RecognitionException e)
+    {
+        final ParserRuleContext member = MemberResyncErrorStrategy.member(recognizer.getContext());
+        if (member == null)
+        {
+            super.recover(recognizer, e);
+            return;
+        }
+
+        if (e != unwinding)
+        {
+            // skipping where the error occurred, so every rule left on the way
+            // to the member ends with the skipped tokens
+            MemberResyncErrorStrategy.resync(recognizer, member);
+        }
+        if (member == recognizer.getContext())
+        {
+            unwinding = null;
+        }
+        else
+        {
+            unwinding = e;
+            throw e;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void sync(final Parser recognizer) throws RecognitionException
+    {
+        if (!inErrorRecoveryMode(recognizer))
+        {
+            final ATNState state = recognizer.getInterpreter().atn.states.get(recognizer.getState());
+            final int type = state.getStateType();
+            if ((type == ATNState.STAR_LOOP_BACK || type == ATNState.PLUS_LOOP_BACK)
+                    && !MemberResyncErrorStrategy.viable(recognizer, state)
+                    && MemberResyncErrorStrategy.member(recognizer.getContext()) != null)
+            {
+                // rather than consuming tokens until the loop can continue
+                throw new InputMismatchException(recognizer);
+            }
+        }
+        super.sync(recognizer);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean singleTokenInsertion(final Parser recognizer)
+    {
+        return MemberResyncErrorStrategy.member(recognizer.getContext()) == null
+                && super.singleTokenInsertion(recognizer);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Token singleTokenDeletion(final Parser recognizer)
+    {
+        return MemberResyncErrorStrategy.member(recognizer.getContext()) == null ? super.singleTokenDeletion(recognizer)
+                : null;
+    }
+
+    /**
+     * Skips the rest of a member in which a syntax error occurred, leaving the
+     * parser at the token following it.
+     * 
+     * @param recognizer
+     *            Parser which encountered the error
+     * @param member
+     *            Declaration of the member
+     */
+    private static void resync(final Parser recognizer, final ParserRuleContext member)
+    {
+        final TokenStream input = recognizer.getInputStream();
+        int depth = 0;
+        for (int i = member.getStart().getTokenIndex(); i < input.index(); i++)
+        {
+            depth += MemberResyncErrorStrategy.nesting(input.get(i));
+        }
+        if (input.index() <= member.getStart().getTokenIndex())
+        {
+            depth += MemberResyncErrorStrategy.nesting(input.LT(1));
+            recognizer.consume();
+        }
+
+        while (depth >= 0)
+        {
+            final int type = input.LA(1);
+            if (type == Token.EOF || MemberResyncErrorStrategy.startsMember(type))
+            {
+                return;
+            }
+            if (depth == 0 && type == CSharp6Parser.CLOSE_BRACE)
+            {
+                return;
+            }
+
+            recognizer.consume();
+            if (type == CSharp6Parser.OPEN_BRACE)
+            {
+                depth++;
+            }
+            else if (type == CSharp6Parser.CLOSE_BRACE)
+            {
+                if (--depth == 0)
+                {
+                    return;
+                }
+            }
+            else if (depth == 0 && type == CSharp6Parser.SEMICOLON)
+            {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @param recognizer
+     *            Parser in the given state
+     * @param state
+     *            Current state of the parser
+     * @return true if the next token can be matched from the state
+     */
+    private static boolean viable(final Parser recognizer, final ATNState state)
+    {
+        final IntervalSet next = recognizer.getATN().nextTokens(state);
+        return next.contains(Token.EPSILON) || next.contains(recognizer.getInputStream().LA(1));
+    }
+
+    /**
+     * Finds the innermost member declaration enclosing a context. When a
+     * member body is parsed on its own, as deferred bodies are, the body
+     * stands in for its member.
+     * 
+     * @param ctx
+     *            Context in which an error occurred
+     * @return The member declaration, or null if the context is not within
+     *         one
+     */
+    private static ParserRuleContext member(final ParserRuleContext ctx)
+    {
+        ParseTree current = ctx;
+        while (current != null)
+        {
+            if (current instanceof Class_member_declarationContext
+                    || current instanceof Struct_member_declarationContext
+                    || current instanceof Interface_member_declarationContext)
+            {
+                return (ParserRuleContext) current;
+            }
+            if (current instanceof Method_bodyContext && current.getParent() == null)
+            {
+                return (ParserRuleContext) current;
+            }
+            current = current.getParent();
+        }
+        return null;
+    }
+
+    /**
+     * @param token
+     *            A token
+     * @return The change in brace nesting caused by the token
+     */
+    private static int nesting(final Token token)
+    {
+        if (token.getChannel() != Token.DEFAULT_CHANNEL)
+        {
+            return 0;
+        }
+        switch (token.getType())
+        {
+        case CSharp6Parser.OPEN_BRACE:
+            return 1;
+        case CSharp6Parser.CLOSE_BRACE:
+            return -1;
+        default:
+            return 0;
+        }
+    }
+
+    /**
+     * @param type
+     *            Type of a token
+     * @return true if tokens of the type only occur at the start of a member
+     *         declaration, so can never be part of a body
+     */
+    private static boolean startsMember(final int type)
+    {
+        switch (type)
+        {
+        case CSharp6Parser.PUBLIC:
+        case CSharp6Parser.PRIVATE:
+        case CSharp6Parser.PROTECTED:
+        case CSharp6Parser.INTERNAL:
+        case CSharp6Parser.OVERRIDE:
+        case CSharp6Parser.VIRTUAL:
+        case CSharp6Parser.ABSTRACT:
+        case CSharp6Parser.SEALED:
+            return true;
+        default:
+            return false;
+        }
+    }
+}
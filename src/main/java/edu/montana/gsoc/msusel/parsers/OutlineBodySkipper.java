@@ -0,0 +1,147 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.RuleContext;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser;
+
+/**
+ * Parse listener which, attached to a parser using
+ * {@link CSharp6Parser#addParseListener(ParseTreeListener)}, collapses the
+ * block of every method, constructor, destructor, operator and accessor body
+ * as the parser enters it. The parser then sees each body as an empty block,
+ * producing the type and member skeleton of a file with correct ranges but
+ * without the statements of the bodies.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class OutlineBodySkipper implements ParseTreeListener {
+
+    /**
+     * Token stream in which the bodies are collapsed
+     */
+    private final OutlineTokenStream tokens;
+
+    /**
+     * Constructs a new OutlineBodySkipper
+     * 
+     * @param tokens
+     *            Token stream used by the parser this listener is attached to
+     */
+    public OutlineBodySkipper(final OutlineTokenStream tokens)
+    {
+        this.tokens = tokens;
+    }
+
+    /**
+     * Creates an OutlineBodySkipper and attaches it to the given parser
+     * 
+     * @param parser
+     *            Parser reading from an {@link OutlineTokenStream}
+     * @throws IllegalArgumentException
+     *             If the parser does not read from an OutlineTokenStream
+     */
+    public static void attach(final CSharp6Parser parser)
+    {
+        if (!(parser.getTokenStream() instanceof OutlineTokenStream))
+        {
+            throw new IllegalArgumentException("Outline parsing requires an OutlineTokenStream");
+        }
+        parser.addParseListener(new OutlineBodySkipper((OutlineTokenStream) parser.getTokenStream()));
+    }
+
+    /**
+     * @param ctx
+     *            Context of a block
+     * @return true if the block forms the body of a member
+     */
+    static boolean isMemberBody(final RuleContext ctx)
+    {
+        if (ctx.getRuleIndex() != CSharp6Parser.RULE_block || ctx.getParent() == null)
+        {
+            return false;
+        }
+
+        switch (ctx.getParent().getRuleIndex())
+        {
+        case CSharp6Parser.RULE_method_body:
+        case CSharp6Parser.RULE_body:
+        case CSharp6Parser.RULE_constructor_body:
+        case CSharp6Parser.RULE_static_constructor_body:
+        case CSharp6Parser.RULE_destructor_body:
+        case CSharp6Parser.RULE_operator_body:
+        case CSharp6Parser.RULE_accessor_body:
+        case CSharp6Parser.RULE_add_accessor_declaration:
+        case CSharp6Parser.RULE_remove_accessor_declaration:
+        case CSharp6Parser.RULE_event_accessor_declarations:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void enterEveryRule(final ParserRuleContext ctx)
+    {
+        if (OutlineBodySkipper.isMemberBody(ctx) && ctx.getStart() != null)
+        {
+            tokens.collapse(ctx.getStart().getTokenIndex());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void exitEveryRule(final ParserRuleContext ctx)
+    {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void visitTerminal(final TerminalNode node)
+    {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void visitErrorNode(final ErrorNode node)
+    {
+    }
+}
@@ -0,0 +1,209 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.util.Arrays;
+
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenSource;
+
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6PreProcessor;
+
+/**
+ * A token stream which can collapse a brace delimited block so that the parser
+ * only sees the opening and closing braces. The tokens inside a collapsed block
+ * remain in the buffer (and thus still count towards line metrics) but are
+ * skipped as if they were on a hidden channel, so the parser never runs
+ * statement or expression prediction over them.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class OutlineTokenStream extends CommonTokenStream {
+
+    /**
+     * Token indices of the opening brace of each collapsed block, ascending
+     */
+    private int[] opens  = new int[16];
+    /**
+     * Token indices of the matching closing brace of each collapsed block
+     */
+    private int[] closes = new int[16];
+    /**
+     * Number of collapsed blocks
+     */
+    private int   count;
+
+    /**
+     * Constructs a new OutlineTokenStream
+     * 
+     * @param tokenSource
+     *            Source of the tokens
+     */
+    public OutlineTokenStream(final TokenSource tokenSource)
+    {
+        super(tokenSource);
+    }
+
+    /**
+     * Collapses the block opened by the brace at the given token index, hiding
+     * every token up to the matching closing brace. If the block is unbalanced
+     * nothing is collapsed and the parser sees the block as is.
+     * 
+     * @param open
+     *            Token index of an opening brace
+     * @return Token index of the matching closing brace, or -1 if nothing was
+     *         collapsed
+     */
+    public int collapse(final int open)
+    {
+        final int existing = Arrays.binarySearch(opens, 0, count, open);
+        if (existing >= 0)
+        {
+            return closes[existing];
+        }
+        if (count > 0 && open < opens[count - 1])
+        {
+            return -1;
+        }
+
+        int depth = 0;
+        for (int i = open;; i++)
+        {
+            sync(i);
+            if (i >= tokens.size())
+            {
+                return -1;
+            }
+
+            final Token token = tokens.get(i);
+            if (token.getType() == Token.EOF)
+            {
+                return -1;
+            }
+            if (token.getChannel() != channel)
+            {
+                continue;
+            }
+
+            if (token.getType() == CSharp6PreProcessor.OPEN_BRACE)
+            {
+                depth++;
+            }
+            else if (token.getType() == CSharp6PreProcessor.CLOSE_BRACE && --depth == 0)
+            {
+                add(open, i);
+                return i;
+            }
+        }
+    }
+
+    /**
+     * @param open
+     *            Token index of an opening brace
+     * @return Token index of the closing brace of the block opened at the
+     *         given index, or -1 if that block has not been collapsed
+     */
+    public int getCollapsedClose(final int open)
+    {
+        final int existing = Arrays.binarySearch(opens, 0, count, open);
+        return existing >= 0 ? closes[existing] : -1;
+    }
+
+    /**
+     * @return The number of blocks collapsed so far
+     */
+    public int getCollapsedCount()
+    {
+        return count;
+    }
+
+    /**
+     * Records a collapsed block
+     * 
+     * @param open
+     *            Index of the opening brace
+     * @param close
+     *            Index of the closing brace
+     */
+    private void add(final int open, final int close)
+    {
+        if (count == opens.length)
+        {
+            opens = Arrays.copyOf(opens, count * 2);
+            closes = Arrays.copyOf(closes, count * 2);
+        }
+        opens[count] = open;
+        closes[count] = close;
+        count++;
+    }
+
+    /**
+     * Finds the collapsed block strictly containing the given token index
+     * 
+     * @param i
+     *            Token index
+     * @return Position of the block in the opens and closes arrays, or -1
+     */
+    private int enclosing(final int i)
+    {
+        if (count == 0 || i <= opens[0])
+        {
+            return -1;
+        }
+
+        int found = Arrays.binarySearch(opens, 0, count, i);
+        if (found >= 0)
+        {
+            return -1;
+        }
+        found = -found - 2;
+        return i < closes[found] ? found : -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int nextTokenOnChannel(final int i, final int channel)
+    {
+        final int next = super.nextTokenOnChannel(i, channel);
+        final int block = enclosing(next);
+        return block < 0 ? next : super.nextTokenOnChannel(closes[block], channel);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int previousTokenOnChannel(final int i, final int channel)
+    {
+        final int previous = super.previousTokenOnChannel(i, channel);
+        final int block = enclosing(previous);
+        return block < 0 ? previous : opens[block];
+    }
+}
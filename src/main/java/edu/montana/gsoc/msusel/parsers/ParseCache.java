@@ -0,0 +1,293 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser;
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6PreProcessor;
+
+/**
+ * On-disk cache of the {@link ParseJournal} of each file, keyed by the SHA-256
+ * hash of the file's content. Entries are stored under a directory named for
+ * the version of the grammar, the journal format and the parse mode, so a
+ * change to any of these simply starts a fresh cache.
+ * <p>
+ * The cache is safe to share between threads and processes: entries are
+ * written to a temporary file which is then atomically moved into place. Any
+ * entry which cannot be read is treated as a miss.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class ParseCache {
+
+    /**
+     * Logger to log the process of the cache
+     */
+    private static final Logger LOG     = LoggerFactory.getLogger(ParseCache.class);
+    /**
+     * Marks the start of every entry
+     */
+    private static final int    MAGIC   = 0x43535043;
+    /**
+     * Version of the lexer and parser, derived from their serialized ATNs
+     */
+    private static final String GRAMMAR = ParseCache.grammarVersion();
+    /**
+     * Directory holding the entries of this version and mode
+     */
+    private final Path          directory;
+
+    /**
+     * Constructs a new ParseCache
+     * 
+     * @param root
+     *            Root directory of the cache, created on demand
+     * @param mode
+     *            Name of the parse mode whose results are cached, such as
+     *            "full" or "outline"
+     */
+    public ParseCache(final Path root, final String mode)
+    {
+        directory = root.resolve(ParseJournal.FORMAT + "-" + ParseCache.GRAMMAR + "-" + mode);
+    }
+
+    /**
+     * Computes the key of a file
+     * 
+     * @param file
+     *            File to hash
+     * @return Hexadecimal SHA-256 hash of the file's content
+     * @throws IOException
+     *             If the file cannot be read
+     */
+    public static String hash(final Path file) throws IOException
+    {
+        final MessageDigest digest = ParseCache.sha256();
+        final byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file))
+        {
+            int n;
+            while ((n = in.read(buffer)) != -1)
+            {
+                digest.update(buffer, 0, n);
+            }
+        }
+        return ParseCache.hex(digest.digest());
+    }
+
+    /**
+     * Creates a digest computing the key of a file from its content as it is
+     * read, so that the file need not be read a second time to be hashed
+     * 
+     * @return A new digest, see {@link #key(MessageDigest)}
+     */
+    public static MessageDigest newDigest()
+    {
+        return ParseCache.sha256();
+    }
+
+    /**
+     * Completes the key of a file
+     * 
+     * @param digest
+     *            Digest created by {@link #newDigest()}, updated with the
+     *            file's entire content
+     * @return Hexadecimal SHA-256 hash of the file's content, as returned by
+     *         {@link #hash(Path)}
+     */
+    public static String key(final MessageDigest digest)
+    {
+        return ParseCache.hex(digest.digest());
+    }
+
+    /**
+     * Looks up the journal of a file
+     * 
+     * @param key
+     *            Key of the file, see {@link #hash(Path)}
+     * @return The cached journal, or null on a miss
+     */
+    public ParseJournal get(final String key)
+    {
+        final Path entry = entry(key);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry))))
+        {
+            if (in.readInt() != ParseCache.MAGIC)
+            {
+                return null;
+            }
+            final byte[] data = new byte[in.readInt()];
+            in.readFully(data);
+            return new ParseJournal(data);
+        }
+        catch (final NoSuchFileException e)
+        {
+            return null;
+        }
+        catch (final IOException e)
+        {
+            ParseCache.LOG.warn("Ignoring unreadable cache entry " + entry + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stores the journal of a file. Failures are logged and otherwise
+     * ignored, as the cache is only an optimization.
+     * 
+     * @param key
+     *            Key of the file, see {@link #hash(Path)}
+     * @param journal
+     *            Journal recorded while building the file
+     */
+    public void put(final String key, final ParseJournal journal)
+    {
+        final Path entry = entry(key);
+        Path temp = null;
+        try
+        {
+            Files.createDirectories(entry.getParent());
+            temp = Files.createTempFile(entry.getParent(), key, ".tmp");
+            final byte[] data = journal.toByteArray();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp))))
+            {
+                out.writeInt(ParseCache.MAGIC);
+                out.writeInt(data.length);
+                out.write(data);
+            }
+            Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (final IOException e)
+        {
+            ParseCache.LOG.warn("Unable to write cache entry " + entry + ": " + e.getMessage());
+            if (temp != null)
+            {
+                try
+                {
+                    Files.deleteIfExists(temp);
+                }
+                catch (final IOException ex)
+                {
+                    ParseCache.LOG.debug(ex.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the entry of a file, used when the entry turns out to be
+     * corrupt. Failures are logged and otherwise ignored.
+     * 
+     * @param key
+     *            Key of the file, see {@link #hash(Path)}
+     */
+    public void remove(final String key)
+    {
+        final Path entry = entry(key);
+        try
+        {
+            Files.deleteIfExists(entry);
+        }
+        catch (final IOException e)
+        {
+            ParseCache.LOG.warn("Unable to remove cache entry " + entry + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param key
+     *            Key of a file
+     * @return Path of the entry of the file, spread over 256 subdirectories
+     */
+    private Path entry(final String key)
+    {
+        return directory.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    /**
+     * @return Version of the generated lexer and parser
+     */
+    static String grammarVersion()
+    {
+        final MessageDigest digest = ParseCache.sha256();
+        for (final String atn : new String[] { CSharp6PreProcessor._serializedATN, CSharp6Parser._serializedATN })
+        {
+            for (int i = 0; i < atn.length(); i++)
+            {
+                final char c = atn.charAt(i);
+                digest.update((byte) (c >> 8));
+                digest.update((byte) c);
+            }
+        }
+        return ParseCache.hex(digest.digest()).substring(0, 16);
+    }
+
+    /**
+     * @return A new SHA-256 digest
+     */
+    private static MessageDigest sha256()
+    {
+        try
+        {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (final NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException("SHA-256 is unavailable", e);
+        }
+    }
+
+    /**
+     * @param bytes
+     *            Bytes to format
+     * @return The bytes in hexadecimal
+     */
+    private static String hex(final byte[] bytes)
+    {
+        final StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (final byte b : bytes)
+        {
+            builder.append(Character.forDigit(b >> 4 & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,196 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Estimates the cost of parsing each file and orders the files of a project
+ * into tasks accordingly. Before any file has been parsed the cost of a file
+ * is its size in bytes. Once timings are recorded, a file's cost is its last
+ * recorded parse time, scaled by any change in its size, and files with no
+ * history are costed at the average rate observed over all recorded files.
+ * <p>
+ * Tasks are ordered longest first, so that the largest files start
+ * immediately rather than whenever they happen to be reached, and files too
+ * small to be worth a task of their own are batched together. Instances are
+ * safe to use from multiple threads and are meant to be kept across runs.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class ParseCostEstimator {
+
+    /**
+     * Number of tasks per worker thread that the batches of small files are
+     * sized for
+     */
+    private static final int             TASKS_PER_THREAD = 32;
+    /**
+     * Size in bytes and parse time in nanoseconds last recorded for each
+     * file
+     */
+    private final Map<Path, long[]>      history          = new ConcurrentHashMap<>();
+    /**
+     * Size in bytes of each file, as of its last estimate
+     */
+    private final Map<Path, Long>        sizes            = new ConcurrentHashMap<>();
+    /**
+     * Total size of all recorded files
+     */
+    private final LongAdder              recordedBytes    = new LongAdder();
+    /**
+     * Total parse time of all recorded files
+     */
+    private final LongAdder              recordedNanos    = new LongAdder();
+
+    /**
+     * Constructs a new ParseCostEstimator with no history
+     */
+    public ParseCostEstimator()
+    {
+    }
+
+    /**
+     * Estimates the cost of parsing the given file.
+     * 
+     * @param file
+     *            File to estimate
+     * @return Estimated cost, comparable only to other estimates made by this
+     *         estimator during the same run
+     */
+    public long estimate(final Path file)
+    {
+        long size;
+        try
+        {
+            size = Files.size(file);
+        }
+        catch (final IOException e)
+        {
+            size = 0;
+        }
+        sizes.put(file, size);
+
+        final long[] past = history.get(file);
+        if (past != null)
+        {
+            return past[0] == 0 ? past[1] : (long) ((double) past[1] * size / past[0]);
+        }
+
+        final long bytes = recordedBytes.sum();
+        return bytes == 0 ? size : (long) ((double) recordedNanos.sum() * size / bytes);
+    }
+
+    /**
+     * Records the time taken to parse a file previously estimated.
+     * 
+     * @param file
+     *            File parsed
+     * @param nanos
+     *            Time taken to parse the file
+     */
+    public void record(final Path file, final long nanos)
+    {
+        final Long size = sizes.get(file);
+        if (size == null)
+        {
+            return;
+        }
+
+        final long[] previous = history.put(file, new long[] { size, nanos });
+        if (previous != null)
+        {
+            recordedBytes.add(-previous[0]);
+            recordedNanos.add(-previous[1]);
+        }
+        recordedBytes.add(size);
+        recordedNanos.add(nanos);
+    }
+
+    /**
+     * Orders the given files into tasks, longest first. Files whose cost is
+     * at least the grain (the total cost divided by the number of tasks
+     * wanted) get a task of their own, and smaller files are batched into
+     * tasks of about one grain each.
+     * 
+     * @param files
+     *            Files to schedule
+     * @param parallelism
+     *            Number of worker threads
+     * @return Indices into the given files of each task, in the order in
+     *         which the tasks should be submitted
+     */
+    public List<int[]> schedule(final List<Path> files, final int parallelism)
+    {
+        final long[] costs = new long[files.size()];
+        long total = 0;
+        for (int i = 0; i < costs.length; i++)
+        {
+            costs[i] = estimate(files.get(i));
+            total += costs[i];
+        }
+
+        final Integer[] order = new Integer[costs.length];
+        for (int i = 0; i < order.length; i++)
+        {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong((final Integer i) -> costs[i]).reversed());
+
+        final long grain = Math.max(1, total / ((long) parallelism * ParseCostEstimator.TASKS_PER_THREAD));
+        final List<int[]> tasks = Lists.newArrayList();
+        int i = 0;
+        while (i < order.length)
+        {
+            int end = i + 1;
+            long batch = costs[order[i]];
+            while (end < order.length && batch < grain)
+            {
+                batch += costs[order[end++]];
+            }
+
+            final int[] task = new int[end - i];
+            for (int j = 0; j < task.length; j++)
+            {
+                task[j] = order[i + j];
+            }
+            tasks.add(task);
+            i = end;
+        }
+        return tasks;
+    }
+}
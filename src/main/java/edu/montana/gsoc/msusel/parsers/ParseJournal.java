@@ -0,0 +1,442 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+
+import edu.montana.gsoc.msusel.INode;
+import edu.montana.gsoc.msusel.node.FieldNode;
+import edu.montana.gsoc.msusel.node.FileNode;
+import edu.montana.gsoc.msusel.node.MethodNode;
+import edu.montana.gsoc.msusel.node.StatementNode;
+import edu.montana.gsoc.msusel.node.StatementType;
+import edu.montana.gsoc.msusel.node.TypeNode;
+
+/**
+ * Compact binary record of the nodes created by a {@link CSharpCodeTreeBuilder}
+ * for a single file. Replaying the journal into an empty FileNode rebuilds the
+ * file's types, methods, fields, statements and metrics exactly as the builder
+ * produced them, without lexing or parsing the file.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class ParseJournal {
+
+    /**
+     * Version of the journal format and of the output of the builder. Must be
+     * incremented whenever either changes, invalidating cached journals.
+     */
+    public static final int             FORMAT    = 2;
+    /**
+     * Operation creating a type
+     */
+    private static final byte           TYPE      = 1;
+    /**
+     * Operation creating a method
+     */
+    private static final byte           METHOD    = 2;
+    /**
+     * Operation creating a field
+     */
+    private static final byte           FIELD     = 3;
+    /**
+     * Operation creating a statement
+     */
+    private static final byte           STATEMENT = 4;
+    /**
+     * Operation adding a metric measurement
+     */
+    private static final byte           METRIC    = 5;
+    /**
+     * Recorded operations
+     */
+    private final ByteArrayOutputStream bytes;
+    /**
+     * Stream writing into bytes
+     */
+    private final DataOutputStream      out;
+    /**
+     * Identifier of each type and method recorded, in order of creation
+     */
+    private final Map<INode, Integer>   ids;
+
+    /**
+     * Constructs a new, empty, ParseJournal
+     */
+    public ParseJournal()
+    {
+        bytes = new ByteArrayOutputStream();
+        out = new DataOutputStream(bytes);
+        ids = new IdentityHashMap<>();
+    }
+
+    /**
+     * Constructs a ParseJournal holding previously recorded operations
+     * 
+     * @param data
+     *            Operations, as returned by {@link #toByteArray()}
+     */
+    public ParseJournal(final byte[] data)
+    {
+        this();
+        bytes.write(data, 0, data.length);
+    }
+
+    /**
+     * Discards every operation recorded so far
+     */
+    public void clear()
+    {
+        bytes.reset();
+        ids.clear();
+    }
+
+    /**
+     * @return The recorded operations
+     */
+    public byte[] toByteArray()
+    {
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Records the creation of a type
+     * 
+     * @param node
+     *            The type created
+     * @param qualifiedName
+     *            Qualified name of the type
+     * @param name
+     *            Simple name of the type
+     * @param start
+     *            First line
+     * @param end
+     *            Last line
+     * @param isInterface
+     *            Whether the type is an interface
+     */
+    void type(final TypeNode node, final String qualifiedName, final String name, final int start, final int end,
+            final boolean isInterface)
+    {
+        try
+        {
+            out.writeByte(ParseJournal.TYPE);
+            writeString(qualifiedName);
+            writeString(name);
+            out.writeInt(start);
+            out.writeInt(end);
+            out.writeBoolean(isInterface);
+        }
+        catch (final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        ids.put(node, ids.size());
+    }
+
+    /**
+     * Records the creation of a method
+     * 
+     * @param type
+     *            Type declaring the method
+     * @param node
+     *            The method created
+     * @param qualifiedName
+     *            Qualified name of the method
+     * @param name
+     *            Name of the method
+     * @param start
+     *            First line
+     * @param end
+     *            Last line
+     * @param constructor
+     *            Whether the method is a constructor
+     */
+    void method(final TypeNode type, final MethodNode node, final String qualifiedName, final String name,
+            final int start, final int end, final boolean constructor)
+    {
+        try
+        {
+            out.writeByte(ParseJournal.METHOD);
+            out.writeInt(id(type));
+            writeString(qualifiedName);
+            writeString(name);
+            out.writeInt(start);
+            out.writeInt(end);
+            out.writeBoolean(constructor);
+        }
+        catch (final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        ids.put(node, ids.size());
+    }
+
+    /**
+     * Records the creation of a field
+     * 
+     * @param type
+     *            Type declaring the field
+     * @param name
+     *            Name of the field
+     * @param qualifiedName
+     *            Qualified name of the field
+     * @param start
+     *            First line
+     * @param end
+     *            Last line
+     */
+    void field(final TypeNode type, final String name, final String qualifiedName, final int start, final int end)
+    {
+        try
+        {
+            out.writeByte(ParseJournal.FIELD);
+            out.writeInt(id(type));
+            writeString(name);
+            writeString(qualifiedName);
+            out.writeInt(start);
+            out.writeInt(end);
+        }
+        catch (final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Records the creation of a statement. A statement whose start follows
+     * its end is given a single line range, as the builder does.
+     * 
+     * @param method
+     *            Method containing the statement
+     * @param type
+     *            Type of statement
+     * @param start
+     *            First line
+     * @param end
+     *            Last line
+     */
+    void statement(final MethodNode method, final StatementType type, final int start, final int end)
+    {
+        if (!ids.containsKey(method))
+        {
+            return;
+        }
+
+        try
+        {
+            out.writeByte(ParseJournal.STATEMENT);
+            out.writeInt(id(method));
+            writeString(type.name());
+            out.writeInt(start);
+            out.writeInt(end);
+        }
+        catch (final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Records a metric measurement of a type or method
+     * 
+     * @param node
+     *            Node measured
+     * @param metric
+     *            Name of the metric
+     * @param value
+     *            Measured value
+     */
+    void metric(final INode node, final String metric, final double value)
+    {
+        if (!ids.containsKey(node))
+        {
+            return;
+        }
+
+        try
+        {
+            out.writeByte(ParseJournal.METRIC);
+            out.writeInt(id(node));
+            writeString(metric);
+            out.writeDouble(value);
+        }
+        catch (final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Rebuilds the recorded nodes into the given file
+     * 
+     * @param file
+     *            Empty FileNode to rebuild into
+     * @throws IOException
+     *             If the journal is malformed
+     */
+    public void replay(final FileNode file) throws IOException
+    {
+        final List<INode> nodes = Lists.newArrayList();
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+
+        int op;
+        while ((op = in.read()) != -1)
+        {
+            switch (op)
+            {
+            case TYPE:
+            {
+                final String qualifiedName = readString(in);
+                final String name = readString(in);
+                final int start = in.readInt();
+                final int end = in.readInt();
+                final TypeNode type = in.readBoolean()
+                        ? TypeNode.builder(qualifiedName, name).range(start, end).isInterface().create()
+                        : TypeNode.builder(qualifiedName, name).range(start, end).create();
+                file.addType(type);
+                nodes.add(type);
+                break;
+            }
+            case METHOD:
+            {
+                final TypeNode type = node(nodes, in.readInt(), TypeNode.class);
+                final String qualifiedName = readString(in);
+                final String name = readString(in);
+                final int start = in.readInt();
+                final int end = in.readInt();
+                final MethodNode method = in.readBoolean()
+                        ? MethodNode.builder(qualifiedName, name).constructor().range(start, end).create()
+                        : MethodNode.builder(qualifiedName, name).range(start, end).create();
+                type.addMethod(method);
+                nodes.add(method);
+                break;
+            }
+            case FIELD:
+            {
+                final TypeNode type = node(nodes, in.readInt(), TypeNode.class);
+                final String name = readString(in);
+                final String qualifiedName = readString(in);
+                final int start = in.readInt();
+                final int end = in.readInt();
+                type.addField(FieldNode.builder(name, qualifiedName).range(start, end).create());
+                break;
+            }
+            case STATEMENT:
+            {
+                final MethodNode method = node(nodes, in.readInt(), MethodNode.class);
+                final StatementType type = StatementType.valueOf(readString(in));
+                final int start = in.readInt();
+                final int end = in.readInt();
+                method.addStatement(start > end ? StatementNode.builder(type).range(start).create()
+                        : StatementNode.builder(type).range(start, end).create());
+                break;
+            }
+            case METRIC:
+            {
+                final INode node = node(nodes, in.readInt(), INode.class);
+                node.addMetric(readString(in), Double.valueOf(in.readDouble()));
+                break;
+            }
+            default:
+                throw new IOException("Unknown journal operation " + op);
+            }
+        }
+    }
+
+    /**
+     * @param node
+     *            A type or method already recorded
+     * @return Identifier of the node
+     */
+    private int id(final INode node)
+    {
+        final Integer id = ids.get(node);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @param nodes
+     *            Nodes rebuilt so far
+     * @param id
+     *            Identifier of the node
+     * @param type
+     *            Expected class of the node
+     * @return The node
+     * @throws IOException
+     *             If no node of the expected class has the identifier
+     */
+    private static <T> T node(final List<INode> nodes, final int id, final Class<T> type) throws IOException
+    {
+        if (id < 0 || id >= nodes.size() || !type.isInstance(nodes.get(id)))
+        {
+            throw new IOException("Journal refers to unknown node " + id);
+        }
+        return type.cast(nodes.get(id));
+    }
+
+    /**
+     * Writes a possibly null string
+     * 
+     * @param value
+     *            String to write
+     * @throws IOException
+     *             Never, as the journal is held in memory
+     */
+    private void writeString(final String value) throws IOException
+    {
+        out.writeBoolean(value != null);
+        if (value != null)
+        {
+            out.writeUTF(value);
+        }
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(String)}
+     * 
+     * @param in
+     *            Stream to read
+     * @return The string, possibly null
+     * @throws IOException
+     *             If the stream is malformed
+     */
+    private static String readString(final DataInputStream in) throws IOException
+    {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
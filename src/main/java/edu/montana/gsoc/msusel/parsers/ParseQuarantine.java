@@ -0,0 +1,206 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Record of the files which failed to parse, kept on disk between runs so
+ * that later runs can skip or downgrade them rather than failing slowly
+ * again. Files are identified by the SHA-256 hash of their content, so a file
+ * leaves the quarantine as soon as it is edited.
+ * <p>
+ * The quarantine is a text file with one line per file, holding the hash,
+ * the path and the reason for the failure separated by tabs, so it can be
+ * reviewed and edited by hand. It is safe to update from several threads,
+ * and is rewritten atomically by {@link #save()}.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class ParseQuarantine {
+
+    /**
+     * Logger to log the process of the quarantine
+     */
+    private static final Logger       LOG     = LoggerFactory.getLogger(ParseQuarantine.class);
+    /**
+     * File holding the quarantine
+     */
+    private final Path                file;
+    /**
+     * Path and reason of each quarantined file, by hash of its content
+     */
+    private final Map<String, String> entries = new ConcurrentHashMap<>();
+    /**
+     * Whether the entries have changed since they were loaded or saved
+     */
+    private final AtomicBoolean       changed = new AtomicBoolean();
+
+    /**
+     * Constructs a new ParseQuarantine, loading the entries of the given file
+     * if it exists. An unreadable file is logged and treated as empty.
+     * 
+     * @param file
+     *            File holding the quarantine, created by {@link #save()}
+     */
+    public ParseQuarantine(final Path file)
+    {
+        this.file = file;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8))
+        {
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                final int tab = line.indexOf('\t');
+                if (tab > 0)
+                {
+                    entries.put(line.substring(0, tab), line.substring(tab + 1));
+                }
+            }
+        }
+        catch (final NoSuchFileException e)
+        {
+            // nothing quarantined yet
+        }
+        catch (final IOException e)
+        {
+            ParseQuarantine.LOG.warn("Ignoring unreadable quarantine " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param hash
+     *            Hash of a file's content, see {@link ParseCache#hash(Path)}
+     * @return true if the file is quarantined
+     */
+    public boolean contains(final String hash)
+    {
+        return entries.containsKey(hash);
+    }
+
+    /**
+     * Quarantines a file
+     * 
+     * @param hash
+     *            Hash of the file's content
+     * @param path
+     *            Path of the file
+     * @param reason
+     *            Reason for which the file failed, may be null
+     */
+    public void add(final String hash, final Path path, final String reason)
+    {
+        final String entry = path + "\t" + (reason == null ? "" : reason.replaceAll("\\s+", " "));
+        if (!entry.equals(entries.put(hash, entry)))
+        {
+            changed.set(true);
+        }
+    }
+
+    /**
+     * Releases a file from the quarantine
+     * 
+     * @param hash
+     *            Hash of the file's content
+     */
+    public void remove(final String hash)
+    {
+        if (entries.remove(hash) != null)
+        {
+            changed.set(true);
+        }
+    }
+
+    /**
+     * @return The number of quarantined files
+     */
+    public int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Writes the entries to the file if they have changed. Failures are
+     * logged and otherwise ignored, as the quarantine is only an
+     * optimization.
+     */
+    public void save()
+    {
+        if (!changed.getAndSet(false))
+        {
+            return;
+        }
+
+        Path temp = null;
+        try
+        {
+            final Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8))
+            {
+                for (final Map.Entry<String, String> entry : entries.entrySet())
+                {
+                    writer.write(entry.getKey());
+                    writer.write('\t');
+                    writer.write(entry.getValue());
+                    writer.newLine();
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (final IOException e)
+        {
+            ParseQuarantine.LOG.warn("Unable to write quarantine " + file + ": " + e.getMessage());
+            changed.set(true);
+            if (temp != null)
+            {
+                try
+                {
+                    Files.deleteIfExists(temp);
+                }
+                catch (final IOException ex)
+                {
+                    ParseQuarantine.LOG.debug(ex.getMessage());
+                }
+            }
+        }
+    }
+}
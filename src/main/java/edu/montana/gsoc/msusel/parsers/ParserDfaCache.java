@@ -0,0 +1,282 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.PredictionContextCache;
+import org.antlr.v4.runtime.dfa.DFA;
+import org.antlr.v4.runtime.dfa.DFAState;
+
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser;
+
+/**
+ * A prediction cache for {@link CSharp6Parser} which, unlike the static DFA
+ * and prediction context cache of the generated parser, can be measured,
+ * bounded and cleared. Parsers use the cache once it has been installed into
+ * them, and any number of parsers on any number of threads may share one
+ * cache.
+ * <p>
+ * Clearing the cache replaces its tables rather than emptying them, so
+ * parsers already running continue with the tables they started with, which
+ * are reclaimed once those parsers finish. When a limit on the number of DFA
+ * states is set, the cache is cleared on installation into a parser once the
+ * limit has been exceeded.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class ParserDfaCache {
+
+    /**
+     * Maximum number of DFA states before the cache is cleared, negative if
+     * unbounded
+     */
+    private final long       maxStates;
+    /**
+     * Number of prediction steps answered by an existing DFA edge
+     */
+    private final LongAdder  hits   = new LongAdder();
+    /**
+     * Number of prediction steps which required ATN simulation
+     */
+    private final LongAdder  misses = new LongAdder();
+    /**
+     * Number of times the cache has been cleared
+     */
+    private final LongAdder  resets = new LongAdder();
+    /**
+     * Current tables
+     */
+    private volatile Tables  tables;
+
+    /**
+     * Constructs a new, empty, unbounded ParserDfaCache
+     */
+    public ParserDfaCache()
+    {
+        this(-1);
+    }
+
+    /**
+     * Constructs a new, empty, ParserDfaCache
+     * 
+     * @param maxStates
+     *            Maximum number of DFA states before the cache is cleared, or
+     *            a negative value for no limit
+     */
+    public ParserDfaCache(final long maxStates)
+    {
+        this.maxStates = maxStates;
+        tables = new Tables(CSharp6Parser._ATN);
+    }
+
+    /**
+     * Makes the given parser predict using this cache rather than the static
+     * cache of the generated parser. Clears the cache first if it has
+     * exceeded its limit.
+     * 
+     * @param parser
+     *            Parser to install into
+     * @return The parser
+     */
+    public CSharp6Parser install(final CSharp6Parser parser)
+    {
+        if (maxStates >= 0 && getStateCount() > maxStates)
+        {
+            reset();
+        }
+        final Tables current = tables;
+        parser.setInterpreter(new CountingSimulator(parser, current));
+        return parser;
+    }
+
+    /**
+     * Discards all DFA states and prediction contexts. Parsers which are
+     * running continue to use the discarded tables until they finish.
+     */
+    public synchronized void reset()
+    {
+        tables = new Tables(CSharp6Parser._ATN);
+        resets.increment();
+    }
+
+    /**
+     * @return Number of DFA states currently held
+     */
+    public long getStateCount()
+    {
+        long count = 0;
+        for (final DFA dfa : tables.decisionToDFA)
+        {
+            synchronized (dfa.states)
+            {
+                count += dfa.states.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return Number of prediction contexts currently held
+     */
+    public int getContextCount()
+    {
+        final PredictionContextCache contexts = tables.contexts;
+        synchronized (contexts)
+        {
+            return contexts.size();
+        }
+    }
+
+    /**
+     * @return Number of prediction steps answered by an existing DFA edge
+     */
+    public long getHits()
+    {
+        return hits.sum();
+    }
+
+    /**
+     * @return Number of prediction steps which required ATN simulation
+     */
+    public long getMisses()
+    {
+        return misses.sum();
+    }
+
+    /**
+     * @return Fraction of prediction steps answered by an existing DFA edge,
+     *         or 0 if no predictions have been made
+     */
+    public double getHitRatio()
+    {
+        final long hit = getHits();
+        final long total = hit + getMisses();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    /**
+     * @return Number of times the cache has been cleared
+     */
+    public long getResetCount()
+    {
+        return resets.sum();
+    }
+
+    /**
+     * Clears the hit and miss counters.
+     */
+    public void resetStatistics()
+    {
+        hits.reset();
+        misses.reset();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return String.format("%d states, %d contexts, %.1f%% hits", getStateCount(), getContextCount(),
+                getHitRatio() * 100);
+    }
+
+    /**
+     * One generation of the DFA and prediction context cache
+     *
+     * @author Isaac Griffith
+     */
+    private static class Tables {
+
+        /**
+         * DFA of each decision
+         */
+        private final DFA[]                  decisionToDFA;
+        /**
+         * Prediction contexts shared between the DFA
+         */
+        private final PredictionContextCache contexts = new PredictionContextCache();
+
+        /**
+         * Constructs new, empty, tables for the given ATN
+         * 
+         * @param atn
+         *            ATN of the parser
+         */
+        private Tables(final ATN atn)
+        {
+            decisionToDFA = new DFA[atn.getNumberOfDecisions()];
+            for (int i = 0; i < decisionToDFA.length; i++)
+            {
+                decisionToDFA[i] = new DFA(atn.getDecisionState(i), i);
+            }
+        }
+    }
+
+    /**
+     * Simulator which predicts using the tables of this cache and counts its
+     * DFA hits and misses. It can be guarded like any other
+     * {@link GuardedSimulator}.
+     *
+     * @author Isaac Griffith
+     */
+    private class CountingSimulator extends GuardedSimulator {
+
+        /**
+         * Constructs a new CountingSimulator
+         * 
+         * @param parser
+         *            Parser which uses the simulator
+         * @param tables
+         *            Tables to predict with
+         */
+        private CountingSimulator(final CSharp6Parser parser, final Tables tables)
+        {
+            super(parser, tables.decisionToDFA, tables.contexts);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected DFAState getExistingTargetState(final DFAState previousD, final int t)
+        {
+            final DFAState target = super.getExistingTargetState(previousD, t);
+            if (target == null)
+            {
+                misses.increment();
+            }
+            else
+            {
+                hits.increment();
+            }
+            return target;
+        }
+    }
+}
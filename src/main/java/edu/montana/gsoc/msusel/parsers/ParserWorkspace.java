@@ -0,0 +1,200 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.util.Set;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.TokenStream;
+
+import edu.montana.gsoc.msusel.node.FileNode;
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser;
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6PreProcessor;
+
+/**
+ * The lexer, parser and tree builder used by a single thread, reset for each
+ * file rather than constructed anew. A workspace is confined to the thread
+ * which uses it and must not be shared, and each object it hands out is only
+ * valid until the same object is requested for the next file.
+ * <p>
+ * Token streams are not reused: they hold the tokens of their file, which
+ * deferred method bodies and the line index keep referring to after the file
+ * has been parsed.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class ParserWorkspace {
+
+    /**
+     * Lexer, null until first needed
+     */
+    private CSharp6PreProcessor     lexer;
+    /**
+     * Lexer evaluating conditional compilation, null until first needed
+     */
+    private ConditionalPreProcessor conditional;
+    /**
+     * Parser, null until first needed
+     */
+    private CSharp6Parser           parser;
+    /**
+     * Tree builder, null until first needed
+     */
+    private CSharpCodeTreeBuilder   builder;
+
+    /**
+     * Constructs a new, empty, ParserWorkspace
+     */
+    public ParserWorkspace()
+    {
+    }
+
+    /**
+     * Resets the lexer to read the given input.
+     * 
+     * @param input
+     *            Decoded contents of a file
+     * @return The lexer, positioned at the start of the input
+     */
+    public CSharp6PreProcessor lexer(final CharStream input)
+    {
+        if (lexer == null)
+        {
+            lexer = new GuardedPreProcessor(input);
+        }
+        else
+        {
+            lexer.setInputStream(input);
+        }
+        return lexer;
+    }
+
+    /**
+     * Resets the lexer to read the given input, evaluating conditional
+     * compilation directives against the given symbols.
+     * 
+     * @param input
+     *            Decoded contents of a file
+     * @param symbols
+     *            Symbols defined at the start of the file, or null to leave
+     *            directives unevaluated
+     * @return The lexer, positioned at the start of the input
+     */
+    public CSharp6PreProcessor lexer(final CharStream input, final Set<String> symbols)
+    {
+        return symbols == null ? lexer(input) : conditionalLexer(input, symbols);
+    }
+
+    /**
+     * Resets the lexer evaluating conditional compilation directives to read
+     * the given input.
+     * 
+     * @param input
+     *            Decoded contents of a file
+     * @param symbols
+     *            Symbols defined at the start of the file
+     * @return The lexer, positioned at the start of the input
+     */
+    public ConditionalPreProcessor conditionalLexer(final CharStream input, final Set<String> symbols)
+    {
+        if (conditional == null)
+        {
+            conditional = new ConditionalPreProcessor(input, symbols);
+        }
+        else
+        {
+            conditional.setSymbols(symbols);
+            conditional.setInputStream(input);
+        }
+        return conditional;
+    }
+
+    /**
+     * Resets the parser to parse the given tokens, removing any parse
+     * listeners attached for the previous file.
+     * 
+     * @param tokens
+     *            Token stream of a file
+     * @return The parser, positioned at the start of the tokens
+     */
+    public CSharp6Parser parser(final TokenStream tokens)
+    {
+        if (parser == null)
+        {
+            parser = new CSharp6Parser(tokens);
+        }
+        else
+        {
+            parser.removeParseListeners();
+            parser.setBuildParseTree(true);
+            parser.setInputStream(tokens);
+        }
+        return parser;
+    }
+
+    /**
+     * Resets the tree builder to build the given file.
+     * 
+     * @param file
+     *            FileNode to build
+     * @param lines
+     *            Line index of the file, or null to count LOC from the text of
+     *            each context
+     * @return The tree builder
+     */
+    public CSharpCodeTreeBuilder builder(final FileNode file, final TokenLineIndex lines)
+    {
+        return builder(file, lines, null);
+    }
+
+    /**
+     * Resets the tree builder to build the given file, registering collapsed
+     * method bodies with the given registrar.
+     * 
+     * @param file
+     *            FileNode to build
+     * @param lines
+     *            Line index of the file
+     * @param bodies
+     *            Registrar of deferred bodies, or null to ignore collapsed
+     *            bodies
+     * @return The tree builder
+     */
+    CSharpCodeTreeBuilder builder(final FileNode file, final TokenLineIndex lines,
+            final LazyMethodBodies.FileBodies bodies)
+    {
+        if (builder == null)
+        {
+            builder = new CSharpCodeTreeBuilder(file, lines, bodies);
+        }
+        else
+        {
+            builder.reset(file, lines, bodies);
+        }
+        return builder;
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accumulates the time spent in each {@link ParsePhase}. Instances are not
+ * thread-safe; each worker records into its own instance and the results are
+ * combined using {@link #add(PhaseTimings)}.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class PhaseTimings {
+
+    /**
+     * Elapsed nanoseconds indexed by phase ordinal
+     */
+    private final long[] nanos;
+
+    /**
+     * Constructs a new PhaseTimings with all phases at zero
+     */
+    public PhaseTimings()
+    {
+        nanos = new long[ParsePhase.values().length];
+    }
+
+    /**
+     * Adds the given elapsed time to the provided phase
+     * 
+     * @param phase
+     *            Phase to which the time is attributed
+     * @param elapsed
+     *            Elapsed time in nanoseconds
+     */
+    public void record(final ParsePhase phase, final long elapsed)
+    {
+        nanos[phase.ordinal()] += elapsed;
+    }
+
+    /**
+     * Adds all of the times recorded in other to this instance
+     * 
+     * @param other
+     *            Timings to add
+     */
+    public void add(final PhaseTimings other)
+    {
+        for (int i = 0; i < nanos.length; i++)
+        {
+            nanos[i] += other.nanos[i];
+        }
+    }
+
+    /**
+     * @param phase
+     *            Phase of interest
+     * @return Time spent in the given phase in nanoseconds
+     */
+    public long getNanos(final ParsePhase phase)
+    {
+        return nanos[phase.ordinal()];
+    }
+
+    /**
+     * @param phase
+     *            Phase of interest
+     * @return Time spent in the given phase in milliseconds
+     */
+    public long getMillis(final ParsePhase phase)
+    {
+        return TimeUnit.NANOSECONDS.toMillis(getNanos(phase));
+    }
+
+    /**
+     * @return Time spent across all phases in nanoseconds
+     */
+    public long getTotalNanos()
+    {
+        long total = 0;
+        for (final long n : nanos)
+        {
+            total += n;
+        }
+        return total;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        final StringBuilder builder = new StringBuilder();
+        for (final ParsePhase phase : ParsePhase.values())
+        {
+            if (builder.length() > 0)
+            {
+                builder.append(", ");
+            }
+            builder.append(phase.name().toLowerCase()).append("=").append(getMillis(phase)).append(" ms");
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One stage of the parse pipeline: a fixed set of threads fed by a bounded
+ * queue. Submitting to a stage whose queue is full blocks the submitter until
+ * space is available, so a slow stage holds back the stages feeding it
+ * rather than letting work pile up in memory.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+class PipelineStage implements Executor {
+
+    /**
+     * Threads and queue of the stage
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Constructs a new PipelineStage running on platform threads
+     * 
+     * @param name
+     *            Name of the stage, used to name its threads
+     * @param threads
+     *            Number of threads
+     * @param capacity
+     *            Number of tasks which may wait in the queue
+     */
+    PipelineStage(final String name, final int threads, final int capacity)
+    {
+        this(threads, capacity, PipelineStage.named(name));
+    }
+
+    /**
+     * Constructs a new PipelineStage
+     * 
+     * @param threads
+     *            Number of threads
+     * @param capacity
+     *            Number of tasks which may wait in the queue
+     * @param factory
+     *            Factory creating the threads
+     */
+    PipelineStage(final int threads, final int capacity, final ThreadFactory factory)
+    {
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacity), factory, (task, pool) -> {
+                    if (pool.isShutdown())
+                    {
+                        throw new RejectedExecutionException("Stage has been shut down");
+                    }
+                    try
+                    {
+                        pool.getQueue().put(task);
+                    }
+                    catch (final InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException("Interrupted while waiting for the stage", e);
+                    }
+                });
+    }
+
+    /**
+     * Runs the given task on this stage, blocking while the queue is full.
+     * 
+     * @param task
+     *            Task to run
+     */
+    @Override
+    public void execute(final Runnable task)
+    {
+        executor.execute(task);
+    }
+
+    /**
+     * Stops the threads of this stage, abandoning any queued tasks.
+     */
+    void shutdown()
+    {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @param name
+     *            Name of the stage
+     * @return Factory creating daemon platform threads named after the stage
+     */
+    private static ThreadFactory named(final String name)
+    {
+        final AtomicInteger count = new AtomicInteger();
+        return task -> {
+            final Thread thread = new Thread(task, "csharp-" + name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
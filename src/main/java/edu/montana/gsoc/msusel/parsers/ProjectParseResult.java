@@ -0,0 +1,205 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.util.Collections;
+import java.util.List;
+
+import edu.montana.gsoc.msusel.CodeTree;
+
+/**
+ * The result of parsing a set of files with the {@link CSharpProjectParser}:
+ * the CodeTree itself along with the outcome of each file and the combined
+ * phase timings.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class ProjectParseResult {
+
+    /**
+     * The CodeTree built from all successfully parsed files
+     */
+    private final CodeTree               tree;
+    /**
+     * Outcome of each file, in submission order
+     */
+    private final List<FileParseOutcome> outcomes;
+    /**
+     * Sum of the per-file phase timings
+     */
+    private final PhaseTimings           timings;
+    /**
+     * Wall clock time of the entire parse in nanoseconds
+     */
+    private final long                   wallNanos;
+    /**
+     * Method bodies deferred by lazy parsing, null if not enabled
+     */
+    private final LazyMethodBodies       bodies;
+    /**
+     * Whether the parse was cancelled
+     */
+    private final boolean                cancelled;
+
+    /**
+     * Constructs a new ProjectParseResult
+     * 
+     * @param tree
+     *            The CodeTree
+     * @param outcomes
+     *            Outcome of each file
+     * @param timings
+     *            Sum of the per-file phase timings
+     * @param wallNanos
+     *            Wall clock time of the entire parse in nanoseconds
+     */
+    public ProjectParseResult(final CodeTree tree, final List<FileParseOutcome> outcomes, final PhaseTimings timings,
+            final long wallNanos)
+    {
+        this(tree, outcomes, timings, wallNanos, null);
+    }
+
+    /**
+     * Constructs a new ProjectParseResult whose method bodies are parsed on
+     * demand
+     * 
+     * @param tree
+     *            The CodeTree
+     * @param outcomes
+     *            Outcome of each file
+     * @param timings
+     *            Sum of the per-file phase timings
+     * @param wallNanos
+     *            Wall clock time of the entire parse in nanoseconds
+     * @param bodies
+     *            Deferred method bodies, or null
+     */
+    public ProjectParseResult(final CodeTree tree, final List<FileParseOutcome> outcomes, final PhaseTimings timings,
+            final long wallNanos, final LazyMethodBodies bodies)
+    {
+        this(tree, outcomes, timings, wallNanos, bodies, false);
+    }
+
+    /**
+     * Constructs a new ProjectParseResult of a parse which may have been
+     * cancelled
+     * 
+     * @param tree
+     *            The CodeTree
+     * @param outcomes
+     *            Outcome of each file
+     * @param timings
+     *            Sum of the per-file phase timings
+     * @param wallNanos
+     *            Wall clock time of the entire parse in nanoseconds
+     * @param bodies
+     *            Deferred method bodies, or null
+     * @param cancelled
+     *            Whether the parse was cancelled, possibly before all of its
+     *            files were found
+     */
+    public ProjectParseResult(final CodeTree tree, final List<FileParseOutcome> outcomes, final PhaseTimings timings,
+            final long wallNanos, final LazyMethodBodies bodies, final boolean cancelled)
+    {
+        this.tree = tree;
+        this.outcomes = Collections.unmodifiableList(outcomes);
+        this.timings = timings;
+        this.wallNanos = wallNanos;
+        this.bodies = bodies;
+        this.cancelled = cancelled;
+    }
+
+    /**
+     * @return The CodeTree built from all successfully parsed files
+     */
+    public CodeTree getTree()
+    {
+        return tree;
+    }
+
+    /**
+     * @return Outcome of each file, in submission order
+     */
+    public List<FileParseOutcome> getOutcomes()
+    {
+        return outcomes;
+    }
+
+    /**
+     * @param status
+     *            Status of interest
+     * @return Number of files which finished with the given status
+     */
+    public int count(final FileParseStatus status)
+    {
+        int count = 0;
+        for (final FileParseOutcome outcome : outcomes)
+        {
+            if (outcome.getStatus() == status)
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return true if the parse was cancelled before every file was
+     *         complete, in which case the tree holds only the completed files,
+     *         and files not yet found when the parse was cancelled have no
+     *         outcome
+     */
+    public boolean isCancelled()
+    {
+        return cancelled || count(FileParseStatus.CANCELLED) > 0;
+    }
+
+    /**
+     * @return Sum of the per-file phase timings
+     */
+    public PhaseTimings getTimings()
+    {
+        return timings;
+    }
+
+    /**
+     * @return Wall clock time of the entire parse in nanoseconds
+     */
+    public long getWallNanos()
+    {
+        return wallNanos;
+    }
+
+    /**
+     * @return The method bodies whose statements are produced on demand, or
+     *         null if the parse did not defer method bodies
+     */
+    public LazyMethodBodies getBodies()
+    {
+        return bodies;
+    }
+}
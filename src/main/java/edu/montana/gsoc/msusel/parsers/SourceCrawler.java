@@ -0,0 +1,468 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Finds the source files of a project by walking its directories in parallel
+ * on a fork/join pool. Each directory is listed by its own task, and each
+ * file found is handed to the caller as soon as it is found.
+ * <p>
+ * Which files are found is controlled by glob include and exclude rules. As
+ * in a .gitignore file, a rule without a slash matches the name of a file or
+ * directory at any depth, and a rule with a slash matches its path relative
+ * to the root. A file is found when it matches an include rule and no exclude
+ * rule, and an excluded directory is not entered. By default *.cs files are
+ * included, and bin, obj and .git directories and unit test projects
+ * (*.UnitTests) are excluded. Symbolic links to directories are not followed.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class SourceCrawler {
+
+    /**
+     * Logger to log the process of the crawler
+     */
+    private static final Logger       LOG              = LoggerFactory.getLogger(SourceCrawler.class);
+    /**
+     * Rules excluded unless default excludes are disabled
+     */
+    private static final String[]     DEFAULT_EXCLUDES = { "bin", "obj", ".git", "*.UnitTests" };
+    /**
+     * Rules a file must match one of
+     */
+    private final List<PathMatcher>   includes;
+    /**
+     * Rules a file or directory must not match any of
+     */
+    private final List<PathMatcher>   excludes;
+    /**
+     * Whether each rule of the same index in includes matches names rather
+     * than paths
+     */
+    private final List<Boolean>       includeNames;
+    /**
+     * Whether each rule of the same index in excludes matches names rather
+     * than paths
+     */
+    private final List<Boolean>       excludeNames;
+    /**
+     * Number of directories listed concurrently
+     */
+    private final int                 parallelism;
+
+    /**
+     * Constructs a new SourceCrawler from the provided builder
+     * 
+     * @param builder
+     *            Builder holding the configuration
+     */
+    private SourceCrawler(final Builder builder)
+    {
+        includes = Lists.newArrayList();
+        includeNames = Lists.newArrayList();
+        excludes = Lists.newArrayList();
+        excludeNames = Lists.newArrayList();
+        for (final String rule : builder.includes.isEmpty() ? Collections.singletonList("*.cs") : builder.includes)
+        {
+            SourceCrawler.compile(rule, includes, includeNames);
+        }
+        if (builder.defaultExcludes)
+        {
+            for (final String rule : SourceCrawler.DEFAULT_EXCLUDES)
+            {
+                SourceCrawler.compile(rule, excludes, excludeNames);
+            }
+        }
+        for (final String rule : builder.excludes)
+        {
+            SourceCrawler.compile(rule, excludes, excludeNames);
+        }
+        parallelism = builder.parallelism;
+    }
+
+    /**
+     * @return A new builder used to configure a SourceCrawler
+     */
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    /**
+     * Finds the source files under the given root, handing each to the given
+     * consumer as soon as it is found. The consumer is called concurrently
+     * from several threads. Directories which cannot be listed are logged
+     * and skipped.
+     * 
+     * @param root
+     *            Root directory to search
+     * @param consumer
+     *            Consumer receiving the absolute path of each file
+     */
+    public void crawl(final Path root, final Consumer<Path> consumer)
+    {
+        crawl(root, consumer, null);
+    }
+
+    /**
+     * Finds the source files under the given root, as
+     * {@link #crawl(Path, Consumer)} does, stopping early if the given token
+     * is cancelled. No directory is listed, and no file is handed to the
+     * consumer, once cancellation has been requested.
+     * 
+     * @param root
+     *            Root directory to search
+     * @param consumer
+     *            Consumer receiving the absolute path of each file
+     * @param cancellation
+     *            Token stopping the search, may be null
+     */
+    public void crawl(final Path root, final Consumer<Path> consumer, final CancellationToken cancellation)
+    {
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try
+        {
+            pool.invoke(new DirectoryTask(root, root, consumer, cancellation));
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Finds the source files under the given root.
+     * 
+     * @param root
+     *            Root directory to search
+     * @return Absolute paths of the files found, sorted
+     */
+    public List<Path> list(final Path root)
+    {
+        return list(root, null);
+    }
+
+    /**
+     * Finds the source files under the given root, stopping early if the
+     * given token is cancelled.
+     * 
+     * @param root
+     *            Root directory to search
+     * @param cancellation
+     *            Token stopping the search, may be null
+     * @return Absolute paths of the files found before any cancellation,
+     *         sorted
+     */
+    public List<Path> list(final Path root, final CancellationToken cancellation)
+    {
+        final Queue<Path> found = new ConcurrentLinkedQueue<>();
+        crawl(root, found::add, cancellation);
+
+        final List<Path> files = Lists.newArrayList(found);
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * Compiles a rule, adding it to the given lists.
+     * 
+     * @param rule
+     *            Glob pattern
+     * @param matchers
+     *            List receiving the matcher
+     * @param names
+     *            List receiving whether the rule matches names
+     */
+    private static void compile(final String rule, final List<PathMatcher> matchers, final List<Boolean> names)
+    {
+        matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + rule));
+        names.add(rule.indexOf('/') < 0);
+    }
+
+    /**
+     * @param relative
+     *            Path relative to the root
+     * @param matchers
+     *            Rules to test
+     * @param names
+     *            Whether each rule matches names
+     * @return true if any of the rules matches the path
+     */
+    private static boolean matches(final Path relative, final List<PathMatcher> matchers, final List<Boolean> names)
+    {
+        final Path name = relative.getFileName();
+        for (int i = 0; i < matchers.size(); i++)
+        {
+            if (matchers.get(i).matches(names.get(i) ? name : relative))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lists one directory, forking a task for each subdirectory
+     *
+     * @author Isaac Griffith
+     */
+    private class DirectoryTask extends RecursiveAction {
+
+        /**
+         * Serial version UID
+         */
+        private static final long       serialVersionUID = 1L;
+        /**
+         * Root directory of the crawl
+         */
+        private final Path              root;
+        /**
+         * Directory to list
+         */
+        private final Path              directory;
+        /**
+         * Consumer receiving each file
+         */
+        private final Consumer<Path>    consumer;
+        /**
+         * Token stopping the crawl, null if not cancellable
+         */
+        private final CancellationToken cancellation;
+
+        /**
+         * Constructs a new DirectoryTask
+         * 
+         * @param root
+         *            Root directory of the crawl
+         * @param directory
+         *            Directory to list
+         * @param consumer
+         *            Consumer receiving each file
+         * @param cancellation
+         *            Token stopping the crawl, may be null
+         */
+        private DirectoryTask(final Path root, final Path directory, final Consumer<Path> consumer,
+                final CancellationToken cancellation)
+        {
+            this.root = root;
+            this.directory = directory;
+            this.consumer = consumer;
+            this.cancellation = cancellation;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected void compute()
+        {
+            if (stopped())
+            {
+                return;
+            }
+
+            final List<DirectoryTask> subdirectories = Lists.newArrayList();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory))
+            {
+                for (final Path entry : entries)
+                {
+                    if (stopped())
+                    {
+                        return;
+                    }
+
+                    final Path relative = root.relativize(entry);
+                    if (SourceCrawler.matches(relative, excludes, excludeNames))
+                    {
+                        continue;
+                    }
+
+                    BasicFileAttributes attributes;
+                    try
+                    {
+                        attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                        if (attributes.isDirectory())
+                        {
+                            subdirectories.add(new DirectoryTask(root, entry, consumer, cancellation));
+                            continue;
+                        }
+                        if (attributes.isSymbolicLink())
+                        {
+                            attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+                        }
+                    }
+                    catch (final IOException e)
+                    {
+                        // a dangling link, or an entry deleted or unreadable
+                        // since the listing, loses only itself
+                        SourceCrawler.LOG.warn("Skipping " + entry + ": " + e.getMessage());
+                        continue;
+                    }
+                    if (attributes.isRegularFile() && SourceCrawler.matches(relative, includes, includeNames))
+                    {
+                        consumer.accept(entry.toAbsolutePath());
+                    }
+                }
+            }
+            catch (final IOException e)
+            {
+                SourceCrawler.LOG.warn("Unable to list " + directory + ": " + e.getMessage());
+            }
+            ForkJoinTask.invokeAll(subdirectories);
+        }
+
+        /**
+         * @return true if the crawl has been cancelled
+         */
+        private boolean stopped()
+        {
+            return cancellation != null && cancellation.isCancelled();
+        }
+    }
+
+    /**
+     * Builder used to configure a SourceCrawler
+     *
+     * @author Isaac Griffith
+     */
+    public static class Builder {
+
+        /**
+         * Include rules, *.cs if empty
+         */
+        private final List<String> includes        = Lists.newArrayList();
+        /**
+         * Exclude rules in addition to the defaults
+         */
+        private final List<String> excludes        = Lists.newArrayList();
+        /**
+         * Whether the default exclude rules apply
+         */
+        private boolean            defaultExcludes = true;
+        /**
+         * Number of directories listed concurrently
+         */
+        private int                parallelism     = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Private constructor, use {@link SourceCrawler#builder()}
+         */
+        private Builder()
+        {
+        }
+
+        /**
+         * Adds glob rules which files must match. Once any are added, *.cs
+         * files are no longer included by default.
+         * 
+         * @param rules
+         *            Glob patterns
+         * @return This builder
+         */
+        public Builder include(final String... rules)
+        {
+            Collections.addAll(includes, rules);
+            return this;
+        }
+
+        /**
+         * Adds glob rules which exclude the files and directories matching
+         * them.
+         * 
+         * @param rules
+         *            Glob patterns
+         * @return This builder
+         */
+        public Builder exclude(final String... rules)
+        {
+            Collections.addAll(excludes, rules);
+            return this;
+        }
+
+        /**
+         * Enables or disables the default exclude rules (bin, obj, .git and
+         * *.UnitTests). Enabled by default.
+         * 
+         * @param defaultExcludes
+         *            true to apply the default exclude rules
+         * @return This builder
+         */
+        public Builder defaultExcludes(final boolean defaultExcludes)
+        {
+            this.defaultExcludes = defaultExcludes;
+            return this;
+        }
+
+        /**
+         * Sets the number of directories listed concurrently. Defaults to the
+         * number of available processors.
+         * 
+         * @param parallelism
+         *            Number of threads, must be at least one
+         * @return This builder
+         */
+        public Builder parallelism(final int parallelism)
+        {
+            if (parallelism < 1)
+            {
+                throw new IllegalArgumentException("parallelism must be at least 1");
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * @return The configured SourceCrawler
+         */
+        public SourceCrawler create()
+        {
+            return new SourceCrawler(this);
+        }
+    }
+}
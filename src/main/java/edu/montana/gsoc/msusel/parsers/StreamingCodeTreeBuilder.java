@@ -0,0 +1,473 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.util.List;
+import java.util.Stack;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import edu.montana.gsoc.msusel.node.FileNode;
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser;
+
+/**
+ * Parse listener which builds the FileNode of a file while it is being parsed,
+ * discarding each subtree of the parse tree as soon as it has been consumed.
+ * Peak heap is then bounded by the nesting depth of the file and the size of
+ * its largest statement or member, rather than by the size of the file.
+ * <p>
+ * The node creation logic is that of {@link CSharpCodeTreeBuilder}, which is
+ * driven with the same events, in the same order, as a walk of the complete
+ * tree:
+ * <ul>
+ * <li>The containers of a file (type and namespace bodies, and the blocks of
+ * method, constructor, destructor and operator bodies) are entered as the
+ * parser enters them. Their enclosing declarations are entered at the same
+ * time, with the stop token found by matching the braces of the container in
+ * the token stream.</li>
+ * <li>Every other subtree is walked as soon as the parser exits it, provided
+ * its parent has been entered, and is then removed from the tree.</li>
+ * </ul>
+ * Line counts are taken from a {@link TokenLineIndex}, as the text of a
+ * context is no longer available once its subtrees have been discarded.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class StreamingCodeTreeBuilder implements ParseTreeListener {
+
+    /**
+     * Name of the file being built
+     */
+    private final String                      path;
+    /**
+     * Tokens of the file, used to match the braces of each container
+     */
+    private final TokenStream                 tokens;
+    /**
+     * Line index of the file
+     */
+    private final TokenLineIndex              lines;
+    /**
+     * Registrar of deferred member bodies, null if bodies are not deferred
+     */
+    private final LazyMethodBodies.FileBodies bodies;
+    /**
+     * Journal recording the nodes created, null if not recorded
+     */
+    private final ParseJournal                journal;
+    /**
+     * Contexts which have been entered but not yet exited
+     */
+    private final Stack<ParserRuleContext>    entered;
+    /**
+     * FileNode being built
+     */
+    private FileNode                          file;
+    /**
+     * Builder creating the nodes of the file
+     */
+    private CSharpCodeTreeBuilder             builder;
+
+    /**
+     * Constructs a new StreamingCodeTreeBuilder
+     * 
+     * @param path
+     *            Name of the file being built
+     * @param tokens
+     *            Tokens of the file
+     * @param lines
+     *            Line index of the file
+     * @param bodies
+     *            Registrar of deferred bodies, or null
+     * @param journal
+     *            Journal to record the nodes created into, or null
+     */
+    StreamingCodeTreeBuilder(final String path, final TokenStream tokens, final TokenLineIndex lines,
+            final LazyMethodBodies.FileBodies bodies, final ParseJournal journal)
+    {
+        if (lines == null)
+        {
+            throw new IllegalArgumentException("Streaming requires the line index of the file");
+        }
+        this.path = path;
+        this.tokens = tokens;
+        this.lines = lines;
+        this.bodies = bodies;
+        this.journal = journal;
+        entered = new Stack<>();
+        reset();
+    }
+
+    /**
+     * Creates a StreamingCodeTreeBuilder and attaches it to the given parser.
+     * The parser should have been attached to its token stream, and the
+     * stream filled, prior to this call.
+     * 
+     * @param parser
+     *            Parser of the file
+     * @param path
+     *            Name of the file being built
+     * @param lines
+     *            Line index of the file
+     * @return The attached builder, whose {@link #getFile()} holds the result
+     *         once the parse completes
+     */
+    public static StreamingCodeTreeBuilder attach(final CSharp6Parser parser, final String path,
+            final TokenLineIndex lines)
+    {
+        return StreamingCodeTreeBuilder.attach(parser, path, lines, null, null);
+    }
+
+    /**
+     * Creates a StreamingCodeTreeBuilder which also registers deferred member
+     * bodies and records a journal, and attaches it to the given parser.
+     * 
+     * @param parser
+     *            Parser of the file
+     * @param path
+     *            Name of the file being built
+     * @param lines
+     *            Line index of the file
+     * @param bodies
+     *            Registrar of deferred bodies, or null
+     * @param journal
+     *            Journal to record the nodes created into, or null
+     * @return The attached builder
+     */
+    static StreamingCodeTreeBuilder attach(final CSharp6Parser parser, final String path, final TokenLineIndex lines,
+            final LazyMethodBodies.FileBodies bodies, final ParseJournal journal)
+    {
+        final StreamingCodeTreeBuilder listener = new StreamingCodeTreeBuilder(path, parser.getTokenStream(), lines,
+                bodies, journal);
+        parser.addParseListener(listener);
+        return listener;
+    }
+
+    /**
+     * @return The FileNode built by the most recent parse
+     */
+    public FileNode getFile()
+    {
+        return file;
+    }
+
+    /**
+     * Discards everything built so far. Called whenever the parser starts
+     * over, such as when a failed SLL parse is retried using LL prediction.
+     */
+    private void reset()
+    {
+        if (bodies != null)
+        {
+            bodies.discard();
+        }
+        if (journal != null)
+        {
+            journal.clear();
+        }
+        entered.clear();
+        file = FileNode.builder(path).create();
+        builder = new CSharpCodeTreeBuilder(file, lines, bodies);
+        builder.setJournal(journal);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void enterEveryRule(final ParserRuleContext ctx)
+    {
+        if (ctx.getParent() == null)
+        {
+            reset();
+            enter(ctx);
+        }
+        else if (StreamingCodeTreeBuilder.isContainer(ctx))
+        {
+            open(ctx);
+        }
+        else if (StreamingCodeTreeBuilder.isList(ctx) && isEntered(ctx.getParent()))
+        {
+            enter(ctx);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void exitEveryRule(final ParserRuleContext ctx)
+    {
+        if (!entered.isEmpty() && entered.peek() == ctx)
+        {
+            ctx.exitRule(builder);
+            builder.exitEveryRule(ctx);
+            entered.pop();
+            StreamingCodeTreeBuilder.prune(ctx);
+        }
+        else if (isEntered(ctx.getParent()))
+        {
+            ParseTreeWalker.DEFAULT.walk(builder, ctx);
+            StreamingCodeTreeBuilder.prune(ctx);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void visitTerminal(final TerminalNode node)
+    {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void visitErrorNode(final ErrorNode node)
+    {
+    }
+
+    /**
+     * Enters a container along with each of its enclosing contexts which has
+     * not yet been entered. Each enclosing context is given the stop token of
+     * the container, and those of its children preceding the container are
+     * walked and discarded.
+     * 
+     * @param ctx
+     *            Context of the container
+     */
+    private void open(final ParserRuleContext ctx)
+    {
+        final Stack<ParserRuleContext> pending = new Stack<>();
+        for (ParserRuleContext p = ctx.getParent(); p != null && !isEntered(p); p = p.getParent())
+        {
+            pending.push(p);
+        }
+
+        final int close = matchBrace(ctx.getStart().getTokenIndex());
+        final Token stop = tokens.get(close);
+        final Token enclosingStop = StreamingCodeTreeBuilder.isTypeBody(ctx) ? trailingSemicolon(close) : stop;
+
+        while (!pending.isEmpty())
+        {
+            final ParserRuleContext p = pending.pop();
+            p.stop = enclosingStop;
+            enter(p);
+
+            final List<ParseTree> children = p.children;
+            if (children != null && children.size() > 1)
+            {
+                final ParseTree next = children.get(children.size() - 1);
+                for (final ParseTree child : children.subList(0, children.size() - 1))
+                {
+                    ParseTreeWalker.DEFAULT.walk(builder, child);
+                }
+                children.clear();
+                children.add(next);
+            }
+        }
+
+        ctx.stop = stop;
+        enter(ctx);
+    }
+
+    /**
+     * Fires the enter events of the given context at the builder
+     * 
+     * @param ctx
+     *            Context to enter
+     */
+    private void enter(final ParserRuleContext ctx)
+    {
+        builder.enterEveryRule(ctx);
+        ctx.enterRule(builder);
+        entered.push(ctx);
+    }
+
+    /**
+     * @param ctx
+     *            A context, may be null
+     * @return true if the context is the innermost entered context
+     */
+    private boolean isEntered(final ParserRuleContext ctx)
+    {
+        return ctx != null && !entered.isEmpty() && entered.peek() == ctx;
+    }
+
+    /**
+     * Finds the brace closing the one at the given index, considering only
+     * tokens on the default channel.
+     * 
+     * @param open
+     *            Index of an opening brace
+     * @return Index of the matching closing brace, or of the last token
+     *         before EOF if the brace is never closed
+     */
+    private int matchBrace(final int open)
+    {
+        int depth = 0;
+        int last = open;
+        for (int i = open; i < tokens.size(); i++)
+        {
+            final Token t = tokens.get(i);
+            if (t.getType() == Token.EOF)
+            {
+                break;
+            }
+            if (t.getChannel() != Token.DEFAULT_CHANNEL)
+            {
+                continue;
+            }
+
+            last = i;
+            if (t.getType() == CSharp6Parser.OPEN_BRACE)
+            {
+                depth++;
+            }
+            else if (t.getType() == CSharp6Parser.CLOSE_BRACE && --depth == 0)
+            {
+                return i;
+            }
+        }
+        return last;
+    }
+
+    /**
+     * @param close
+     *            Index of the closing brace of a type or namespace body
+     * @return The semicolon optionally following the body, otherwise the
+     *         closing brace
+     */
+    private Token trailingSemicolon(final int close)
+    {
+        for (int i = close + 1; i < tokens.size(); i++)
+        {
+            final Token t = tokens.get(i);
+            if (t.getChannel() == Token.DEFAULT_CHANNEL)
+            {
+                return t.getType() == CSharp6Parser.SEMICOLON ? t : tokens.get(close);
+            }
+        }
+        return tokens.get(close);
+    }
+
+    /**
+     * Removes a context which has been consumed from its parent
+     * 
+     * @param ctx
+     *            Context to remove
+     */
+    private static void prune(final ParserRuleContext ctx)
+    {
+        final ParserRuleContext parent = ctx.getParent();
+        if (parent != null && parent.getChildCount() > 0 && parent.getChild(parent.getChildCount() - 1) == ctx)
+        {
+            parent.removeLastChild();
+        }
+    }
+
+    /**
+     * @param ctx
+     *            A context
+     * @return true if the context is the body of a type or namespace
+     */
+    private static boolean isTypeBody(final ParserRuleContext ctx)
+    {
+        switch (ctx.getRuleIndex())
+        {
+        case CSharp6Parser.RULE_namespace_body:
+        case CSharp6Parser.RULE_class_body:
+        case CSharp6Parser.RULE_struct_body:
+        case CSharp6Parser.RULE_interface_body:
+        case CSharp6Parser.RULE_enum_body:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * @param ctx
+     *            A context
+     * @return true if the context is the body of a type or namespace, or the
+     *         block forming the body of a method, constructor, destructor or
+     *         operator
+     */
+    private static boolean isContainer(final ParserRuleContext ctx)
+    {
+        if (StreamingCodeTreeBuilder.isTypeBody(ctx))
+        {
+            return true;
+        }
+        if (ctx.getRuleIndex() != CSharp6Parser.RULE_block || ctx.getParent() == null)
+        {
+            return false;
+        }
+
+        switch (ctx.getParent().getRuleIndex())
+        {
+        case CSharp6Parser.RULE_method_body:
+        case CSharp6Parser.RULE_constructor_body:
+        case CSharp6Parser.RULE_static_constructor_body:
+        case CSharp6Parser.RULE_destructor_body:
+        case CSharp6Parser.RULE_operator_body:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * @param ctx
+     *            A context
+     * @return true if the context is a list of members or statements, which
+     *         may be entered before it is complete
+     */
+    private static boolean isList(final ParserRuleContext ctx)
+    {
+        switch (ctx.getRuleIndex())
+        {
+        case CSharp6Parser.RULE_namespace_member_declarations:
+        case CSharp6Parser.RULE_class_member_declarations:
+        case CSharp6Parser.RULE_struct_member_declarations:
+        case CSharp6Parser.RULE_interface_member_declarations:
+        case CSharp6Parser.RULE_enum_member_declarations:
+        case CSharp6Parser.RULE_statement_list:
+            return true;
+        default:
+            return false;
+        }
+    }
+}
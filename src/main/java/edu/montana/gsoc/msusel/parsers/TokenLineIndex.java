@@ -0,0 +1,251 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import org.antlr.v4.runtime.BufferedTokenStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenStream;
+
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6PreProcessor;
+
+/**
+ * Per-line classification of a file computed in a single pass over its token
+ * stream, including the hidden channel. For each physical line the index
+ * records whether it holds code and whether it holds a comment, stored as
+ * prefix sums so that the number of code or comment lines within any range of
+ * lines is answered in constant time.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class TokenLineIndex {
+
+    /**
+     * Number of lines holding code in lines 1 through i, indexed by i
+     */
+    private final int[] code;
+    /**
+     * Number of lines holding a comment in lines 1 through i, indexed by i
+     */
+    private final int[] comments;
+
+    /**
+     * Constructs a new TokenLineIndex from the per-line prefix sums
+     * 
+     * @param code
+     *            Prefix sums of code lines
+     * @param comments
+     *            Prefix sums of comment lines
+     */
+    private TokenLineIndex(final int[] code, final int[] comments)
+    {
+        this.code = code;
+        this.comments = comments;
+    }
+
+    /**
+     * Builds the index for all tokens of the given stream. Buffered streams
+     * are filled first so that the index covers the entire file.
+     * 
+     * @param tokens
+     *            Token stream of a single file
+     * @return The index
+     */
+    public static TokenLineIndex build(final TokenStream tokens)
+    {
+        if (tokens instanceof BufferedTokenStream)
+        {
+            ((BufferedTokenStream) tokens).fill();
+        }
+        else if (tokens instanceof CompactTokenStream)
+        {
+            ((CompactTokenStream) tokens).fill();
+        }
+
+        final int size = tokens.size();
+        int lines = 1;
+        if (size > 0)
+        {
+            lines = Math.max(lines, tokens.get(size - 1).getLine());
+        }
+
+        boolean[] isCode = new boolean[lines + 2];
+        boolean[] isComment = new boolean[lines + 2];
+        for (int i = 0; i < size; i++)
+        {
+            final Token token = tokens.get(i);
+            final int type = token.getType();
+            if (type == Token.EOF || type == CSharp6PreProcessor.WHITESPACE || type == CSharp6PreProcessor.NEW_LINE)
+            {
+                continue;
+            }
+
+            final int first = token.getLine();
+            final int last = TokenLineIndex.spansLines(type) ? first + TokenLineIndex.innerLineBreaks(token) : first;
+            if (last >= isCode.length)
+            {
+                isCode = TokenLineIndex.grow(isCode, last + 2);
+                isComment = TokenLineIndex.grow(isComment, last + 2);
+            }
+
+            final boolean[] target = TokenLineIndex.isComment(type) ? isComment : isCode;
+            for (int line = first; line <= last; line++)
+            {
+                target[line] = true;
+            }
+        }
+
+        final int[] code = new int[isCode.length];
+        final int[] comments = new int[isCode.length];
+        for (int line = 1; line < isCode.length; line++)
+        {
+            code[line] = code[line - 1] + (isCode[line] ? 1 : 0);
+            comments[line] = comments[line - 1] + (isComment[line] ? 1 : 0);
+        }
+        return new TokenLineIndex(code, comments);
+    }
+
+    /**
+     * @param start
+     *            First line of the range (inclusive)
+     * @param end
+     *            Last line of the range (inclusive)
+     * @return Number of lines within the range holding code
+     */
+    public int getCodeLines(final int start, final int end)
+    {
+        return count(code, start, end);
+    }
+
+    /**
+     * @param start
+     *            First line of the range (inclusive)
+     * @param end
+     *            Last line of the range (inclusive)
+     * @return Number of lines within the range holding a comment
+     */
+    public int getCommentLines(final int start, final int end)
+    {
+        return count(comments, start, end);
+    }
+
+    /**
+     * @return Number of lines holding code in the entire file
+     */
+    public int getCodeLines()
+    {
+        return code[code.length - 1];
+    }
+
+    /**
+     * Answers a range query against the given prefix sums
+     * 
+     * @param sums
+     *            Prefix sums
+     * @param start
+     *            First line of the range (inclusive)
+     * @param end
+     *            Last line of the range (inclusive)
+     * @return Number of flagged lines within the range
+     */
+    private static int count(final int[] sums, final int start, final int end)
+    {
+        final int from = Math.max(1, start);
+        final int to = Math.min(sums.length - 1, end);
+        if (to < from)
+        {
+            return 0;
+        }
+        return sums[to] - sums[from - 1];
+    }
+
+    /**
+     * @param type
+     *            Token type
+     * @return true if tokens of the given type are comments
+     */
+    private static boolean isComment(final int type)
+    {
+        return type == CSharp6PreProcessor.SINGLE_LINE_COMMENT || type == CSharp6PreProcessor.SINGLE_LINE_DOC_COMMENT
+                || type == CSharp6PreProcessor.DELIMITED_COMMENT || type == CSharp6PreProcessor.DELIMITED_DOC_COMMENT;
+    }
+
+    /**
+     * @param type
+     *            Token type
+     * @return true if tokens of the given type may contain line breaks
+     */
+    private static boolean spansLines(final int type)
+    {
+        return type == CSharp6PreProcessor.DELIMITED_COMMENT || type == CSharp6PreProcessor.DELIMITED_DOC_COMMENT
+                || type == CSharp6PreProcessor.STRING_LITERAL;
+    }
+
+    /**
+     * Counts the line breaks within a token, ignoring a trailing line break
+     * which does not start another line of the token.
+     * 
+     * @param token
+     *            Token to examine
+     * @return Number of additional lines the token spans
+     */
+    private static int innerLineBreaks(final Token token)
+    {
+        final String text = token.getText();
+        if (text == null)
+        {
+            return 0;
+        }
+
+        int breaks = 0;
+        final int last = text.length() - 1;
+        for (int i = 0; i < last; i++)
+        {
+            final char c = text.charAt(i);
+            if (c == '\n' || c == '\r' && text.charAt(i + 1) != '\n')
+            {
+                breaks++;
+            }
+        }
+        return breaks;
+    }
+
+    /**
+     * Grows the given array to the given length
+     * 
+     * @param array
+     *            Array to grow
+     * @param length
+     *            Minimum length
+     * @return The grown array
+     */
+    private static boolean[] grow(final boolean[] array, final int length)
+    {
+        final boolean[] grown = new boolean[Math.max(length, array.length * 2)];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Access to virtual threads on runtimes which provide them (Java 21 and
+ * later), while still running on older runtimes. The factory is obtained
+ * reflectively, and is unavailable wherever virtual threads are missing or
+ * still a preview feature.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+final class VirtualThreads {
+
+    /**
+     * Logger to log the availability of virtual threads
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(VirtualThreads.class);
+
+    /**
+     * Private constructor, this class only has static methods
+     */
+    private VirtualThreads()
+    {
+    }
+
+    /**
+     * Creates a factory of virtual threads.
+     * 
+     * @param name
+     *            Prefix of the names of the threads
+     * @return The factory, or null if virtual threads are unavailable
+     */
+    static ThreadFactory factory(final String name)
+    {
+        try
+        {
+            final Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            final Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = ofVirtual.invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, name + "-", 1L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        }
+        catch (final NoSuchMethodException | ClassNotFoundException e)
+        {
+            VirtualThreads.LOG.info("Virtual threads are not available on this runtime");
+            return null;
+        }
+        catch (final IllegalAccessException | InvocationTargetException | RuntimeException e)
+        {
+            VirtualThreads.LOG.info("Virtual threads are not enabled on this runtime: " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.util.List;
+import java.util.Map;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import edu.montana.gsoc.msusel.node.FileNode;
+import edu.montana.gsoc.msusel.node.MethodNode;
+import edu.montana.gsoc.msusel.node.TypeNode;
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser;
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6PreProcessor;
+
+/**
+ * Tests that {@link CSharpCodeTreeBuilder} attaches members and statements to
+ * the nodes declaring them, including after a member broken by a syntax
+ * error.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class CSharpCodeTreeBuilderTest {
+
+    /**
+     * Source with broken members in a type and in a nested type
+     */
+    private static final String BROKEN = "namespace Acme\n"
+                                       + "{\n"
+                                       + "    public class Account\n"
+                                       + "    {\n"
+                                       + "        public Account(decimal opening)\n"
+                                       + "        {\n"
+                                       + "            balance = opening;\n"
+                                       + "        }\n"
+                                       + "\n"
+                                       + "        public void Deposit(decimal amount,, int x)\n"
+                                       + "        {\n"
+                                       + "            balance += amount;\n"
+                                       + "        }\n"
+                                       + "\n"
+                                       + "        public void Withdraw(decimal amount)\n"
+                                       + "        {\n"
+                                       + "            balance -= amount;\n"
+                                       + "        }\n"
+                                       + "\n"
+                                       + "        public class Statement\n"
+                                       + "        {\n"
+                                       + "            public void Print() { Console.WriteLine(x = = 1); }\n"
+                                       + "            public void Close() { done = true; }\n"
+                                       + "        }\n"
+                                       + "\n"
+                                       + "        public void Audit() { Log(); }\n"
+                                       + "    }\n"
+                                       + "\n"
+                                       + "    public class Ledger\n"
+                                       + "    {\n"
+                                       + "        public void Post() { }\n"
+                                       + "    }\n"
+                                       + "}\n";
+
+    @Test
+    public void membersAfterBrokenMemberAreAttachedToTheirType()
+    {
+        final FileNode file = CSharpCodeTreeBuilderTest.build(CSharpCodeTreeBuilderTest.BROKEN, true);
+        final Map<String, List<String>> methods = CSharpCodeTreeBuilderTest.methods(file);
+
+        Assert.assertEquals(Lists.newArrayList("Acme.Account", "Acme.Statement", "Acme.Ledger"),
+                Lists.newArrayList(methods.keySet()));
+        Assert.assertTrue(methods.toString(),
+                methods.get("Acme.Account").containsAll(Lists.newArrayList("Acme.Account#Account(decimal)",
+                        "Acme.Account#Withdraw(decimal)", "Acme.Account#Audit()")));
+        Assert.assertEquals(Lists.newArrayList("Acme.Statement#Print()", "Acme.Statement#Close()"),
+                methods.get("Acme.Statement"));
+        Assert.assertEquals(Lists.newArrayList("Acme.Ledger#Post()"), methods.get("Acme.Ledger"));
+
+        final TypeNode account = file.getTypes().get(0);
+        Assert.assertEquals(27, account.getEnd());
+        Assert.assertFalse(CSharpCodeTreeBuilderTest.method(account, "Withdraw(decimal)").getStatements().isEmpty());
+        Assert.assertFalse(CSharpCodeTreeBuilderTest.method(account, "Audit()").getStatements().isEmpty());
+    }
+
+    @Test
+    public void defaultRecoveryLosesTheMembersAfterBrokenMember()
+    {
+        final Map<String, List<String>> methods = CSharpCodeTreeBuilderTest.methods(
+                CSharpCodeTreeBuilderTest.build(CSharpCodeTreeBuilderTest.BROKEN, false));
+
+        Assert.assertFalse(methods.toString(), methods.containsKey("Acme.Ledger"));
+    }
+
+    @Test
+    public void constructorKeepsOnlyItsOwnStatements()
+    {
+        final String constructor = "class Account\n"
+                                 + "{\n"
+                                 + "    public Account(decimal opening) { balance = opening; }\n";
+        final String members = "    public decimal Balance { get { return balance; } }\n"
+                             + "    public decimal this[int i] { get { if (i > 0) { return 0; } return balance; } }\n"
+                             + "    ~Account() { Close(); }\n";
+
+        final TypeNode alone = CSharpCodeTreeBuilderTest.build(constructor + "}\n", true).getTypes().get(0);
+        final TypeNode followed = CSharpCodeTreeBuilderTest.build(constructor + members + "}\n", true).getTypes()
+                .get(0);
+
+        final int own = CSharpCodeTreeBuilderTest.method(alone, "Account(decimal)").getStatements().size();
+        Assert.assertTrue(own > 0);
+        Assert.assertEquals(own,
+                CSharpCodeTreeBuilderTest.method(followed, "Account(decimal)").getStatements().size());
+    }
+
+    /**
+     * Parses a source and builds its FileNode
+     * 
+     * @param source
+     *            Source to parse
+     * @param resync
+     *            Whether to recover from errors at member boundaries
+     * @return The FileNode
+     */
+    private static FileNode build(final String source, final boolean resync)
+    {
+        final CSharp6Parser parser = new CSharp6Parser(
+                new CommonTokenStream(new CSharp6PreProcessor(new ANTLRInputStream(source))));
+        final CSharpParseEngine engine = new CSharpParseEngine(
+                ErrorPolicy.builder().reportErrors(false).resyncAtMembers(resync).create());
+        final FileNode file = FileNode.builder("Account.cs").create();
+        ParseTreeWalker.DEFAULT.walk(new CSharpCodeTreeBuilder(file), engine.parse(parser).getTree());
+        return file;
+    }
+
+    /**
+     * @param file
+     *            A file
+     * @return Qualified names of the methods of each type of the file, by
+     *         qualified type name, in order
+     */
+    private static Map<String, List<String>> methods(final FileNode file)
+    {
+        final Map<String, List<String>> methods = Maps.newLinkedHashMap();
+        for (final TypeNode type : file.getTypes())
+        {
+            final List<String> names = Lists.newArrayList();
+            for (final MethodNode method : type.getMethods())
+            {
+                names.add(method.getQIdentifier());
+            }
+            methods.put(type.getQIdentifier(), names);
+        }
+        return methods;
+    }
+
+    /**
+     * @param type
+     *            A type
+     * @param name
+     *            Name of one of its methods, with parameter types
+     * @return The method
+     */
+    private static MethodNode method(final TypeNode type, final String name)
+    {
+        for (final MethodNode method : type.getMethods())
+        {
+            if (method.getQIdentifier().equals(type.getQIdentifier() + "#" + name))
+            {
+                return method;
+            }
+        }
+        throw new AssertionError("No method " + name + " in " + type.getQIdentifier());
+    }
+}
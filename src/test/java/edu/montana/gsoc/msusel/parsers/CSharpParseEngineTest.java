@@ -0,0 +1,205 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.util.List;
+
+import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.ANTLRErrorStrategy;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser;
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6PreProcessor;
+
+/**
+ * Tests the two stages of the {@link CSharpParseEngine}, and that the parser
+ * is left as it was found.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class CSharpParseEngineTest {
+
+    /**
+     * Valid source which SLL prediction rejects, as it cannot tell the
+     * arguments from a generic method call
+     */
+    private static final String AMBIGUOUS = "class C\n"
+                                          + "{\n"
+                                          + "    void M()\n"
+                                          + "    {\n"
+                                          + "        M(a < b, c > d);\n"
+                                          + "    }\n"
+                                          + "}\n";
+    /**
+     * Valid source which SLL prediction accepts
+     */
+    private static final String PLAIN     = "class C\n"
+                                          + "{\n"
+                                          + "    int M(int a) { return a + 1; }\n"
+                                          + "}\n";
+    /**
+     * Source with a syntax error
+     */
+    private static final String BROKEN    = "class C\n"
+                                          + "{\n"
+                                          + "    void M(int a,, int b) { }\n"
+                                          + "}\n";
+
+    @Test
+    public void sllParsesPlainSource()
+    {
+        final CSharp6Parser parser = CSharpParseEngineTest.parser(CSharpParseEngineTest.PLAIN);
+        final CSharpParseResult result = new CSharpParseEngine().parse(parser);
+
+        Assert.assertEquals(ParseStage.SLL, result.getStage());
+        Assert.assertEquals(0, result.getSyntaxErrors());
+        Assert.assertEquals(CSharpParseEngineTest.parseLL(CSharpParseEngineTest.PLAIN),
+                result.getTree().toStringTree(parser));
+    }
+
+    @Test
+    public void sourceRejectedBySllIsParsedAgainWithLL()
+    {
+        final CSharp6Parser parser = CSharpParseEngineTest.parser(CSharpParseEngineTest.AMBIGUOUS);
+        final CSharpParseResult result = new CSharpParseEngine().parse(parser);
+
+        Assert.assertEquals(ParseStage.LL, result.getStage());
+        Assert.assertEquals(0, result.getSyntaxErrors());
+        Assert.assertEquals(CSharpParseEngineTest.parseLL(CSharpParseEngineTest.AMBIGUOUS),
+                result.getTree().toStringTree(parser));
+    }
+
+    @Test
+    public void listenersAndHandlerAreRestored()
+    {
+        for (final String source : new String[] { CSharpParseEngineTest.PLAIN, CSharpParseEngineTest.AMBIGUOUS,
+                CSharpParseEngineTest.BROKEN })
+        {
+            for (final ErrorPolicy policy : new ErrorPolicy[] { ErrorPolicy.builder().create(),
+                    ErrorPolicy.builder().reportErrors(false).resyncAtMembers(false).create(),
+                    ErrorPolicy.builder().maxErrors(5).create() })
+            {
+                final CSharp6Parser parser = CSharpParseEngineTest.parser(source);
+                final ANTLRErrorStrategy handler = new DefaultErrorStrategy();
+                final ANTLRErrorListener listener = new BaseErrorListener();
+                parser.setErrorHandler(handler);
+                parser.removeErrorListeners();
+                parser.addErrorListener(listener);
+
+                new CSharpParseEngine(policy).parse(parser);
+
+                Assert.assertSame(handler, parser.getErrorHandler());
+                Assert.assertEquals(Lists.newArrayList(listener), parser.getErrorListeners());
+            }
+        }
+    }
+
+    @Test
+    public void listenersAndHandlerAreRestoredAfterBailingOut()
+    {
+        final CSharp6Parser parser = CSharpParseEngineTest.parser(CSharpParseEngineTest.BROKEN);
+        parser.removeErrorListeners();
+        parser.addErrorListener(new BaseErrorListener());
+        final ANTLRErrorStrategy handler = parser.getErrorHandler();
+        final List<? extends ANTLRErrorListener> listeners = Lists.newArrayList(parser.getErrorListeners());
+
+        try
+        {
+            new CSharpParseEngine(ErrorPolicy.builder().bailOut(true).create()).parse(parser);
+            Assert.fail("Expected the parse to give up");
+        }
+        catch (final ParseCancellationException e)
+        {
+            Assert.assertEquals("Syntax error at 3:17", e.getMessage());
+        }
+        Assert.assertSame(handler, parser.getErrorHandler());
+        Assert.assertEquals(listeners, parser.getErrorListeners());
+    }
+
+    @Test
+    public void errorsReachListenersOnlyWhenReported()
+    {
+        Assert.assertEquals(1, CSharpParseEngineTest.reported(ErrorPolicy.builder().create()));
+        Assert.assertEquals(0, CSharpParseEngineTest.reported(ErrorPolicy.builder().reportErrors(false).create()));
+    }
+
+    /**
+     * @param source
+     *            Source to parse
+     * @return Parser of the source
+     */
+    private static CSharp6Parser parser(final String source)
+    {
+        return new CSharp6Parser(new CommonTokenStream(new CSharp6PreProcessor(new ANTLRInputStream(source))));
+    }
+
+    /**
+     * @param source
+     *            Source to parse
+     * @return Tree of the source parsed using LL prediction alone
+     */
+    private static String parseLL(final String source)
+    {
+        final CSharp6Parser parser = CSharpParseEngineTest.parser(source);
+        parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+        return parser.compilation_unit().toStringTree(parser);
+    }
+
+    /**
+     * @param policy
+     *            Policy under which to parse the broken source
+     * @return Number of syntax errors reaching the parser's listener
+     */
+    private static int reported(final ErrorPolicy policy)
+    {
+        final CSharp6Parser parser = CSharpParseEngineTest.parser(CSharpParseEngineTest.BROKEN);
+        final int[] errors = new int[1];
+        parser.removeErrorListeners();
+        parser.addErrorListener(new BaseErrorListener() {
+
+            @Override
+            public void syntaxError(final Recognizer<?, ?> recognizer, final Object offendingSymbol, final int line,
+                    final int charPositionInLine, final String msg, final RecognitionException e)
+            {
+                errors[0]++;
+            }
+        });
+        new CSharpParseEngine(policy).parse(parser);
+        return errors[0];
+    }
+}
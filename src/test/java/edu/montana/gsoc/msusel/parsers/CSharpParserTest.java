@@ -25,35 +25,12 @@
  */
 package edu.montana.gsoc.msusel.parsers;
 
-import java.io.IOException;
-import java.nio.file.DirectoryStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.List;
-import java.util.Stack;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
-import org.antlr.v4.runtime.ANTLRFileStream;
-import org.antlr.v4.runtime.CommonTokenStream;
-import org.antlr.v4.runtime.RecognitionException;
-import org.antlr.v4.runtime.tree.ParseTreeWalker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.collect.Lists;
-
-import edu.montana.gsoc.msusel.CodeTree;
-import edu.montana.gsoc.msusel.node.FileNode;
-import edu.montana.gsoc.msusel.parsers.CSharpCodeTreeBuilder;
-import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Lexer;
-import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser;
-import edu.montana.gsoc.msusel.parsers.csharp.CSharp6PreProcessor;
-import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Compilation_unitContext;
-
 /**
  * ParserTest -
  *
@@ -67,104 +44,26 @@ public class CSharpParserTest {
     {
     }
 
-    private synchronized CSharp6Parser loadFile(final String file) throws IOException
-    {
-        final CSharp6Lexer lexer = new CSharp6Lexer(new ANTLRFileStream(file));
-        final CSharp6PreProcessor pre = new CSharp6PreProcessor(new ANTLRFileStream(file));
-        final CommonTokenStream tokens = new CommonTokenStream(pre);
-        return new CSharp6Parser(tokens);
-    }
-
-    public static List<String> fileList(final String root)
-    {
-        final List<String> fileNames = Lists.newArrayList();
-        final Stack<String> directories = new Stack<>();
-        directories.push(root);
-
-        final DirectoryStream.Filter<Path> filter = (final Path f) -> {
-            return Files.isDirectory(f) && !f.getFileName().toString().endsWith(".UnitTests")
-                    || f.getFileName().toString().endsWith(".cs");
-        };
-
-        while (!directories.isEmpty())
-        {
-            try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(Paths.get(directories.pop()), filter))
-            {
-                for (final Path p : directoryStream)
-                {
-                    if (Files.isDirectory(p))
-                    {
-                        directories.add(p.toAbsolutePath().toString());
-                    }
-                    else
-                    {
-                        fileNames.add(p.toAbsolutePath().toString());
-                    }
-                }
-            }
-            catch (final IOException ex)
-            {
-                CSharpParserTest.LOG.warn(ex.getMessage());
-            }
-        }
-        return fileNames;
-    }
-
     /**
      * @param args
+     *            Optional root directory of the project to parse
+     * @throws InterruptedException
      */
-    public static void main(final String... args)
+    public static void main(final String... args) throws InterruptedException
     {
-        final long start = System.currentTimeMillis();
-        final List<String> fileNames = CSharpParserTest.fileList("/home/git/sms/Core");
+        final String root = args.length > 0 ? args[0] : "/home/git/sms/Core";
 
-        final CodeTree tree = new CodeTree();
-        try
+        final ProjectParseResult result = CSharpProjectParser.builder().create().parse(Paths.get(root));
+        for (final FileParseOutcome outcome : result.getOutcomes())
         {
-            final ExecutorService executor = Executors
-                    .newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 4);
-            final List<Future<?>> futures = Lists.newArrayList();
-            for (final String file : fileNames)
+            if (outcome.getStatus() == FileParseStatus.FAILED)
             {
-                futures.add(executor.submit(() -> {
-                    try
-                    {
-                        final FileNode node = FileNode.builder(file).create();
-                        final CSharpParserTest pt = new CSharpParserTest();
-                        final CSharp6Parser parser = pt.loadFile(file);
-                        final Compilation_unitContext cuContext = parser.compilation_unit();
-                        final ParseTreeWalker walker = new ParseTreeWalker();
-                        final CSharpCodeTreeBuilder listener = new CSharpCodeTreeBuilder(node);
-                        walker.walk(listener, cuContext);
-
-                        tree.getProject().addFile(node);
-                    }
-                    catch (final IOException e)
-                    {
-                        CSharpParserTest.LOG.warn(e.getMessage(), e);
-                    }
-                }));
-            }
-            executor.shutdown();
-            for (final Future<?> f : futures)
-            {
-                try
-                {
-                    f.get();
-                }
-                catch (InterruptedException | ExecutionException e)
-                {
-                    // TODO Auto-generated catch block
-                    e.printStackTrace();
-                }
+                CSharpParserTest.LOG.warn(outcome.toString());
             }
         }
-        catch (final RecognitionException e)
-        {
-            CSharpParserTest.LOG.warn(e.getMessage(), e);
-        }
-        final long end = System.currentTimeMillis();
 
-        System.out.println("\nParse took: " + (end - start) + " ms");
+        System.out.println("\nParse took: " + TimeUnit.NANOSECONDS.toMillis(result.getWallNanos()) + " ms");
+        System.out.println("Parsed " + result.count(FileParseStatus.PARSED) + " of " + result.getOutcomes().size()
+                + " files (" + result.getTimings() + ")");
     }
 }
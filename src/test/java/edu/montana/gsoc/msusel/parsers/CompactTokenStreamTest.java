@@ -0,0 +1,193 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.misc.Interval;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser;
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6PreProcessor;
+
+/**
+ * Tests that a {@link CompactTokenStream} behaves as a
+ * {@link CommonTokenStream} over the same tokens.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class CompactTokenStreamTest {
+
+    /**
+     * Source with comments and whitespace between and within members
+     */
+    private static final String SOURCE = "// leading comment\n"
+                                       + "namespace Acme\n"
+                                       + "{\n"
+                                       + "    /* block\n"
+                                       + "       comment */\n"
+                                       + "    class C\n"
+                                       + "    {\n"
+                                       + "        string s = @\"verbatim\n"
+                                       + "line\";\n"
+                                       + "        char c = '\\n';\n"
+                                       + "        int M(int a) { return a /* inline */ + 0x1F; }\n"
+                                       + "    }\n"
+                                       + "}\n";
+    /**
+     * Stream under test
+     */
+    private CompactTokenStream  compact;
+    /**
+     * Reference stream over the same source
+     */
+    private CommonTokenStream   common;
+
+    @Before
+    public void setUp()
+    {
+        compact = new CompactTokenStream(new CSharp6PreProcessor(new ANTLRInputStream(CompactTokenStreamTest.SOURCE)));
+        compact.fill();
+        common = new CommonTokenStream(new CSharp6PreProcessor(new ANTLRInputStream(CompactTokenStreamTest.SOURCE)));
+        common.fill();
+    }
+
+    @Test
+    public void holdsTheSameTokens()
+    {
+        Assert.assertEquals(common.size(), compact.size());
+        for (int i = 0; i < common.size(); i++)
+        {
+            CompactTokenStreamTest.assertSameToken(common.get(i), compact.get(i));
+        }
+    }
+
+    @Test
+    public void looksAheadAndBehindOnTheDefaultChannel()
+    {
+        while (true)
+        {
+            Assert.assertEquals(common.index(), compact.index());
+            for (int k = -3; k <= 3; k++)
+            {
+                if (k == 0)
+                {
+                    continue;
+                }
+                final Token expected = common.LT(k);
+                CompactTokenStreamTest.assertSameToken(expected, compact.LT(k));
+                if (expected != null)
+                {
+                    // LA before the first token fails on a CommonTokenStream
+                    Assert.assertEquals("LA(" + k + ") at " + common.index(), common.LA(k), compact.LA(k));
+                }
+            }
+            if (common.LA(1) == Token.EOF)
+            {
+                break;
+            }
+            common.consume();
+            compact.consume();
+        }
+    }
+
+    @Test
+    public void seeksToTheSameTokens()
+    {
+        for (int i = 0; i < common.size(); i++)
+        {
+            common.seek(i);
+            compact.seek(i);
+            Assert.assertEquals(common.index(), compact.index());
+            CompactTokenStreamTest.assertSameToken(common.LT(1), compact.LT(1));
+        }
+    }
+
+    @Test
+    public void returnsTheSameText()
+    {
+        Assert.assertEquals(common.getText(), compact.getText());
+        for (int start = 0; start < common.size(); start += 3)
+        {
+            for (int stop = start; stop < common.size() + 2; stop += 5)
+            {
+                final Interval interval = Interval.of(start, stop);
+                Assert.assertEquals(interval.toString(), common.getText(interval), compact.getText(interval));
+            }
+        }
+        Assert.assertEquals(common.getText(common.get(2), common.get(9)),
+                compact.getText(compact.get(2), compact.get(9)));
+    }
+
+    @Test
+    public void parsesToTheSameTree()
+    {
+        Assert.assertEquals(CompactTokenStreamTest.parse(common), CompactTokenStreamTest.parse(compact));
+    }
+
+    /**
+     * @param tokens
+     *            Tokens of {@link #SOURCE}, positioned at the start
+     * @return The parse tree of the tokens, in LISP form
+     */
+    private static String parse(final TokenStream tokens)
+    {
+        tokens.seek(0);
+        final CSharp6Parser parser = new CSharp6Parser(tokens);
+        return parser.compilation_unit().toStringTree(parser);
+    }
+
+    /**
+     * Asserts that two tokens are alike in all but their class
+     * 
+     * @param expected
+     *            Token of the reference stream
+     * @param actual
+     *            Token of the stream under test
+     */
+    private static void assertSameToken(final Token expected, final Token actual)
+    {
+        if (expected == null)
+        {
+            Assert.assertNull(actual);
+            return;
+        }
+        Assert.assertNotNull(actual);
+        Assert.assertEquals(expected.getTokenIndex(), actual.getTokenIndex());
+        Assert.assertEquals(expected.getType(), actual.getType());
+        Assert.assertEquals(expected.getChannel(), actual.getChannel());
+        Assert.assertEquals(expected.getText(), actual.getText());
+        Assert.assertEquals(expected.getLine(), actual.getLine());
+        Assert.assertEquals(expected.getCharPositionInLine(), actual.getCharPositionInLine());
+        Assert.assertEquals(expected.getStartIndex(), actual.getStartIndex());
+        Assert.assertEquals(expected.getStopIndex(), actual.getStopIndex());
+    }
+}
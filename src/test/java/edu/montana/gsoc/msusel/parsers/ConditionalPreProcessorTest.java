@@ -0,0 +1,237 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.util.List;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.Token;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Tests the evaluation of conditional compilation directives by
+ * {@link ConditionalPreProcessor}.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class ConditionalPreProcessorTest {
+
+    /**
+     * Source with an #if, #elif and #else section
+     */
+    private static final String BRANCHES = "#if DEBUG\n"
+                                         + "int a;\n"
+                                         + "#elif TRACE\n"
+                                         + "int b;\n"
+                                         + "#else\n"
+                                         + "int c;\n"
+                                         + "#endif\n";
+
+    @Test
+    public void takesTheFirstSectionWhoseConditionHolds()
+    {
+        Assert.assertEquals("int a ;", ConditionalPreProcessorTest.text(BRANCHES, "DEBUG", "TRACE"));
+        Assert.assertEquals("int b ;", ConditionalPreProcessorTest.text(BRANCHES, "TRACE"));
+        Assert.assertEquals("int c ;", ConditionalPreProcessorTest.text(BRANCHES));
+    }
+
+    @Test
+    public void skipsNestedConditionalsOfInactiveSections()
+    {
+        final String source = "#if OUTER\n"
+                            + "int a;\n"
+                            + "#if INNER\n"
+                            + "int b;\n"
+                            + "#else\n"
+                            + "int c;\n"
+                            + "#endif\n"
+                            + "#else\n"
+                            + "int d;\n"
+                            + "#endif\n";
+
+        Assert.assertEquals("int a ; int b ;", ConditionalPreProcessorTest.text(source, "OUTER", "INNER"));
+        Assert.assertEquals("int a ; int c ;", ConditionalPreProcessorTest.text(source, "OUTER"));
+        Assert.assertEquals("int d ;", ConditionalPreProcessorTest.text(source, "INNER"));
+    }
+
+    @Test
+    public void defineAndUndefApplyToTheRestOfTheFile()
+    {
+        final String source = "#define LOCAL\n"
+                            + "#if LOCAL\n"
+                            + "int a;\n"
+                            + "#endif\n"
+                            + "#undef LOCAL\n"
+                            + "#undef DEBUG\n"
+                            + "#if LOCAL || DEBUG\n"
+                            + "int b;\n"
+                            + "#endif\n";
+
+        Assert.assertEquals("int a ;", ConditionalPreProcessorTest.text(source, "DEBUG"));
+    }
+
+    @Test
+    public void evaluatesOperators()
+    {
+        Assert.assertTrue(ConditionalPreProcessorTest.holds("(A || B) && !C", "B"));
+        Assert.assertFalse(ConditionalPreProcessorTest.holds("(A || B) && !C", "B", "C"));
+        Assert.assertTrue(ConditionalPreProcessorTest.holds("A == B"));
+        Assert.assertFalse(ConditionalPreProcessorTest.holds("A != false"));
+        Assert.assertTrue(ConditionalPreProcessorTest.holds("true // a comment"));
+    }
+
+    @Test
+    public void keepsLineNumbersAcrossSkippedSections()
+    {
+        final String source = "#if DEBUG\n"
+                            + "int a;\n"
+                            + "\n"
+                            + "int b;\n"
+                            + "#else\n"
+                            + "int c;\n"
+                            + "#endif\n"
+                            + "int d;\r\n"
+                            + "#if DEBUG\r\n"
+                            + "int e;\r\n"
+                            + "#endif\r\n"
+                            + "int f;\n";
+
+        final List<Token> tokens = ConditionalPreProcessorTest.tokens(source);
+        Assert.assertEquals("int c ; int d ; int f ;", ConditionalPreProcessorTest.join(tokens));
+        Assert.assertEquals(6, tokens.get(0).getLine());
+        Assert.assertEquals(8, tokens.get(3).getLine());
+        Assert.assertEquals(12, tokens.get(6).getLine());
+        Assert.assertEquals(0, tokens.get(6).getCharPositionInLine());
+    }
+
+    @Test
+    public void recordsTheValueOfEachCondition()
+    {
+        final ConditionalPreProcessor lexer = new ConditionalPreProcessor(new ANTLRInputStream(BRANCHES),
+                Sets.newHashSet("TRACE"));
+        ConditionalPreProcessorTest.drain(lexer);
+        Assert.assertEquals("01", lexer.getDecisions());
+
+        lexer.setSymbols(Sets.newHashSet("DEBUG"));
+        lexer.setInputStream(new ANTLRInputStream(BRANCHES));
+        ConditionalPreProcessorTest.drain(lexer);
+        Assert.assertEquals("1", lexer.getDecisions());
+    }
+
+    @Test
+    public void findsConditionalsWithoutMovingTheInput()
+    {
+        final CharStream conditional = new ANTLRInputStream("class C { }\n  #  if DEBUG\n#endif\n");
+        Assert.assertTrue(ConditionalPreProcessor.hasConditionals(conditional));
+        Assert.assertEquals(0, conditional.index());
+
+        final CharStream plain = new ANTLRInputStream("#define X\n#region R\nclass C { }\n#endregion\n");
+        Assert.assertFalse(ConditionalPreProcessor.hasConditionals(plain));
+        Assert.assertEquals(0, plain.index());
+    }
+
+    /**
+     * @param condition
+     *            Condition of an #if
+     * @param symbols
+     *            Defined symbols
+     * @return true if the section of the #if is taken
+     */
+    private static boolean holds(final String condition, final String... symbols)
+    {
+        return !ConditionalPreProcessorTest.text("#if " + condition + "\nint a;\n#endif\n", symbols).isEmpty();
+    }
+
+    /**
+     * @param source
+     *            C# source
+     * @param symbols
+     *            Defined symbols
+     * @return Text of the tokens on the default channel, separated by spaces
+     */
+    private static String text(final String source, final String... symbols)
+    {
+        return ConditionalPreProcessorTest.join(ConditionalPreProcessorTest.tokens(source, symbols));
+    }
+
+    /**
+     * @param source
+     *            C# source
+     * @param symbols
+     *            Defined symbols
+     * @return Tokens on the default channel
+     */
+    private static List<Token> tokens(final String source, final String... symbols)
+    {
+        final ConditionalPreProcessor lexer = new ConditionalPreProcessor(new ANTLRInputStream(source),
+                Sets.newHashSet(symbols));
+        final List<Token> tokens = Lists.newArrayList();
+        for (Token token = lexer.nextToken(); token.getType() != Token.EOF; token = lexer.nextToken())
+        {
+            if (token.getChannel() == Token.DEFAULT_CHANNEL)
+            {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * @param tokens
+     *            Tokens
+     * @return Text of the tokens, separated by spaces
+     */
+    private static String join(final List<Token> tokens)
+    {
+        final List<String> texts = Lists.newArrayList();
+        for (final Token token : tokens)
+        {
+            texts.add(token.getText());
+        }
+        return Joiner.on(' ').join(texts);
+    }
+
+    /**
+     * Lexes the whole input of the given lexer
+     * 
+     * @param lexer
+     *            Lexer to drain
+     */
+    private static void drain(final ConditionalPreProcessor lexer)
+    {
+        while (lexer.nextToken().getType() != Token.EOF)
+        {
+            // only the decisions are needed
+        }
+    }
+}
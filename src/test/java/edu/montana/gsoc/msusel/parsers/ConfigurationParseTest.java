@@ -0,0 +1,213 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Tests that parsing several build configurations at once, as
+ * {@link CSharpProjectParser#parse(List, Map)} does, gives each configuration
+ * the nodes a parse of that configuration alone would, while sharing the
+ * parse of configurations which select the same sections of a file.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class ConfigurationParseTest {
+
+    /**
+     * Source with conditional sections
+     */
+    private static final String CONDITIONAL = "namespace Acme\n"
+                                            + "{\n"
+                                            + "    public class Logger\n"
+                                            + "    {\n"
+                                            + "#if DEBUG\n"
+                                            + "        public void Trace(string m) { Write(m); }\n"
+                                            + "#endif\n"
+                                            + "\n"
+                                            + "        public void Info(string m)\n"
+                                            + "        {\n"
+                                            + "#if TRACE\n"
+                                            + "            Write(\"[trace] \" + m);\n"
+                                            + "            Flush();\n"
+                                            + "#else\n"
+                                            + "            Write(m);\n"
+                                            + "#endif\n"
+                                            + "        }\n"
+                                            + "    }\n"
+                                            + "}\n";
+    /**
+     * Source without conditional sections
+     */
+    private static final String PLAIN       = "namespace Acme\n"
+                                            + "{\n"
+                                            + "    public class Clock\n"
+                                            + "    {\n"
+                                            + "        private long ticks;\n"
+                                            + "\n"
+                                            + "        public void Tick() { if (ticks < 10) { ticks++; } }\n"
+                                            + "    }\n"
+                                            + "}\n";
+    /**
+     * Temporary directory holding the sources
+     */
+    private Path                directory;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        directory = Files.createTempDirectory("configurations");
+    }
+
+    @After
+    public void tearDown() throws IOException
+    {
+        try (Stream<Path> paths = Files.walk(directory))
+        {
+            for (final Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+            {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    public void configurationsWithEqualDecisionsShareOneParse() throws IOException, InterruptedException
+    {
+        final List<Path> files = write("Logger.cs", ConfigurationParseTest.CONDITIONAL);
+        final Map<String, Set<String>> configurations = Maps.newLinkedHashMap();
+        configurations.put("Debug", Sets.newHashSet("DEBUG", "TRACE"));
+        configurations.put("Release", Sets.newHashSet("TRACE"));
+        configurations.put("Verbose", Sets.newHashSet("DEBUG", "TRACE", "VERBOSE"));
+        configurations.put("Bare", Collections.emptySet());
+
+        final Map<String, ProjectParseResult> results = CSharpProjectParser.builder().parallelism(1).create()
+                .parse(files, configurations);
+
+        for (final Map.Entry<String, Set<String>> configuration : configurations.entrySet())
+        {
+            final ProjectParseResult alone = CSharpProjectParser.builder().parallelism(1)
+                    .symbols(configuration.getValue()).create().parse(files);
+            Assert.assertEquals(configuration.getKey(), ConfigurationParseTest.describe(alone),
+                    ConfigurationParseTest.describe(results.get(configuration.getKey())));
+        }
+        Assert.assertEquals(ConfigurationParseTest.describe(results.get("Debug")),
+                ConfigurationParseTest.describe(results.get("Verbose")));
+        Assert.assertNotEquals(ConfigurationParseTest.describe(results.get("Debug")),
+                ConfigurationParseTest.describe(results.get("Release")));
+
+        // Verbose decides every condition as Debug does, so it is rebuilt
+        // from the journal of the parse of Debug
+        Assert.assertTrue(ConfigurationParseTest.parseNanos(results.get("Debug")) > 0);
+        Assert.assertTrue(ConfigurationParseTest.parseNanos(results.get("Release")) > 0);
+        Assert.assertEquals(0, ConfigurationParseTest.parseNanos(results.get("Verbose")));
+        Assert.assertTrue(ConfigurationParseTest.parseNanos(results.get("Bare")) > 0);
+    }
+
+    @Test
+    public void fileWithoutConditionalsIsParsedOnce() throws IOException, InterruptedException
+    {
+        final List<Path> files = write("Clock.cs", ConfigurationParseTest.PLAIN);
+        final Map<String, Set<String>> configurations = Maps.newLinkedHashMap();
+        configurations.put("Debug", Sets.newHashSet("DEBUG"));
+        configurations.put("Release", Collections.emptySet());
+        configurations.put("Other", Sets.newHashSet("OTHER"));
+
+        final Map<String, ProjectParseResult> results = CSharpProjectParser.builder().parallelism(1).create()
+                .parse(files, configurations);
+
+        final String expected = ConfigurationParseTest.describe(
+                CSharpProjectParser.builder().parallelism(1).create().parse(files));
+        Assert.assertTrue(expected, expected.contains("Acme.Clock#Tick()"));
+        for (final ProjectParseResult result : results.values())
+        {
+            Assert.assertEquals(FileParseStatus.PARSED, result.getOutcomes().get(0).getStatus());
+            Assert.assertEquals(expected, ConfigurationParseTest.describe(result));
+        }
+        Assert.assertTrue(ConfigurationParseTest.parseNanos(results.get("Debug")) > 0);
+        Assert.assertEquals(0, ConfigurationParseTest.parseNanos(results.get("Release")));
+        Assert.assertEquals(0, ConfigurationParseTest.parseNanos(results.get("Other")));
+    }
+
+    /**
+     * Writes a source file
+     * 
+     * @param name
+     *            Name of the file
+     * @param source
+     *            Content of the file
+     * @return List holding the file
+     * @throws IOException
+     *             If the file cannot be written
+     */
+    private List<Path> write(final String name, final String source) throws IOException
+    {
+        final Path file = directory.resolve(name);
+        Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+        return Collections.singletonList(file);
+    }
+
+    /**
+     * @param result
+     *            Result of parsing a single file
+     * @return Description of the nodes of the file
+     */
+    private static String describe(final ProjectParseResult result)
+    {
+        Assert.assertEquals(FileParseStatus.PARSED, result.getOutcomes().get(0).getStatus());
+        return FileNodes.describe(Iterables.getOnlyElement(result.getTree().getProject().getFiles()));
+    }
+
+    /**
+     * @param result
+     *            Result of parsing a single file
+     * @return Time spent parsing the file
+     */
+    private static long parseNanos(final ProjectParseResult result)
+    {
+        return result.getOutcomes().get(0).getTimings().getNanos(ParsePhase.PARSE);
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import edu.montana.gsoc.msusel.node.FieldNode;
+import edu.montana.gsoc.msusel.node.FileNode;
+import edu.montana.gsoc.msusel.node.MethodNode;
+import edu.montana.gsoc.msusel.node.TypeNode;
+
+/**
+ * Describes the nodes built for a file, so that tests can compare the results
+ * of different ways of building it.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+final class FileNodes {
+
+    /**
+     * Private constructor
+     */
+    private FileNodes()
+    {
+    }
+
+    /**
+     * @param file
+     *            A file
+     * @return Description of the types, fields and methods of the file, in
+     *         order, with their ranges, line metrics and statement counts
+     */
+    static String describe(final FileNode file)
+    {
+        final StringBuilder builder = new StringBuilder();
+        for (final TypeNode type : file.getTypes())
+        {
+            builder.append(type.getQIdentifier()).append(' ').append(type.getStart()).append('-')
+                    .append(type.getEnd()).append(FileNodes.metrics(type.getMetric("LOC"), type.getMetric("CLOC")))
+                    .append('\n');
+            for (final FieldNode field : type.getFields())
+            {
+                builder.append("  ").append(field.getQIdentifier()).append(' ').append(field.getStart())
+                        .append('-').append(field.getEnd()).append('\n');
+            }
+            for (final MethodNode method : type.getMethods())
+            {
+                builder.append("  ").append(method.getQIdentifier()).append(' ').append(method.getStart())
+                        .append('-').append(method.getEnd())
+                        .append(FileNodes.metrics(method.getMetric("LOC"), method.getMetric("CLOC"))).append(' ')
+                        .append(method.getStatements().size()).append(" statements\n");
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @param loc
+     *            LOC of a node, may be null
+     * @param cloc
+     *            CLOC of a node, may be null
+     * @return The metrics, formatted
+     */
+    private static String metrics(final Double loc, final Double cloc)
+    {
+        return " LOC " + loc + " CLOC " + cloc;
+    }
+}
@@ -0,0 +1,289 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.ParserATNSimulator;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.Resources;
+
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser;
+
+/**
+ * Tests that the time budget and cancellation token stop the lexer, the
+ * parser, and a whole project parse. The checks are made deterministic by
+ * using tokens cancelled in advance and budgets which have already expired.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class GuardedParseTest {
+
+    /**
+     * Temporary directory holding the sources
+     */
+    private Path   directory;
+    /**
+     * Source long enough for the lexer and the parser to check their guards
+     */
+    private String source;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        directory = Files.createTempDirectory("guarded");
+        source = Resources.toString(Resources.getResource(GuardedParseTest.class, "Inventory.cs"), Charsets.UTF_8);
+    }
+
+    @After
+    public void tearDown() throws IOException
+    {
+        try (Stream<Path> paths = Files.walk(directory))
+        {
+            for (final Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+            {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    public void cancelledLexerStops()
+    {
+        final GuardedPreProcessor lexer = new GuardedPreProcessor(new ANTLRInputStream(source));
+        lexer.arm(System.nanoTime(), 0, GuardedParseTest.cancelled());
+        try
+        {
+            GuardedParseTest.lex(lexer);
+            Assert.fail("The lexer was not cancelled");
+        }
+        catch (final CancellationException e)
+        {
+            Assert.assertEquals("Parse cancelled", e.getMessage());
+        }
+
+        // a new input disarms the lexer
+        lexer.setInputStream(new ANTLRInputStream(source));
+        Assert.assertTrue(GuardedParseTest.lex(lexer) > 256);
+    }
+
+    @Test
+    public void expiredLexerStops()
+    {
+        final GuardedPreProcessor lexer = new GuardedPreProcessor(new ANTLRInputStream(source));
+        lexer.arm(System.nanoTime() - 1, 1, null);
+        try
+        {
+            GuardedParseTest.lex(lexer);
+            Assert.fail("The lexer did not time out");
+        }
+        catch (final ParseTimeoutException e)
+        {
+            Assert.assertEquals("Exceeded the time budget of 0 ms", e.getMessage());
+        }
+    }
+
+    @Test
+    public void unguardedParserIsLeftAsItIs()
+    {
+        final CSharp6Parser parser = parser();
+        final ParserATNSimulator simulator = parser.getInterpreter();
+        GuardedSimulator.guard(parser, System.nanoTime(), 0, null);
+        Assert.assertSame(simulator, parser.getInterpreter());
+
+        GuardedSimulator.guard(parser, System.nanoTime(), 1, null);
+        Assert.assertTrue(parser.getInterpreter() instanceof GuardedSimulator);
+        Assert.assertSame(((GuardedSimulator) parser.getInterpreter()).decisionToDFA,
+                ((ParserATNSimulator) simulator).decisionToDFA);
+    }
+
+    @Test
+    public void cancelledParserStopsWithoutFallingBackToLL()
+    {
+        final CSharp6Parser parser = parser();
+        GuardedSimulator.guard(parser, System.nanoTime(), 0, GuardedParseTest.cancelled());
+        try
+        {
+            new CSharpParseEngine().parse(parser);
+            Assert.fail("The parser was not cancelled");
+        }
+        catch (final CancellationException e)
+        {
+            Assert.assertFalse(e instanceof ParseCancellationException);
+            Assert.assertEquals("Parse cancelled", e.getMessage());
+        }
+    }
+
+    @Test
+    public void expiredParserStops()
+    {
+        final CSharp6Parser parser = parser();
+        GuardedSimulator.guard(parser, System.nanoTime() - 1, 1, null);
+        try
+        {
+            new CSharpParseEngine().parse(parser);
+            Assert.fail("The parser did not time out");
+        }
+        catch (final ParseTimeoutException e)
+        {
+            Assert.assertEquals("Exceeded the time budget of 0 ms", e.getMessage());
+        }
+
+        // disarmed, the same parser completes
+        GuardedSimulator.guard(parser, System.nanoTime(), 0, null);
+        parser.setTokenStream(new CommonTokenStream(new GuardedPreProcessor(new ANTLRInputStream(source))));
+        Assert.assertEquals(0, new CSharpParseEngine().parse(parser).getSyntaxErrors());
+    }
+
+    @Test
+    public void filesPastTheirBudgetTimeOutAndAreQuarantined() throws IOException, InterruptedException
+    {
+        final Path quarantine = directory.resolve("quarantine.tsv");
+        final List<Path> files = write(3);
+        final ProjectParseResult result = CSharpProjectParser.builder().parallelism(2)
+                .fileTimeout(1, TimeUnit.NANOSECONDS).quarantine(quarantine).create().parse(files);
+
+        Assert.assertEquals(3, result.count(FileParseStatus.TIMED_OUT));
+        Assert.assertFalse(result.isCancelled());
+        for (final FileParseOutcome outcome : result.getOutcomes())
+        {
+            Assert.assertTrue(outcome.getError() instanceof ParseTimeoutException);
+        }
+        final ParseQuarantine entries = new ParseQuarantine(quarantine);
+        for (final Path file : files)
+        {
+            Assert.assertTrue(entries.contains(ParseCache.hash(file)));
+        }
+
+        Assert.assertEquals(3, CSharpProjectParser.builder().parallelism(2).create().parse(files)
+                .count(FileParseStatus.PARSED));
+    }
+
+    @Test
+    public void cancelledParseCompletesNoFiles() throws IOException, InterruptedException
+    {
+        final Path quarantine = directory.resolve("quarantine.tsv");
+        final List<Path> files = write(3);
+        final ProjectParseResult result = CSharpProjectParser.builder().parallelism(2).quarantine(quarantine)
+                .create().parseCancellable(files, GuardedParseTest.cancelled());
+
+        Assert.assertTrue(result.isCancelled());
+        Assert.assertEquals(3, result.getOutcomes().size());
+        Assert.assertEquals(3, result.count(FileParseStatus.CANCELLED));
+        Assert.assertTrue(result.getTree().getProject().getFiles().isEmpty());
+        Assert.assertEquals(0, new ParseQuarantine(quarantine).size());
+    }
+
+    @Test
+    public void cancelledCrawlFindsNoFiles() throws IOException, InterruptedException
+    {
+        write(3);
+        final ProjectParseResult result = CSharpProjectParser.builder().create().parseCancellable(directory,
+                GuardedParseTest.cancelled());
+
+        Assert.assertTrue(result.isCancelled());
+        Assert.assertEquals(0, result.count(FileParseStatus.PARSED));
+    }
+
+    /**
+     * @return A parser over the source
+     */
+    private CSharp6Parser parser()
+    {
+        final CSharp6Parser parser = new CSharp6Parser(
+                new CommonTokenStream(new GuardedPreProcessor(new ANTLRInputStream(source))));
+        parser.removeErrorListeners();
+        return parser;
+    }
+
+    /**
+     * Writes copies of the source, each with its own content hash
+     * 
+     * @param count
+     *            Number of copies
+     * @return The files written
+     * @throws IOException
+     *             If a file cannot be written
+     */
+    private List<Path> write(final int count) throws IOException
+    {
+        final List<Path> files = Lists.newArrayList();
+        for (int i = 0; i < count; i++)
+        {
+            final Path file = directory.resolve("Inventory" + i + ".cs");
+            Files.write(file, (source + "// copy " + i + "\n").getBytes(StandardCharsets.UTF_8));
+            files.add(file);
+        }
+        return files;
+    }
+
+    /**
+     * @return A token which has already been cancelled
+     */
+    private static CancellationToken cancelled()
+    {
+        final CancellationToken token = new CancellationToken();
+        token.cancel();
+        return token;
+    }
+
+    /**
+     * Lexes the whole input of the given lexer
+     * 
+     * @param lexer
+     *            Lexer to drain
+     * @return Number of tokens produced
+     */
+    private static int lex(final GuardedPreProcessor lexer)
+    {
+        int count = 0;
+        while (lexer.nextToken().getType() != Token.EOF)
+        {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,199 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6BaseListener;
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser;
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Class_definitionContext;
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Method_bodyContext;
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Method_declarationContext;
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser.Method_member_nameContext;
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6PreProcessor;
+
+/**
+ * Tests recovery by {@link MemberResyncErrorStrategy}, as installed by the
+ * {@link CSharpParseEngine} once a file has failed to parse with SLL.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class MemberResyncErrorStrategyTest {
+
+    /**
+     * Engine recovering at members, without reporting errors
+     */
+    private final CSharpParseEngine engine = new CSharpParseEngine(
+            ErrorPolicy.builder().reportErrors(false).create());
+
+    @Test
+    public void membersAfterBrokenMemberSurvive()
+    {
+        final CSharp6Parser parser = MemberResyncErrorStrategyTest.parser(
+                "class C\n"
+              + "{\n"
+              + "    public void Bad(int a,, int b) { Call(); }\n"
+              + "    public void First() { }\n"
+              + "}\n"
+              + "class D\n"
+              + "{\n"
+              + "    void Second() { }\n"
+              + "}\n");
+        final CSharpParseResult result = engine.parse(parser);
+
+        Assert.assertTrue(result.getSyntaxErrors() > 0);
+        Assert.assertEquals(Lists.newArrayList("C.First", "D.Second"), MemberResyncErrorStrategyTest.methods(result));
+    }
+
+    @Test
+    public void errorsInAccessorsAndFieldsAreConfinedToTheirMember()
+    {
+        final CSharp6Parser parser = MemberResyncErrorStrategyTest.parser(
+                "class C\n"
+              + "{\n"
+              + "    public int Prop { get { return 1 +; } set { } }\n"
+              + "    private int f = ;\n"
+              + "    public void After() { }\n"
+              + "}\n"
+              + "class D\n"
+              + "{\n"
+              + "    void Second() { }\n"
+              + "}\n");
+
+        Assert.assertEquals(Lists.newArrayList("C.After", "D.Second"),
+                MemberResyncErrorStrategyTest.methods(engine.parse(parser)));
+    }
+
+    @Test(timeout = 10000)
+    public void recoveryStopsAtTheModifierOfTheNextMember()
+    {
+        // the body of Broken is never closed
+        final CSharp6Parser parser = MemberResyncErrorStrategyTest.parser(
+                "class C\n"
+              + "{\n"
+              + "    public void Broken() { Call(;\n"
+              + "    public void First() { }\n"
+              + "    public void Second() { }\n"
+              + "}\n");
+
+        Assert.assertEquals(Lists.newArrayList("C.Broken", "C.First", "C.Second"),
+                MemberResyncErrorStrategyTest.methods(engine.parse(parser)));
+    }
+
+    @Test(timeout = 10000)
+    public void recoveryStopsAtEndOfFile()
+    {
+        final CSharp6Parser parser = MemberResyncErrorStrategyTest.parser(
+                "class C\n"
+              + "{\n"
+              + "    void Good() { }\n"
+              + "    void Broken() { int x = ");
+        final CSharpParseResult result = engine.parse(parser);
+
+        Assert.assertTrue(result.getSyntaxErrors() > 0);
+        Assert.assertEquals(Token.EOF, parser.getInputStream().LA(1));
+        Assert.assertEquals(Lists.newArrayList("C.Good", "C.Broken"), MemberResyncErrorStrategyTest.methods(result));
+    }
+
+    @Test(timeout = 10000)
+    public void bodyParsedOnItsOwnRecoversToItsEnd()
+    {
+        final CSharp6Parser parser = MemberResyncErrorStrategyTest.parser("{ int x = ; Call(); { } }");
+        final Method_bodyContext body = engine.parseMethodBody(parser);
+
+        Assert.assertNotNull(body);
+        Assert.assertTrue(parser.getNumberOfSyntaxErrors() > 0);
+        Assert.assertEquals(Token.EOF, parser.getInputStream().LA(1));
+    }
+
+    /**
+     * @param source
+     *            C# source
+     * @return A parser reading the source, without error listeners
+     */
+    private static CSharp6Parser parser(final String source)
+    {
+        final CSharp6PreProcessor lexer = new CSharp6PreProcessor(new ANTLRInputStream(source));
+        lexer.removeErrorListeners();
+        final CSharp6Parser parser = new CSharp6Parser(new CommonTokenStream(lexer));
+        parser.removeErrorListeners();
+        return parser;
+    }
+
+    /**
+     * @param result
+     *            Result of a parse
+     * @return Names of the methods in the parse tree, each qualified by the
+     *         name of its class, in order
+     */
+    private static List<String> methods(final CSharpParseResult result)
+    {
+        final List<String> names = Lists.newArrayList();
+        final Deque<String> classes = new ArrayDeque<>();
+        ParseTreeWalker.DEFAULT.walk(new CSharp6BaseListener() {
+
+            @Override
+            public void enterClass_definition(final Class_definitionContext ctx)
+            {
+                classes.push(ctx.identifier() == null ? "" : ctx.identifier().getText());
+            }
+
+            @Override
+            public void exitClass_definition(final Class_definitionContext ctx)
+            {
+                classes.pop();
+            }
+
+            @Override
+            public void enterMethod_declaration(final Method_declarationContext ctx)
+            {
+                if (ctx.method_header() != null && ctx.method_header().member_name() != null)
+                {
+                    names.add(classes.peek() + "." + ctx.method_header().member_name().getText());
+                }
+            }
+
+            @Override
+            public void enterMethod_member_name(final Method_member_nameContext ctx)
+            {
+                names.add(classes.peek() + "." + ctx.getText());
+            }
+        }, result.getTree());
+        return names;
+    }
+}
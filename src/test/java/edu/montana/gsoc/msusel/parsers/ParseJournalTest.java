@@ -0,0 +1,211 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.montana.gsoc.msusel.node.FieldNode;
+import edu.montana.gsoc.msusel.node.FileNode;
+import edu.montana.gsoc.msusel.node.MethodNode;
+import edu.montana.gsoc.msusel.node.TypeNode;
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser;
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6PreProcessor;
+
+/**
+ * Tests that a {@link ParseJournal} rebuilds the nodes of the walk which
+ * recorded it, and that a corrupt journal in the {@link ParseCache} is
+ * parsed again rather than failing the file.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class ParseJournalTest {
+
+    /**
+     * Source exercising every operation of the journal
+     */
+    private static final String SOURCE = "namespace Acme\n"
+                                       + "{\n"
+                                       + "    public interface IShape\n"
+                                       + "    {\n"
+                                       + "        double Area();\n"
+                                       + "    }\n"
+                                       + "\n"
+                                       + "    public class Square : IShape\n"
+                                       + "    {\n"
+                                       + "        private double side, scale = 1;\n"
+                                       + "\n"
+                                       + "        public Square(double side)\n"
+                                       + "        {\n"
+                                       + "            this.side = side;\n"
+                                       + "        }\n"
+                                       + "\n"
+                                       + "        public double Area()\n"
+                                       + "        {\n"
+                                       + "            if (side < 0)\n"
+                                       + "            {\n"
+                                       + "                return 0;\n"
+                                       + "            }\n"
+                                       + "            for (int i = 0; i < 2; i++) { scale *= 1; }\n"
+                                       + "            return side * side * scale;\n"
+                                       + "        }\n"
+                                       + "\n"
+                                       + "        class Cache { int hits; void Hit() { hits++; } }\n"
+                                       + "    }\n"
+                                       + "}\n";
+    /**
+     * Temporary directory holding the source and the cache
+     */
+    private Path                directory;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        directory = Files.createTempDirectory("journal");
+    }
+
+    @After
+    public void tearDown() throws IOException
+    {
+        try (Stream<Path> paths = Files.walk(directory))
+        {
+            for (final Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+            {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    public void replayRebuildsTheNodesOfTheWalk() throws IOException
+    {
+        final CSharp6PreProcessor lexer = new CSharp6PreProcessor(new ANTLRInputStream(ParseJournalTest.SOURCE));
+        final CSharp6Parser parser = new CSharp6Parser(new CommonTokenStream(lexer));
+        final CSharpParseResult result = new CSharpParseEngine().parse(parser);
+        Assert.assertEquals(0, result.getSyntaxErrors());
+
+        final FileNode walked = FileNode.builder("Square.cs").create();
+        final ParseJournal journal = new ParseJournal();
+        final CSharpCodeTreeBuilder builder = new CSharpCodeTreeBuilder(walked);
+        builder.setJournal(journal);
+        ParseTreeWalker.DEFAULT.walk(builder, result.getTree());
+
+        final FileNode replayed = FileNode.builder("Square.cs").create();
+        new ParseJournal(journal.toByteArray()).replay(replayed);
+
+        final String expected = ParseJournalTest.describe(walked);
+        Assert.assertTrue(expected, expected.contains("Acme.Square#Area"));
+        Assert.assertEquals(expected, ParseJournalTest.describe(replayed));
+    }
+
+    @Test(expected = IOException.class)
+    public void replayRejectsUnknownOperations() throws IOException
+    {
+        new ParseJournal(new byte[] { 99 }).replay(FileNode.builder("A.cs").create());
+    }
+
+    @Test(expected = IOException.class)
+    public void replayRejectsUnknownNodes() throws IOException
+    {
+        // a method of type 5, when no type has been created
+        new ParseJournal(new byte[] { 2, 0, 0, 0, 5 }).replay(FileNode.builder("A.cs").create());
+    }
+
+    @Test
+    public void corruptCacheEntryIsParsedAgain() throws IOException, InterruptedException
+    {
+        final Path file = directory.resolve("Square.cs");
+        Files.write(file, ParseJournalTest.SOURCE.getBytes(StandardCharsets.UTF_8));
+        final Path cache = directory.resolve("cache");
+        final CSharpProjectParser parser = CSharpProjectParser.builder().parallelism(1).cache(cache).create();
+        final List<Path> files = Collections.singletonList(file);
+
+        Assert.assertEquals(1, parser.parse(files).count(FileParseStatus.PARSED));
+        Assert.assertEquals(1, parser.parse(files).count(FileParseStatus.CACHED));
+
+        final Path entry;
+        try (Stream<Path> paths = Files.walk(cache))
+        {
+            entry = paths.filter(Files::isRegularFile).findFirst().get();
+        }
+        try (OutputStream stream = Files.newOutputStream(entry); DataOutputStream out = new DataOutputStream(stream))
+        {
+            // a well formed entry holding an unknown operation
+            out.writeInt(0x43535043);
+            out.writeInt(1);
+            out.writeByte(99);
+        }
+
+        Assert.assertEquals(1, parser.parse(files).count(FileParseStatus.PARSED));
+        Assert.assertEquals(1, parser.parse(files).count(FileParseStatus.CACHED));
+    }
+
+    /**
+     * @param file
+     *            A file
+     * @return Description of the types, members and statement counts of the
+     *         file, in order
+     */
+    private static String describe(final FileNode file)
+    {
+        final StringBuilder builder = new StringBuilder();
+        for (final TypeNode type : file.getTypes())
+        {
+            builder.append(type.getQIdentifier()).append(' ').append(type.getStart()).append('-')
+                    .append(type.getEnd()).append('\n');
+            for (final FieldNode field : type.getFields())
+            {
+                builder.append("  ").append(field.getQIdentifier()).append(' ').append(field.getStart())
+                        .append('-').append(field.getEnd()).append('\n');
+            }
+            for (final MethodNode method : type.getMethods())
+            {
+                builder.append("  ").append(method.getQIdentifier()).append(' ').append(method.getStart())
+                        .append('-').append(method.getEnd()).append(' ').append(method.getStatements().size())
+                        .append(" statements\n");
+            }
+        }
+        return builder.toString();
+    }
+}
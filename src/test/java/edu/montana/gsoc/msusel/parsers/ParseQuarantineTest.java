@@ -0,0 +1,213 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link ErrorPolicy} limits on syntax errors, and the round trip
+ * of a failing file through the {@link ParseQuarantine}.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class ParseQuarantineTest {
+
+    /**
+     * Source with three syntax errors, one per member
+     */
+    private static final String BROKEN = "class Ledger\n"
+                                       + "{\n"
+                                       + "    void A(int a,, int b) { }\n"
+                                       + "    void B() { x = = 1; }\n"
+                                       + "    int C() { return (1; }\n"
+                                       + "    void D() { }\n"
+                                       + "}\n";
+    /**
+     * The source once repaired
+     */
+    private static final String FIXED  = "class Ledger\n"
+                                       + "{\n"
+                                       + "    void A(int a, int b) { }\n"
+                                       + "    void B() { x = 1; }\n"
+                                       + "    int C() { return (1); }\n"
+                                       + "    void D() { }\n"
+                                       + "}\n";
+    /**
+     * Temporary directory holding the source and the quarantine
+     */
+    private Path                directory;
+    /**
+     * The source file
+     */
+    private Path                file;
+    /**
+     * The quarantine file
+     */
+    private Path                quarantine;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        directory = Files.createTempDirectory("quarantine");
+        file = directory.resolve("Ledger.cs");
+        quarantine = directory.resolve("quarantine.tsv");
+    }
+
+    @After
+    public void tearDown() throws IOException
+    {
+        try (Stream<Path> paths = Files.walk(directory))
+        {
+            for (final Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+            {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    public void errorsAreRecoveredFromUntilTheLimit() throws IOException, InterruptedException
+    {
+        write(ParseQuarantineTest.BROKEN);
+
+        final FileParseOutcome recovered = parse(ErrorPolicy.builder().reportErrors(false).create(), false);
+        Assert.assertEquals(FileParseStatus.PARSED, recovered.getStatus());
+        Assert.assertEquals(ParseStage.LL, recovered.getStage());
+        Assert.assertEquals(3, recovered.getSyntaxErrors());
+
+        Assert.assertEquals(FileParseStatus.PARSED,
+                parse(ErrorPolicy.builder().reportErrors(false).maxErrors(4).create(), false).getStatus());
+        final FileParseOutcome capped = parse(ErrorPolicy.builder().reportErrors(false).maxErrors(3).create(),
+                false);
+        Assert.assertEquals(FileParseStatus.FAILED, capped.getStatus());
+        Assert.assertEquals("Gave up after 3 syntax errors", capped.getError().getMessage());
+    }
+
+    @Test
+    public void bailOutFailsAtTheFirstError() throws IOException, InterruptedException
+    {
+        write(ParseQuarantineTest.BROKEN);
+
+        final FileParseOutcome outcome = parse(ErrorPolicy.builder().reportErrors(false).bailOut(true).create(),
+                false);
+        Assert.assertEquals(FileParseStatus.FAILED, outcome.getStatus());
+        Assert.assertEquals("Syntax error at 3:17", outcome.getError().getMessage());
+    }
+
+    @Test
+    public void failingFileIsSkippedUntilEdited() throws IOException, InterruptedException
+    {
+        final ErrorPolicy policy = ErrorPolicy.builder().reportErrors(false).bailOut(true).create();
+        write(ParseQuarantineTest.BROKEN);
+        final String broken = ParseCache.hash(file);
+
+        Assert.assertEquals(FileParseStatus.FAILED, parse(policy, true).getStatus());
+        Assert.assertTrue(new ParseQuarantine(quarantine).contains(broken));
+        final List<String> lines = Files.readAllLines(quarantine, StandardCharsets.UTF_8);
+        Assert.assertEquals(1, lines.size());
+        Assert.assertTrue(lines.get(0), lines.get(0).startsWith(broken + "\t" + file + "\t"));
+
+        Assert.assertEquals(FileParseStatus.QUARANTINED, parse(policy, true).getStatus());
+
+        write(ParseQuarantineTest.FIXED);
+        Assert.assertEquals(FileParseStatus.PARSED, parse(policy, true).getStatus());
+        Assert.assertFalse(new ParseQuarantine(quarantine).contains(ParseCache.hash(file)));
+
+        // the entry follows the content, not the path
+        write(ParseQuarantineTest.BROKEN);
+        Assert.assertEquals(FileParseStatus.QUARANTINED, parse(policy, true).getStatus());
+    }
+
+    @Test
+    public void downgradedFileBailsOutAndIsReleasedOnceItParses() throws IOException, InterruptedException
+    {
+        final ErrorPolicy policy = ErrorPolicy.builder().reportErrors(false)
+                .quarantineAction(QuarantineAction.BAIL_OUT).create();
+        write(ParseQuarantineTest.BROKEN);
+        final ParseQuarantine entries = new ParseQuarantine(quarantine);
+        entries.add(ParseCache.hash(file), file, "failed before");
+        write(ParseQuarantineTest.FIXED);
+        entries.add(ParseCache.hash(file), file, "timed out before");
+        entries.save();
+
+        // recovery would have parsed it, but a quarantined file bails out
+        write(ParseQuarantineTest.BROKEN);
+        final FileParseOutcome downgraded = parse(policy, true);
+        Assert.assertEquals(FileParseStatus.FAILED, downgraded.getStatus());
+        Assert.assertEquals("Syntax error at 3:17", downgraded.getError().getMessage());
+        Assert.assertTrue(new ParseQuarantine(quarantine).contains(ParseCache.hash(file)));
+
+        write(ParseQuarantineTest.FIXED);
+        Assert.assertEquals(FileParseStatus.PARSED, parse(policy, true).getStatus());
+        Assert.assertFalse(new ParseQuarantine(quarantine).contains(ParseCache.hash(file)));
+        Assert.assertEquals(1, new ParseQuarantine(quarantine).size());
+    }
+
+    /**
+     * Writes the source file
+     * 
+     * @param source
+     *            Content of the file
+     * @throws IOException
+     *             If the file cannot be written
+     */
+    private void write(final String source) throws IOException
+    {
+        Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parses the source file with a new parser
+     * 
+     * @param policy
+     *            Error policy of the parser
+     * @param quarantined
+     *            Whether the parser uses the quarantine
+     * @return Outcome of the file
+     * @throws InterruptedException
+     *             If interrupted while parsing
+     */
+    private FileParseOutcome parse(final ErrorPolicy policy, final boolean quarantined) throws InterruptedException
+    {
+        final CSharpProjectParser parser = CSharpProjectParser.builder().parallelism(1).errorPolicy(policy)
+                .quarantine(quarantined ? quarantine : null).create();
+        return parser.parse(Collections.singletonList(file)).getOutcomes().get(0);
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ParserScalingBenchmark - Measures how parsing a project scales with the
+ * number of worker threads when all workers share one prediction cache and
+ * when each worker has its own shard. Each configuration starts from an empty
+ * cache, parses the project once cold and once warm, and reports both times.
+ *
+ * @author Isaac Griffith
+ */
+public class ParserScalingBenchmark {
+
+    private ParserScalingBenchmark()
+    {
+    }
+
+    /**
+     * @param args
+     *            Root directory of the project to parse, optionally followed
+     *            by the maximum number of threads
+     * @throws InterruptedException
+     */
+    public static void main(final String... args) throws InterruptedException
+    {
+        final Path root = Paths.get(args.length > 0 ? args[0] : "/home/git/sms/Core");
+        final int max = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        System.out.println("threads\tshared cold\tshared warm\tsharded cold\tsharded warm\t(ms)");
+        for (int threads = 1; threads <= max; threads = threads < max && threads * 2 > max ? max : threads * 2)
+        {
+            final CSharpProjectParser shared = CSharpProjectParser.builder()
+                    .parallelism(threads)
+                    .dfaCache(new ParserDfaCache())
+                    .create();
+            final CSharpProjectParser sharded = CSharpProjectParser.builder()
+                    .parallelism(threads)
+                    .dfaShards(threads)
+                    .create();
+
+            System.out.println(threads + "\t" + ParserScalingBenchmark.time(shared, root) + "\t"
+                    + ParserScalingBenchmark.time(shared, root) + "\t" + ParserScalingBenchmark.time(sharded, root)
+                    + "\t" + ParserScalingBenchmark.time(sharded, root));
+        }
+    }
+
+    /**
+     * @param parser
+     *            Parser to run
+     * @param root
+     *            Root directory of the project to parse
+     * @return Wall time of the parse in milliseconds
+     * @throws InterruptedException
+     */
+    private static long time(final CSharpProjectParser parser, final Path root) throws InterruptedException
+    {
+        return TimeUnit.NANOSECONDS.toMillis(parser.parse(root).getWallNanos());
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Tests that a {@link SourceCrawler} applies its rules, and that an entry
+ * which cannot be read costs only that entry.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class SourceCrawlerTest {
+
+    /**
+     * Temporary directory crawled by the tests
+     */
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        directory = Files.createTempDirectory("crawl");
+    }
+
+    @After
+    public void tearDown() throws IOException
+    {
+        try (Stream<Path> paths = Files.walk(directory))
+        {
+            for (final Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+            {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    public void defaultRulesFindSourcesOutsideBuildDirectories() throws IOException
+    {
+        touch("A.cs", "Sub/B.cs", "Sub/Deeper/C.cs", "notes.txt", "bin/D.cs", "obj/Debug/E.cs", ".git/F.cs",
+                "Acme.UnitTests/G.cs", "Sub/obj/H.cs");
+
+        Assert.assertEquals(paths("A.cs", "Sub/B.cs", "Sub/Deeper/C.cs"),
+                SourceCrawler.builder().create().list(directory));
+    }
+
+    @Test
+    public void includeAndExcludeRulesApply() throws IOException
+    {
+        touch("A.cs", "A.Designer.cs", "tools/B.cs", "Sub/tools/C.cs", "Sub/D.csx");
+
+        final SourceCrawler crawler = SourceCrawler.builder()
+                .include("*.cs", "*.csx")
+                .exclude("*.Designer.cs", "tools/**")
+                .create();
+        Assert.assertEquals(paths("A.cs", "Sub/D.csx", "Sub/tools/C.cs"), crawler.list(directory));
+    }
+
+    @Test
+    public void brokenSymbolicLinkCostsOnlyItself() throws IOException
+    {
+        touch("A.cs", "M.cs", "Z.cs", "Sub/B.cs", "bin/C.cs");
+        Files.createSymbolicLink(directory.resolve("Broken.cs"), directory.resolve("Missing.cs"));
+        Files.createSymbolicLink(directory.resolve("Linked.cs"), directory.resolve("Z.cs"));
+        Files.createSymbolicLink(directory.resolve("Sub/Dangling.cs"), directory.resolve("Sub/Gone.cs"));
+
+        Assert.assertEquals(paths("A.cs", "Linked.cs", "M.cs", "Sub/B.cs", "Z.cs"),
+                SourceCrawler.builder().create().list(directory));
+    }
+
+    @Test
+    public void cancelledCrawlFindsNothing() throws IOException
+    {
+        touch("A.cs", "Sub/B.cs");
+        final CancellationToken cancellation = new CancellationToken();
+        cancellation.cancel();
+
+        Assert.assertTrue(SourceCrawler.builder().create().list(directory, cancellation).isEmpty());
+    }
+
+    /**
+     * Creates empty files
+     * 
+     * @param names
+     *            Paths of the files relative to the crawled directory
+     * @throws IOException
+     *             If a file cannot be created
+     */
+    private void touch(final String... names) throws IOException
+    {
+        for (final String name : names)
+        {
+            final Path file = directory.resolve(name);
+            Files.createDirectories(file.getParent());
+            Files.createFile(file);
+        }
+    }
+
+    /**
+     * @param names
+     *            Paths relative to the crawled directory, in sorted order
+     * @return The absolute paths, as listed by the crawler
+     */
+    private List<Path> paths(final String... names)
+    {
+        final List<Path> paths = Lists.newArrayList();
+        for (final String name : names)
+        {
+            paths.add(directory.resolve(name).toAbsolutePath());
+        }
+        return paths;
+    }
+}
@@ -0,0 +1,178 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.io.Resources;
+
+import edu.montana.gsoc.msusel.node.FileNode;
+import edu.montana.gsoc.msusel.node.MethodNode;
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser;
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6PreProcessor;
+
+/**
+ * Tests that a {@link StreamingCodeTreeBuilder} builds the same nodes as a
+ * {@link CSharpCodeTreeBuilder} walking the complete parse tree, with and
+ * without deferred method bodies.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class StreamingCodeTreeBuilderTest {
+
+    /**
+     * Source ending within a method body, which thus cannot be skipped
+     */
+    private static final String UNCLOSED = "namespace Acme\n"
+                                         + "{\n"
+                                         + "    public class Open\n"
+                                         + "    {\n"
+                                         + "        public void Closed() { a(); }\n"
+                                         + "\n"
+                                         + "        public void Unclosed()\n"
+                                         + "        {\n"
+                                         + "            b();\n"
+                                         + "            if (c) { d(); }\n";
+
+    @Test
+    public void streamingBuildsTheSameFileAsTheWalk() throws IOException
+    {
+        final String source = StreamingCodeTreeBuilderTest.inventory();
+
+        final String expected = FileNodes.describe(StreamingCodeTreeBuilderTest.build(source, false, false, null));
+        Assert.assertTrue(expected, expected.contains("Acme.Warehouse.Inventory#Remove(string, int)"));
+        Assert.assertEquals(expected,
+                FileNodes.describe(StreamingCodeTreeBuilderTest.build(source, true, false, null)));
+    }
+
+    @Test
+    public void streamingOutlineDefersTheSameBodiesAsTheWalk() throws IOException
+    {
+        final String source = StreamingCodeTreeBuilderTest.inventory();
+        final LazyMethodBodies walkedBodies = new LazyMethodBodies();
+        final FileNode walked = StreamingCodeTreeBuilderTest.build(source, false, true, walkedBodies);
+        final LazyMethodBodies streamedBodies = new LazyMethodBodies();
+        final FileNode streamed = StreamingCodeTreeBuilderTest.build(source, true, true, streamedBodies);
+
+        Assert.assertEquals(FileNodes.describe(walked), FileNodes.describe(streamed));
+        Assert.assertTrue(walkedBodies.getPendingCount() > 0);
+        Assert.assertEquals(walkedBodies.getPendingCount(), streamedBodies.getPendingCount());
+
+        walkedBodies.parseAll();
+        streamedBodies.parseAll();
+        final String full = FileNodes.describe(StreamingCodeTreeBuilderTest.build(source, false, false, null));
+        Assert.assertEquals(full, FileNodes.describe(walked));
+        Assert.assertEquals(full, FileNodes.describe(streamed));
+    }
+
+    @Test
+    public void unclosedBodyIsNotDeferred()
+    {
+        final String full = FileNodes.describe(
+                StreamingCodeTreeBuilderTest.build(StreamingCodeTreeBuilderTest.UNCLOSED, false, false, null));
+
+        final LazyMethodBodies walkedBodies = new LazyMethodBodies();
+        final FileNode walked = StreamingCodeTreeBuilderTest.build(StreamingCodeTreeBuilderTest.UNCLOSED, false,
+                true, walkedBodies);
+        final LazyMethodBodies streamedBodies = new LazyMethodBodies();
+        final FileNode streamed = StreamingCodeTreeBuilderTest.build(StreamingCodeTreeBuilderTest.UNCLOSED, true,
+                true, streamedBodies);
+
+        // only the closed body is skipped, the unclosed one is parsed with
+        // the file
+        final MethodNode unclosed = streamed.getTypes().get(0).getMethods().get(1);
+        Assert.assertFalse(streamedBodies.isPending(unclosed));
+        Assert.assertEquals(1, walkedBodies.getPendingCount());
+        Assert.assertEquals(1, streamedBodies.getPendingCount());
+
+        walkedBodies.parseAll();
+        streamedBodies.parseAll();
+        Assert.assertEquals(full, FileNodes.describe(walked));
+        Assert.assertEquals(full, FileNodes.describe(streamed));
+    }
+
+    /**
+     * Parses a source and builds its FileNode
+     * 
+     * @param source
+     *            Source to parse
+     * @param streaming
+     *            Whether the nodes are built while parsing, rather than by
+     *            walking the parse tree
+     * @param outline
+     *            Whether member bodies are skipped
+     * @param bodies
+     *            Registry of the skipped bodies, or null
+     * @return The FileNode
+     */
+    private static FileNode build(final String source, final boolean streaming, final boolean outline,
+            final LazyMethodBodies bodies)
+    {
+        final CSharp6PreProcessor lexer = new CSharp6PreProcessor(new ANTLRInputStream(source));
+        final CommonTokenStream tokens = outline ? new OutlineTokenStream(lexer) : new CommonTokenStream(lexer);
+        final TokenLineIndex lines = TokenLineIndex.build(tokens);
+        final CSharp6Parser parser = new CSharp6Parser(tokens);
+        parser.removeErrorListeners();
+        if (outline)
+        {
+            OutlineBodySkipper.attach(parser);
+        }
+        final LazyMethodBodies.FileBodies fileBodies = bodies == null ? null
+                : bodies.forFile((OutlineTokenStream) tokens);
+
+        if (streaming)
+        {
+            final StreamingCodeTreeBuilder listener = StreamingCodeTreeBuilder.attach(parser, "File.cs", lines,
+                    fileBodies, null);
+            new CSharpParseEngine().parse(parser);
+            return listener.getFile();
+        }
+
+        final FileNode file = FileNode.builder("File.cs").create();
+        ParseTreeWalker.DEFAULT.walk(new CSharpCodeTreeBuilder(file, lines, fileBodies),
+                new CSharpParseEngine().parse(parser).getTree());
+        return file;
+    }
+
+    /**
+     * @return Content of the Inventory.cs resource
+     * @throws IOException
+     *             If the resource cannot be read
+     */
+    private static String inventory() throws IOException
+    {
+        return Resources.toString(Resources.getResource(StreamingCodeTreeBuilderTest.class, "Inventory.cs"),
+                StandardCharsets.UTF_8);
+    }
+}
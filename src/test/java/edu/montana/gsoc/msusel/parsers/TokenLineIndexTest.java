@@ -0,0 +1,197 @@
+/**
+ * The MIT License (MIT)
+ *
+ * MSUSEL C# Parser
+ * Copyright (c) 2015-2017 Montana State University, Gianforte School of Computing,
+ * Software Engineering Laboratory
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.montana.gsoc.msusel.parsers;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+import edu.montana.gsoc.msusel.metrics.loc.LoCCounter;
+import edu.montana.gsoc.msusel.node.FileNode;
+import edu.montana.gsoc.msusel.node.MethodNode;
+import edu.montana.gsoc.msusel.node.TypeNode;
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6Parser;
+import edu.montana.gsoc.msusel.parsers.csharp.CSharp6PreProcessor;
+
+/**
+ * Tests the LOC and CLOC metrics computed from a {@link TokenLineIndex}.
+ * <p>
+ * Before the index, LOC was counted by a {@link LoCCounter} over
+ * {@code ctx.getText()}, which holds no line breaks, so the reference here is
+ * a LoCCounter over the source lines of each node instead. The two agree on
+ * blank lines, comments and directive lines. They differ, deliberately, on
+ * the lines within a verbatim string, which the index counts as code even
+ * where they are blank or begin with a comment marker.
+ *
+ * @author Isaac Griffith
+ * @version 1.1.0
+ */
+public class TokenLineIndexTest {
+
+    /**
+     * Source with CRLF line breaks, as LoCCounter is configured for them
+     */
+    private static final String SOURCE = "namespace Acme\r\n"                               // 1
+                                       + "{\r\n"                                            // 2
+                                       + "    /* a comment\r\n"                             // 3
+                                       + "       spanning lines */\r\n"                     // 4
+                                       + "    public class Report\r\n"                      // 5
+                                       + "    {\r\n"                                        // 6
+                                       + "\r\n"                                             // 7
+                                       + "        // the header\r\n"                        // 8
+                                       + "        private string header = @\"first\r\n"     // 9
+                                       + "second\r\n"                                       // 10
+                                       + "\r\n"                                             // 11
+                                       + "// not a comment\r\n"                             // 12
+                                       + "\";\r\n"                                          // 13
+                                       + "\r\n"                                             // 14
+                                       + "        public string Render() /* inline */\r\n"  // 15
+                                       + "        {\r\n"                                    // 16
+                                       + "            /*\r\n"                               // 17
+                                       + "             * block\r\n"                         // 18
+                                       + "             */\r\n"                              // 19
+                                       + "            var s = header; // trailing\r\n"      // 20
+                                       + "\r\n"                                             // 21
+                                       + "#if DEBUG\r\n"                                    // 22
+                                       + "            s += \"!\";\r\n"                      // 23
+                                       + "#endif\r\n"                                       // 24
+                                       + "            return s;\r\n"                        // 25
+                                       + "        }\r\n"                                    // 26
+                                       + "    }\r\n"                                        // 27
+                                       + "}\r\n";                                           // 28
+
+    @Test
+    public void indexClassifiesEachLine()
+    {
+        final TokenLineIndex index = TokenLineIndex.build(new CommonTokenStream(new CSharp6PreProcessor(
+                new ANTLRInputStream(TokenLineIndexTest.SOURCE))));
+
+        // a comment spanning lines 3 and 4
+        Assert.assertEquals(0, index.getCodeLines(3, 4));
+        Assert.assertEquals(2, index.getCommentLines(3, 4));
+        // blank lines
+        Assert.assertEquals(0, index.getCodeLines(7, 7) + index.getCommentLines(7, 7));
+        Assert.assertEquals(0, index.getCodeLines(21, 21) + index.getCommentLines(21, 21));
+        // the verbatim string, blank line and comment marker included
+        Assert.assertEquals(5, index.getCodeLines(9, 13));
+        Assert.assertEquals(0, index.getCommentLines(9, 13));
+        // code followed by a comment is both
+        Assert.assertEquals(1, index.getCodeLines(20, 20));
+        Assert.assertEquals(1, index.getCommentLines(20, 20));
+        // directive lines are code
+        Assert.assertEquals(3, index.getCodeLines(22, 24));
+        Assert.assertEquals(19, index.getCodeLines());
+    }
+
+    @Test
+    public void memberLocMatchesLoCCounterOverItsSource()
+    {
+        final MethodNode render = TokenLineIndexTest.render(TokenLineIndexTest.build("DEBUG"));
+
+        Assert.assertEquals(TokenLineIndexTest.countSource(15, 26), render.getMetric("LOC").intValue());
+        Assert.assertEquals(8, render.getMetric("LOC").intValue());
+        Assert.assertEquals(5, render.getMetric("CLOC").intValue());
+    }
+
+    @Test
+    public void typeLocCountsVerbatimStringLinesAsCode()
+    {
+        final TypeNode report = TokenLineIndexTest.build("DEBUG").getTypes().get(0);
+
+        // LoCCounter skips line 11, which is blank, and line 12, which
+        // starts with //, both inside the verbatim string
+        Assert.assertEquals(TokenLineIndexTest.countSource(5, 27) + 2, report.getMetric("LOC").intValue());
+        Assert.assertEquals(16, report.getMetric("LOC").intValue());
+        Assert.assertEquals(6, report.getMetric("CLOC").intValue());
+    }
+
+    @Test
+    public void skippedSectionsAreNotCounted()
+    {
+        final MethodNode render = TokenLineIndexTest.render(TokenLineIndexTest.build());
+
+        // line 23 is skipped, while the directives still count
+        Assert.assertEquals(7, render.getMetric("LOC").intValue());
+        Assert.assertEquals(5, render.getMetric("CLOC").intValue());
+    }
+
+    /**
+     * Parses the source and builds its FileNode using a TokenLineIndex
+     * 
+     * @param symbols
+     *            Conditional compilation symbols
+     * @return The FileNode
+     */
+    private static FileNode build(final String... symbols)
+    {
+        final CommonTokenStream tokens = new CommonTokenStream(new ConditionalPreProcessor(
+                new ANTLRInputStream(TokenLineIndexTest.SOURCE), Sets.newHashSet(symbols)));
+        final TokenLineIndex index = TokenLineIndex.build(tokens);
+        final CSharpParseResult result = new CSharpParseEngine().parse(new CSharp6Parser(tokens));
+        Assert.assertEquals(0, result.getSyntaxErrors());
+
+        final FileNode file = FileNode.builder("Report.cs").create();
+        ParseTreeWalker.DEFAULT.walk(new CSharpCodeTreeBuilder(file, index, null), result.getTree());
+        return file;
+    }
+
+    /**
+     * @param file
+     *            FileNode of the source
+     * @return Node of the Render method
+     */
+    private static MethodNode render(final FileNode file)
+    {
+        final List<MethodNode> methods = file.getTypes().get(0).getMethods();
+        Assert.assertEquals(1, methods.size());
+        return methods.get(0);
+    }
+
+    /**
+     * Counts lines of the source as the builder did before the index
+     * 
+     * @param start
+     *            First line (inclusive)
+     * @param end
+     *            Last line (inclusive)
+     * @return Lines of code counted by a LoCCounter
+     */
+    private static int countSource(final int start, final int end)
+    {
+        final List<String> lines = Arrays.asList(TokenLineIndexTest.SOURCE.split("\r\n"));
+        final LoCCounter counter = new LoCCounter("//", "/*", "*/", "\r\n");
+        counter.reset();
+        counter.count(String.join("\r\n", lines.subList(start - 1, end)));
+        return counter.getSloc();
+    }
+}
@@ -0,0 +1,202 @@
+using System;
+using System.Collections.Generic;
+using System.Linq;
+
+namespace Acme.Warehouse
+{
+    /// <summary>
+    /// Stock levels of the items held in a warehouse.
+    /// </summary>
+    public class Inventory : IEnumerable<Item>
+    {
+        private readonly Dictionary<string, Item> items = new Dictionary<string, Item>();
+        private int version;
+
+        public event EventHandler Changed;
+
+        public Inventory()
+        {
+            version = 0;
+        }
+
+        public Inventory(IEnumerable<Item> initial) : this()
+        {
+            foreach (var item in initial)
+            {
+                Add(item);
+            }
+        }
+
+        static Inventory()
+        {
+            Empty = new Inventory();
+        }
+
+        ~Inventory()
+        {
+            items.Clear();
+        }
+
+        public static Inventory Empty { get; private set; }
+
+        public int Count
+        {
+            get { return items.Count; }
+        }
+
+        public Item this[string sku]
+        {
+            get
+            {
+                Item item;
+                if (!items.TryGetValue(sku, out item))
+                {
+                    throw new KeyNotFoundException(sku);
+                }
+                return item;
+            }
+        }
+
+        public void Add(Item item)
+        {
+            if (item == null)
+                throw new ArgumentNullException("item");
+
+            Item existing;
+            if (items.TryGetValue(item.Sku, out existing))
+            {
+                existing.Quantity += item.Quantity;
+            }
+            else
+            {
+                items[item.Sku] = item;
+            }
+            // every change invalidates running enumerations
+            version++;
+            OnChanged();
+        }
+
+        public int Remove(string sku, int quantity)
+        {
+            var item = this[sku];
+            var taken = Math.Min(item.Quantity, quantity);
+            item.Quantity -= taken;
+            switch (item.Quantity)
+            {
+                case 0:
+                    items.Remove(sku);
+                    break;
+                default:
+                    break;
+            }
+            OnChanged();
+            return taken;
+        }
+
+        public IEnumerable<Item> LowStock(int threshold)
+        {
+            return items.Values.Where(i => i.Quantity < threshold).OrderBy(i => i.Sku);
+        }
+
+        public IEnumerator<Item> GetEnumerator()
+        {
+            var seen = version;
+            foreach (var item in items.Values)
+            {
+                if (seen != version)
+                    throw new InvalidOperationException();
+                yield return item;
+            }
+        }
+
+        System.Collections.IEnumerator System.Collections.IEnumerable.GetEnumerator()
+        {
+            return GetEnumerator();
+        }
+
+        public static Inventory operator +(Inventory left, Inventory right)
+        {
+            var sum = new Inventory(left);
+            foreach (var item in right)
+            {
+                sum.Add(new Item(item.Sku, item.Quantity));
+            }
+            return sum;
+        }
+
+        protected virtual void OnChanged()
+        {
+            var handler = Changed;
+            if (handler != null)
+            {
+                handler(this, EventArgs.Empty);
+            }
+        }
+
+        public class Snapshot
+        {
+            private readonly int version;
+
+            public Snapshot(Inventory owner)
+            {
+                version = owner.version;
+            }
+
+            public bool IsCurrent(Inventory owner)
+            {
+                return owner.version == version;
+            }
+        }
+    }
+
+    public class Item
+    {
+        public Item(string sku, int quantity)
+        {
+            Sku = sku;
+            Quantity = quantity;
+        }
+
+        public string Sku { get; private set; }
+
+        public int Quantity { get; set; }
+
+        public override string ToString()
+        {
+            try
+            {
+                return string.Format("{0} x{1}", Sku, Quantity);
+            }
+            catch (FormatException)
+            {
+                return Sku;
+            }
+        }
+    }
+
+    public interface IAudit
+    {
+        void Record(Item item);
+    }
+
+    public struct Location
+    {
+        public int Aisle;
+        public int Shelf;
+
+        public Location(int aisle, int shelf)
+        {
+            Aisle = aisle;
+            Shelf = shelf;
+        }
+    }
+
+    public enum Zone
+    {
+        Cold,
+        Dry,
+        Bulk
+    }
+
+    public delegate void Restocked(Item item);
+}